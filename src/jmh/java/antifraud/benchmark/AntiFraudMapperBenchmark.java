@@ -0,0 +1,35 @@
+package antifraud.benchmark;
+
+import antifraud.domain.Transaction;
+import antifraud.domain.TransactionResult;
+import antifraud.dto.PostTransactionInDto;
+import antifraud.dto.TransactionOutDto;
+import antifraud.mapper.AntiFraudMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * {@link AntiFraudMapper} on the scoring path (request to entity) and on the history path (entity to response).
+ */
+@State(Scope.Thread)
+public class AntiFraudMapperBenchmark {
+    private final AntiFraudMapper mapper = new AntiFraudMapper();
+    private final PostTransactionInDto postTransactionInDto = new PostTransactionInDto(450L, "192.168.1.1",
+            "4000008449433403", "MENA", LocalDateTime.of(2024, 10, 1, 12, 0));
+    private final Transaction transaction = mapper.toTransaction(postTransactionInDto)
+            .setId(42L)
+            .setMerchant("shop")
+            .setResult(TransactionResult.MANUAL_PROCESSING)
+            .setFeedback(TransactionResult.ALLOWED);
+
+    @Benchmark
+    public Transaction toTransaction() {
+        return mapper.toTransaction(postTransactionInDto);
+    }
+
+    @Benchmark
+    public TransactionOutDto toDto() {
+        return mapper.toDto(transaction);
+    }
+}
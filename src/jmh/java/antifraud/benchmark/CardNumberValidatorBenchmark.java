@@ -0,0 +1,20 @@
+package antifraud.benchmark;
+
+import antifraud.validations.CardNumberValidator;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The Luhn check of {@link CardNumberValidator}, which validates the card number of every posted transaction.
+ */
+@State(Scope.Thread)
+public class CardNumberValidatorBenchmark {
+    private final CardNumberValidator validator = new CardNumberValidator();
+
+    @Param({"4532015112830366", "4532015112830367", "45320151128303661234"})
+    private String number;
+
+    @Benchmark
+    public boolean isValid() {
+        return validator.isValid(number, null);
+    }
+}
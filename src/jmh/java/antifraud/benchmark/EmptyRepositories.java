@@ -0,0 +1,45 @@
+package antifraud.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Stand-ins for Spring Data repositories of components that only read them at construction or outside the
+ * benchmarked methods: finders return nothing, other methods return null.
+ */
+final class EmptyRepositories {
+    private EmptyRepositories() {
+    }
+
+    static <T> T of(Class<T> repository) {
+        return repository.cast(Proxy.newProxyInstance(repository.getClassLoader(), new Class<?>[]{repository},
+                (proxy, method, args) -> {
+                    Class<?> type = method.getReturnType();
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "equals" -> proxy == args[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            default -> repository.getSimpleName();
+                        };
+                    }
+                    if (Iterable.class.isAssignableFrom(type)) {
+                        return Collections.emptyList();
+                    }
+                    if (type == Optional.class) {
+                        return Optional.empty();
+                    }
+                    if (type == Stream.class) {
+                        return Stream.empty();
+                    }
+                    if (type == long.class) {
+                        return 0L;
+                    }
+                    if (type == boolean.class) {
+                        return false;
+                    }
+                    return null;
+                }));
+    }
+}
@@ -0,0 +1,39 @@
+package antifraud.benchmark;
+
+import antifraud.dto.PostTransactionInDto;
+import antifraud.dto.TransactionOutDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reading a posted transaction and writing a history entry, with an object mapper configured like the
+ * application's (Spring's defaults, indented output).
+ */
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().indentOutput(true).build();
+    private final String postTransactionJson = """
+            {
+              "amount" : 450,
+              "ip" : "192.168.1.1",
+              "number" : "4000008449433403",
+              "region" : "MENA",
+              "date" : "2024-10-01T12:00:00"
+            }""";
+    private final TransactionOutDto transactionOutDto = new TransactionOutDto(42L, 450L, "192.168.1.1",
+            "4000008449433403", "MENA", LocalDateTime.of(2024, 10, 1, 12, 0), "MANUAL_PROCESSING", "ALLOWED");
+
+    @Benchmark
+    public PostTransactionInDto readPostTransaction() throws JsonProcessingException {
+        return objectMapper.readValue(postTransactionJson, PostTransactionInDto.class);
+    }
+
+    @Benchmark
+    public byte[] writeTransaction() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transactionOutDto);
+    }
+}
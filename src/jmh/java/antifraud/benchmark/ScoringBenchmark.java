@@ -0,0 +1,144 @@
+package antifraud.benchmark;
+
+import antifraud.blacklist.IpRange;
+import antifraud.blacklist.StolenCardIndex;
+import antifraud.blacklist.SuspiciousIpIndex;
+import antifraud.correlation.CorrelationWindow;
+import antifraud.domain.Transaction;
+import antifraud.domain.TransactionResult;
+import antifraud.dto.PostTransactionInDto;
+import antifraud.dto.PostTransactionOutDto;
+import antifraud.limits.LimitSnapshot;
+import antifraud.limits.TransactionLimits;
+import antifraud.mapper.AntiFraudMapper;
+import antifraud.persistence.TransactionWriter;
+import antifraud.repository.StolenCardRepository;
+import antifraud.repository.SuspiciousIpRepository;
+import antifraud.repository.TransactionLimitRepository;
+import antifraud.repository.TransactionRepository;
+import antifraud.rules.*;
+import antifraud.service.impl.AntiFraudServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The scoring path of {@link AntiFraudServiceImpl#postTransaction} with the in-memory components the application
+ * uses (blacklist indexes, correlation window, adaptive limits, rule pipeline) and a writer that drops the
+ * transactions, so the database is not part of the measurement.
+ * <p>
+ * {@code evaluate} is the rule pipeline alone, whose decisions are precomputed and must not allocate. The
+ * {@code concurrent} group scores on three threads while a fourth keeps applying feedback to the limits the
+ * scoring threads read.
+ */
+@State(Scope.Benchmark)
+public class ScoringBenchmark {
+    private static final String MERCHANT = "shop";
+    private static final String[] NUMBERS = {"4532015112830366", "4000008449433403", "4539578763621486",
+            "4111111111111111"};
+    private static final String[] REGIONS = {"EAP", "ECA", "HIC", "LAC", "MENA", "SA", "SSA"};
+    private static final long[] AMOUNTS = {50, 180, 450, 900, 1500, 2500};
+    private static final int INPUTS = 1024;
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 10, 1, 12, 0);
+    // transactions come in at about 100 per second of transaction time, so the correlation window stays filled
+    private final AtomicLong sequence = new AtomicLong();
+    private PostTransactionInDto[] inputs;
+    private TransactionLimits transactionLimits;
+    private FraudRulePipeline rulePipeline;
+    private AntiFraudServiceImpl service;
+    private ScoringContext context;
+
+    @Setup
+    public void setUp() {
+        inputs = new PostTransactionInDto[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            String ip = "10.0." + (i / 256 % 4) + "." + i % 256;
+            inputs[i] = new PostTransactionInDto(AMOUNTS[i % AMOUNTS.length], ip, NUMBERS[i % NUMBERS.length],
+                    REGIONS[i % REGIONS.length], start);
+        }
+        StolenCardIndex stolenCardIndex = new StolenCardIndex(EmptyRepositories.of(StolenCardRepository.class));
+        stolenCardIndex.add("4000008449433403");
+        SuspiciousIpIndex suspiciousIpIndex =
+                new SuspiciousIpIndex(EmptyRepositories.of(SuspiciousIpRepository.class));
+        suspiciousIpIndex.add(IpRange.parse("10.0.3.0/24"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        transactionLimits = new TransactionLimits(EmptyRepositories.of(TransactionLimitRepository.class),
+                meterRegistry, 200L, 1500L, Duration.ofHours(1));
+        TransactionWriter writer = new DiscardingWriter();
+        CorrelationWindow correlation = new CorrelationWindow(EmptyRepositories.of(TransactionRepository.class),
+                writer, Duration.ofHours(2));
+        rulePipeline = new FraudRulePipeline(List.of(new AmountRule(), new StolenCardRule(stolenCardIndex),
+                new SuspiciousIpRule(suspiciousIpIndex), new RegionCorrelationRule(), new IpCorrelationRule()),
+                meterRegistry);
+        service = new AntiFraudServiceImpl(EmptyRepositories.of(TransactionRepository.class),
+                EmptyRepositories.of(SuspiciousIpRepository.class), EmptyRepositories.of(StolenCardRepository.class),
+                new AntiFraudMapper(), transactionLimits, correlation, stolenCardIndex, suspiciousIpIndex,
+                rulePipeline, writer);
+        context = new ScoringContext(inputs[2], new LimitSnapshot(200L, 1500L), correlation);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        transactionLimits.close();
+    }
+
+    private PostTransactionInDto next() {
+        long i = sequence.getAndIncrement();
+        PostTransactionInDto input = inputs[(int) (i % INPUTS)];
+        return new PostTransactionInDto(input.amount(), input.ip(), input.number(), input.region(),
+                start.plusSeconds(i / 100));
+    }
+
+    @Benchmark
+    public PostTransactionOutDto postTransaction() {
+        return service.postTransaction(next(), MERCHANT);
+    }
+
+    @Benchmark
+    public PostTransactionOutDto evaluate() {
+        return rulePipeline.evaluate(context);
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(3)
+    public PostTransactionOutDto concurrentScoring() {
+        return service.postTransaction(next(), MERCHANT);
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(1)
+    public LimitSnapshot concurrentFeedback(FeedbackState feedback) {
+        // alternately raise and lower the limit of a region, so it stays in the range of the scored amounts
+        int step = feedback.step++;
+        boolean raise = (step & 1) == 0;
+        return transactionLimits.applyFeedback(MERCHANT, REGIONS[step / 2 % REGIONS.length],
+                raise ? TransactionResult.MANUAL_PROCESSING : TransactionResult.ALLOWED,
+                raise ? TransactionResult.ALLOWED : TransactionResult.MANUAL_PROCESSING, 180);
+    }
+
+    @State(Scope.Thread)
+    public static class FeedbackState {
+        int step;
+    }
+
+    private static class DiscardingWriter implements TransactionWriter {
+        @Override
+        public void write(Transaction transaction) {
+        }
+
+        @Override
+        public void writeAll(List<Transaction> transactions) {
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package antifraud.benchmark;
+
+import antifraud.blacklist.IpRange;
+import antifraud.domain.Region;
+import antifraud.domain.TransactionResult;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+/**
+ * The database side of scoring and history on an in-memory H2 {@code TRANSACTION} table, in the compact schema
+ * (IPv4 as {@code INTEGER}, region, result and feedback as {@code TINYINT} codes) and in the legacy one it replaced
+ * (text columns). Both get the indexes declared on {@code Transaction}, so the two differ only in column types.
+ * <p>
+ * {@code fusedCorrelation} is the single query that now counts the distinct other regions and IPs of the hour up
+ * to a transaction, {@code separateCorrelation} the two queries it replaced; {@code cardHistory} reads the first
+ * page of a card's history. The setup prints the space the table and its indexes take.
+ */
+@State(Scope.Thread)
+public class TransactionQueryBenchmark {
+    private static final String[] CREATE_COMPACT = {
+            "CREATE TABLE \"transaction\" (id BIGINT PRIMARY KEY, amount BIGINT NOT NULL, ip INTEGER NOT NULL, " +
+                    "number VARCHAR(255) NOT NULL, region TINYINT NOT NULL, date TIMESTAMP NOT NULL, " +
+                    "merchant VARCHAR(255), result TINYINT NOT NULL, feedback TINYINT NOT NULL)"
+    };
+    private static final String[] CREATE_LEGACY = {
+            "CREATE TABLE \"transaction\" (id BIGINT PRIMARY KEY, amount BIGINT NOT NULL, ip VARCHAR(255) NOT NULL, " +
+                    "number VARCHAR(255) NOT NULL, region VARCHAR(255) NOT NULL, date TIMESTAMP NOT NULL, " +
+                    "merchant VARCHAR(255), result VARCHAR(255) NOT NULL, feedback VARCHAR(255) NOT NULL)"
+    };
+    // the full set declared on Transaction, for either schema
+    private static final String[] CREATE_INDEXES = {
+            "CREATE INDEX idx_transaction_date_region ON \"transaction\" (date, region)",
+            "CREATE INDEX idx_transaction_date_ip ON \"transaction\" (date, ip)",
+            "CREATE INDEX idx_transaction_number_id ON \"transaction\" (number, id)",
+            "CREATE INDEX idx_transaction_result_id ON \"transaction\" (result, id)",
+            "CREATE INDEX idx_transaction_region_id ON \"transaction\" (region, id)",
+            "CREATE INDEX idx_transaction_ip_id ON \"transaction\" (ip, id)"
+    };
+    private static final String INSERT = "INSERT INTO \"transaction\" " +
+            "(id, amount, ip, number, region, date, merchant, result, feedback) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String FUSED = "SELECT COUNT(DISTINCT CASE WHEN region <> ? THEN region END), " +
+            "COUNT(DISTINCT CASE WHEN ip <> ? THEN ip END) FROM \"transaction\" WHERE date BETWEEN ? AND ?";
+    private static final String DISTINCT_REGIONS = "SELECT COUNT(DISTINCT region) FROM \"transaction\" " +
+            "WHERE date BETWEEN ? AND ? AND region <> ?";
+    private static final String DISTINCT_IPS = "SELECT COUNT(DISTINCT ip) FROM \"transaction\" " +
+            "WHERE date BETWEEN ? AND ? AND ip <> ?";
+    private static final String HISTORY = "SELECT id, amount, ip, number, region, date, result, feedback " +
+            "FROM \"transaction\" WHERE number = ? AND id > 0 ORDER BY id LIMIT 10";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 9, 1, 0, 0);
+    private static final int DAYS = 30;
+    private static final int CARDS = 20_000;
+    private static final int IPS = 5_000;
+    private static final int PROBES = 1024;
+
+    @Param({"compact", "legacy"})
+    private String schema;
+
+    @Param({"100000"})
+    private int rows;
+
+    private Connection connection;
+    private PreparedStatement fused;
+    private PreparedStatement distinctRegions;
+    private PreparedStatement distinctIps;
+    private PreparedStatement history;
+    private Probe[] probes;
+    private int next;
+
+    private record Probe(Timestamp from, Timestamp to, Object region, Object ip, String number) {
+    }
+
+    @Setup
+    public void setUp() throws SQLException {
+        boolean compact = schema.equals("compact");
+        // an in-memory file system rather than a plain in-memory database, so H2 can tell the space used
+        connection = DriverManager.getConnection("jdbc:h2:memFS:transaction-" + schema, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : compact ? CREATE_COMPACT : CREATE_LEGACY) {
+                statement.execute(ddl);
+            }
+            for (String ddl : CREATE_INDEXES) {
+                statement.execute(ddl);
+            }
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        TransactionResult[] results = TransactionResult.values();
+        long seconds = DAYS * 24 * 3600L;
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            for (int id = 1; id <= rows; id++) {
+                Region region = Region.values()[random.nextInt(Region.values().length)];
+                String ip = ip(random.nextInt(IPS));
+                TransactionResult result = results[random.nextInt(results.length)];
+                insert.setLong(1, id);
+                insert.setLong(2, 1 + random.nextInt(3000));
+                insert.setObject(3, compact ? IpRange.parseAddress(ip) : ip);
+                insert.setString(4, number(random.nextInt(CARDS)));
+                insert.setObject(5, compact ? region.code() : region.name());
+                insert.setTimestamp(6, Timestamp.valueOf(START.plusSeconds(seconds * id / rows)));
+                insert.setString(7, "shop");
+                insert.setObject(8, compact ? result.code() : result.name());
+                insert.setObject(9, compact ? TransactionResult.NONE : "");
+                insert.addBatch();
+                if (id % 1000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+            try (ResultSet resultSet = statement.executeQuery("SELECT DISK_SPACE_USED('\"transaction\"')")) {
+                resultSet.next();
+                long bytes = resultSet.getLong(1);
+                System.out.printf("%n%s schema: %d rows take %d bytes with indexes, %.1f bytes per row%n",
+                        schema, rows, bytes, (double) bytes / rows);
+            }
+        }
+
+        probes = new Probe[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            LocalDateTime date = START.plusSeconds(3600 + random.nextLong(seconds - 3600));
+            Region region = Region.values()[random.nextInt(Region.values().length)];
+            String ip = ip(random.nextInt(IPS));
+            probes[i] = new Probe(Timestamp.valueOf(date.minusHours(1)), Timestamp.valueOf(date),
+                    compact ? region.code() : region.name(), compact ? IpRange.parseAddress(ip) : ip,
+                    number(random.nextInt(CARDS)));
+        }
+        fused = connection.prepareStatement(FUSED);
+        distinctRegions = connection.prepareStatement(DISTINCT_REGIONS);
+        distinctIps = connection.prepareStatement(DISTINCT_IPS);
+        history = connection.prepareStatement(HISTORY);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS DELETE FILES");
+        }
+        connection.close();
+    }
+
+    private static String ip(int i) {
+        return "10." + (i >> 16) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+    }
+
+    // distinct 16-digit numbers; the Luhn check digit does not matter to the queries
+    private static String number(int i) {
+        return String.valueOf(4_000_000_000_000_000L + i * 7919L);
+    }
+
+    private Probe probe() {
+        return probes[next++ & PROBES - 1];
+    }
+
+    @Benchmark
+    public void fusedCorrelation(Blackhole blackhole) throws SQLException {
+        Probe probe = probe();
+        fused.setObject(1, probe.region());
+        fused.setObject(2, probe.ip());
+        fused.setTimestamp(3, probe.from());
+        fused.setTimestamp(4, probe.to());
+        try (ResultSet resultSet = fused.executeQuery()) {
+            resultSet.next();
+            blackhole.consume(resultSet.getLong(1));
+            blackhole.consume(resultSet.getLong(2));
+        }
+    }
+
+    @Benchmark
+    public void separateCorrelation(Blackhole blackhole) throws SQLException {
+        Probe probe = probe();
+        blackhole.consume(count(distinctRegions, probe, probe.region()));
+        blackhole.consume(count(distinctIps, probe, probe.ip()));
+    }
+
+    private static long count(PreparedStatement statement, Probe probe, Object excluded) throws SQLException {
+        statement.setTimestamp(1, probe.from());
+        statement.setTimestamp(2, probe.to());
+        statement.setObject(3, excluded);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    @Benchmark
+    public void cardHistory(Blackhole blackhole) throws SQLException {
+        history.setString(1, probe().number());
+        try (ResultSet resultSet = history.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong(1));
+            }
+        }
+    }
+}
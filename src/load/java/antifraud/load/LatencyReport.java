@@ -0,0 +1,104 @@
+package antifraud.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes per endpoint of one load run. Latencies are measured from the time a request was due
+ * to be sent, not from when it was sent, so a stalled server shows up in the percentiles of every request it
+ * held up instead of being hidden by a generator that waited for it (coordinated omission).
+ */
+class LatencyReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+
+    void record(String endpoint, long latencyNanos, int status) {
+        endpoints.computeIfAbsent(endpoint, name -> new Endpoint()).record(latencyNanos, status);
+    }
+
+    /** The latencies of all endpoints together. */
+    Histogram all() {
+        Histogram all = new Histogram(3);
+        endpoints.values().forEach(endpoint -> all.add(endpoint.latencies));
+        return all;
+    }
+
+    long errors() {
+        return endpoints.values().stream().mapToLong(Endpoint::errors).sum();
+    }
+
+    /** Prints one line per endpoint, and one for all endpoints together. */
+    void print(PrintStream out, String title, Duration duration, double targetRate) {
+        double seconds = duration.toNanos() / 1e9;
+        out.println();
+        out.println(title);
+        out.printf("%-22s %9s %7s %10s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            line(out, entry.getKey(), entry.getValue().latencies, entry.getValue().errors(), seconds);
+        }
+        Histogram all = all();
+        line(out, "all", all, errors(), seconds);
+        out.printf("target %.1f req/s, achieved %.1f req/s over %.1f s%n", targetRate,
+                all.getTotalCount() / seconds, seconds);
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            if (entry.getValue().errors() > 0) {
+                out.printf("%s errors by status: %s%n", entry.getKey(), entry.getValue().errorsByStatus());
+            }
+        }
+    }
+
+    private static void line(PrintStream out, String name, Histogram latencies, long errors, double seconds) {
+        out.printf("%-22s %9d %7d %10.1f", name, latencies.getTotalCount(), errors,
+                latencies.getTotalCount() / seconds);
+        for (double percentile : PERCENTILES) {
+            out.printf(" %9.2f", latencies.getValueAtPercentile(percentile) / NANOS_PER_MILLI);
+        }
+        out.printf(" %9.2f%n", latencies.getMaxValue() / NANOS_PER_MILLI);
+    }
+
+    /** Writes the full percentile distribution of every endpoint as {@code <endpoint>.hgrm}, in milliseconds. */
+    void writeDistributions(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            try (PrintStream out = new PrintStream(directory.resolve(entry.getKey() + ".hgrm").toFile())) {
+                entry.getValue().latencies.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    private static class Endpoint {
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final Map<Integer, LongAdder> errorsByStatus = new ConcurrentHashMap<>();
+
+        void record(long latencyNanos, int status) {
+            latencies.recordValue(latencyNanos);
+            if (status < 200 || status >= 300) {
+                errorsByStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
+            }
+        }
+
+        long errors() {
+            return errorsByStatus.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        Map<Integer, Long> errorsByStatus() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            errorsByStatus.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+    }
+}
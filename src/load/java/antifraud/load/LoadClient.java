@@ -0,0 +1,236 @@
+package antifraud.load;
+
+import antifraud.dto.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calls the API as a merchant (posting transactions) and as a support user (feedback, blacklist edits, history).
+ * Transactions draw on fixed pools of cards and IPs, so blacklist edits and correlation checks affect them.
+ * Feedback is given on transactions found by history reads, at most once each and never equal to the result, so
+ * it is not rejected. Blacklist edits add entries from the same pools and remove the oldest one once
+ * {@value #BLACKLIST_SIZE} have been added.
+ */
+class LoadClient {
+    static final String POST = "post";
+    static final String FEEDBACK = "feedback";
+    static final String BLACKLIST = "blacklist";
+    static final String HISTORY = "history";
+
+    private static final String ADMIN = "load-admin";
+    private static final String MERCHANT = "load-merchant";
+    private static final String SUPPORT = "load-support";
+    private static final String PASSWORD = "load-password";
+    private static final String[] REGIONS = {"EAP", "ECA", "HIC", "LAC", "MENA", "SA", "SSA"};
+    private static final int CARDS = 1000;
+    private static final int IPS = 500;
+    private static final int BLACKLIST_SIZE = 20;
+    private static final int HISTORY_PAGE = 100;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String base;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final String[] cards = new String[CARDS];
+    private final String[] ips = new String[IPS];
+    private final AtomicLong lastSeenId = new AtomicLong();
+    private final Queue<TransactionOutDto> awaitingFeedback = new ConcurrentLinkedQueue<>();
+    private final Set<String> blacklisted = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedDeque<String> blacklistOrder = new ConcurrentLinkedDeque<>();
+    private String merchantAuthorization;
+    private String supportAuthorization;
+
+    /** Outcome of one operation: the endpoint that was called and the HTTP status (0 if the call failed). */
+    record Outcome(String endpoint, int status) {
+    }
+
+    LoadClient(URI base, HttpClient client) {
+        this.base = base.toString();
+        this.client = client;
+        for (int i = 0; i < CARDS; i++) {
+            cards[i] = withCheckDigit(String.valueOf(400_000_000_000_000L + i * 7_919L));
+        }
+        for (int i = 0; i < IPS; i++) {
+            ips[i] = "10.1." + i / 256 + "." + i % 256;
+        }
+    }
+
+    /**
+     * Creates the users on a fresh database (the first one becomes the administrator), unlocks the merchant and
+     * support user, and gets access tokens for both.
+     */
+    void setUp() throws IOException, InterruptedException {
+        for (String username : new String[]{ADMIN, MERCHANT, SUPPORT}) {
+            expect(201, send("POST", "/api/auth/user", null, new NewUserDto(username, username, PASSWORD)));
+        }
+        String admin = basic(ADMIN);
+        expect(200, send("PUT", "/api/auth/access", admin, new ChangeAccessDto(MERCHANT, "UNLOCK")));
+        expect(200, send("PUT", "/api/auth/access", admin, new ChangeAccessDto(SUPPORT, "UNLOCK")));
+        expect(200, send("PUT", "/api/auth/role", admin, new ChangeRoleDto(SUPPORT, "SUPPORT")));
+        merchantAuthorization = bearer(MERCHANT);
+        supportAuthorization = bearer(SUPPORT);
+    }
+
+    Outcome execute(String operation) {
+        String endpoint = operation;
+        try {
+            return switch (operation) {
+                case POST -> new Outcome(POST, postTransaction().statusCode());
+                case FEEDBACK -> {
+                    TransactionOutDto transaction = awaitingFeedback.poll();
+                    if (transaction == null) {
+                        // nothing to give feedback on yet: read the history instead
+                        endpoint = HISTORY;
+                        yield new Outcome(HISTORY, readHistory());
+                    }
+                    yield new Outcome(FEEDBACK, giveFeedback(transaction));
+                }
+                case BLACKLIST -> editBlacklist();
+                case HISTORY -> new Outcome(HISTORY, readHistory());
+                default -> throw new IllegalArgumentException("Unknown operation " + operation);
+            };
+        } catch (IOException e) {
+            return new Outcome(endpoint, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Outcome(endpoint, 0);
+        }
+    }
+
+    private HttpResponse<String> postTransaction() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return send("POST", "/api/antifraud/transaction", merchantAuthorization, new PostTransactionInDto(
+                1 + random.nextLong(2000), ips[random.nextInt(IPS)], cards[random.nextInt(CARDS)],
+                REGIONS[random.nextInt(REGIONS.length)], LocalDateTime.now().withNano(0)));
+    }
+
+    private int giveFeedback(TransactionOutDto transaction) throws IOException, InterruptedException {
+        String feedback = "ALLOWED".equals(transaction.result()) ? "MANUAL_PROCESSING" : "ALLOWED";
+        return send("PUT", "/api/antifraud/transaction", supportAuthorization,
+                new UpdateTransactionFeedback(transaction.transactionId(), feedback)).statusCode();
+    }
+
+    private int readHistory() throws IOException, InterruptedException {
+        long afterId = lastSeenId.get();
+        HttpResponse<String> response = send("GET", "/api/antifraud/history?afterId=" + afterId +
+                "&limit=" + HISTORY_PAGE, supportAuthorization, null);
+        if (response.statusCode() == 200) {
+            TransactionOutDto[] transactions = objectMapper.readValue(response.body(), TransactionOutDto[].class);
+            // concurrent reads may get the same page; only the first to move past it queues its transactions
+            if (transactions.length > 0 && lastSeenId.compareAndSet(afterId,
+                    transactions[transactions.length - 1].transactionId())) {
+                awaitingFeedback.addAll(List.of(transactions));
+            }
+        }
+        return response.statusCode();
+    }
+
+    private Outcome editBlacklist() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean card = random.nextBoolean();
+        String value = card ? cards[random.nextInt(CARDS)] : ips[random.nextInt(IPS)];
+        if (blacklisted.size() < BLACKLIST_SIZE && blacklisted.add(value)) {
+            blacklistOrder.add(value);
+            if (card) {
+                return new Outcome("add-stolen-card", send("POST", "/api/antifraud/stolencard",
+                        supportAuthorization, new StolenCardInDto(value)).statusCode());
+            }
+            return new Outcome("add-suspicious-ip", send("POST", "/api/antifraud/suspicious-ip",
+                    supportAuthorization, new SuspiciousIpInDto(value)).statusCode());
+        }
+        String oldest = blacklistOrder.poll();
+        if (oldest == null) {
+            return new Outcome(HISTORY, readHistory());
+        }
+        // the oldest entry has been added at least BLACKLIST_SIZE edits ago, so its add has almost surely been
+        // answered; a 404 in the report would mean it had not
+        int status;
+        String endpoint;
+        if (oldest.contains(".")) {
+            endpoint = "delete-suspicious-ip";
+            status = send("DELETE", "/api/antifraud/suspicious-ip/" + oldest, supportAuthorization, null)
+                    .statusCode();
+        } else {
+            endpoint = "delete-stolen-card";
+            status = send("DELETE", "/api/antifraud/stolencard/" + oldest, supportAuthorization, null).statusCode();
+        }
+        blacklisted.remove(oldest);
+        return new Outcome(endpoint, status);
+    }
+
+    /** Reads a meter from the actuator, which only administrators may do. */
+    HttpResponse<String> readMetric(String name) throws IOException, InterruptedException {
+        return send("GET", "/actuator/metrics/" + name, basic(ADMIN), null);
+    }
+
+    private HttpResponse<String> send(String method, String path, String authorization, Object body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(REQUEST_TIMEOUT)
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        if (body != null) {
+            request.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        }
+        if (authorization != null) {
+            request.header(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String bearer(String username) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "/api/auth/token", basic(username), null);
+        expect(200, response);
+        return "Bearer " + objectMapper.readValue(response.body(), AccessTokenDto.class).accessToken();
+    }
+
+    private static String basic(String username) {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + PASSWORD)
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void expect(int status, HttpResponse<String> response) {
+        if (response.statusCode() != status) {
+            throw new IllegalStateException(response.request().method() + " " + response.request().uri() +
+                    " answered " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    // appends the Luhn check digit
+    static String withCheckDigit(String digits) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+}
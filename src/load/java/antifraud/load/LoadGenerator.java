@@ -0,0 +1,268 @@
+package antifraud.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Starts the application jar on an in-memory H2 database, sets up a merchant and a support user, and sends a mix
+ * of operations at a fixed rate, first for a warm-up period whose latencies are discarded and then for the
+ * measured period. Prints the latency percentiles and throughput per endpoint and writes their distributions to
+ * the report directory.
+ * <p>
+ * Requests are sent on a schedule fixed in advance (open loop): the n-th request is due at {@code start + n /
+ * rate}, whether or not earlier ones have been answered, and its latency is counted from that time. Requests in
+ * flight are capped; once the cap is reached, due requests wait for a free slot and the wait is part of their
+ * latency.
+ * <p>
+ * Arguments are {@code key=value} pairs:
+ * <ul>
+ *     <li>{@code jar}: the boot jar (required)</li>
+ *     <li>{@code rate}: requests per second (default 200)</li>
+ *     <li>{@code duration}, {@code warmup}: measured and warm-up period (default PT60S and PT20S)</li>
+ *     <li>{@code mix}: relative weights of {@code post}, {@code feedback}, {@code blacklist} and {@code history}
+ *     (default post=70,feedback=10,blacklist=5,history=15)</li>
+ *     <li>{@code threading}: request handling on {@code platform} or {@code virtual} threads, or {@code both}
+ *     one after the other, each on a fresh application (default both)</li>
+ *     <li>{@code max-in-flight}: requests in flight at most (default 256)</li>
+ *     <li>{@code reports}: report directory (default build/reports/load)</li>
+ *     <li>{@code app-args}: further application arguments, separated by spaces</li>
+ * </ul>
+ */
+public class LoadGenerator {
+    private static final Duration READY_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(60);
+
+    private final Options options;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    record Options(Path jar, double rate, Duration duration, Duration warmup, Map<String, Integer> mix,
+                   List<String> threading, int maxInFlight, Path reports, List<String> appArgs) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Expected key=value, got " + arg);
+                }
+                values.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+            String jar = values.get("jar");
+            if (jar == null) {
+                throw new IllegalArgumentException("jar=<boot jar> is required");
+            }
+            String threading = values.getOrDefault("threading", "both");
+            String appArgs = values.getOrDefault("app-args", "").trim();
+            return new Options(Path.of(jar),
+                    Double.parseDouble(values.getOrDefault("rate", "200")),
+                    Duration.parse(values.getOrDefault("duration", "PT60S")),
+                    Duration.parse(values.getOrDefault("warmup", "PT20S")),
+                    parseMix(values.getOrDefault("mix", "post=70,feedback=10,blacklist=5,history=15")),
+                    threading.equals("both") ? List.of("platform", "virtual") : List.of(threading),
+                    Integer.parseInt(values.getOrDefault("max-in-flight", "256")),
+                    Path.of(values.getOrDefault("reports", "build/reports/load")),
+                    appArgs.isEmpty() ? List.of() : List.of(appArgs.split("\\s+")));
+        }
+
+        static Map<String, Integer> parseMix(String mix) {
+            Map<String, Integer> weights = new LinkedHashMap<>();
+            for (String entry : mix.split(",")) {
+                String[] weight = entry.trim().split("=");
+                String operation = weight[0].trim();
+                if (!List.of(LoadClient.POST, LoadClient.FEEDBACK, LoadClient.BLACKLIST, LoadClient.HISTORY)
+                        .contains(operation)) {
+                    throw new IllegalArgumentException("Unknown operation " + operation);
+                }
+                weights.put(operation, Integer.parseInt(weight[1].trim()));
+            }
+            if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+                throw new IllegalArgumentException("The mix " + mix + " has no positive weight");
+            }
+            return weights;
+        }
+    }
+
+    LoadGenerator(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LoadGenerator generator = new LoadGenerator(options);
+        Map<String, LatencyReport> reports = new LinkedHashMap<>();
+        for (String threading : options.threading()) {
+            reports.put(threading, generator.run(threading));
+        }
+        if (reports.size() > 1) {
+            printComparison(System.out, reports, options);
+        }
+    }
+
+    LatencyReport run(String threading) throws Exception {
+        if (!threading.equals("platform") && !threading.equals("virtual")) {
+            throw new IllegalArgumentException("Unknown threading " + threading);
+        }
+        Path reportDirectory = options.reports().resolve(threading);
+        Files.createDirectories(reportDirectory);
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>(List.of(
+                ProcessHandle.current().info().command().orElse("java"), "-jar", options.jar().toString(),
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+                "--spring.threads.virtual.enabled=" + threading.equals("virtual"),
+                // the tokens are issued once, before the load starts
+                "--antifraud.security.token.ttl=PT24H"));
+        command.addAll(options.appArgs());
+        Process application = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(reportDirectory.resolve("application.log").toFile())
+                .start();
+        try {
+            URI base = URI.create("http://localhost:" + port);
+            awaitReadiness(base, application);
+            LoadClient loadClient = new LoadClient(base, client);
+            loadClient.setUp();
+
+            System.out.printf("%n%s threads: warming up for %s, then measuring for %s at %.1f req/s%n", threading,
+                    options.warmup(), options.duration(), options.rate());
+            LatencyReport report = drive(loadClient);
+            report.print(System.out, threading + " threads, mix " + options.mix(), options.duration(),
+                    options.rate());
+            if (threading.equals("virtual")) {
+                printPinning(loadClient);
+            }
+            report.writeDistributions(reportDirectory);
+            System.out.println("Distributions and application log written to " + reportDirectory);
+            return report;
+        } finally {
+            application.destroy();
+            application.waitFor();
+        }
+    }
+
+    private void awaitReadiness(URI base, Process application) throws IOException, InterruptedException {
+        HttpRequest readiness = HttpRequest.newBuilder(base.resolve("/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!application.isAlive()) {
+                throw new IllegalStateException("The application exited with " + application.exitValue());
+            }
+            try {
+                if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("The application was not ready within " + READY_TIMEOUT);
+    }
+
+    /** Sends the warm-up and measured requests on schedule and returns the report of the measured ones. */
+    private LatencyReport drive(LoadClient loadClient) throws InterruptedException {
+        String[] operations = options.mix().keySet().toArray(String[]::new);
+        int[] cumulativeWeights = new int[operations.length];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.length; i++) {
+            totalWeight += options.mix().get(operations[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+        long interval = (long) (1e9 / options.rate());
+        long warmupRequests = options.warmup().toNanos() / interval;
+        long requests = warmupRequests + options.duration().toNanos() / interval;
+        LatencyReport warmup = new LatencyReport();
+        LatencyReport measured = new LatencyReport();
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < requests; i++) {
+                long due = start + i * interval;
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                int draw = ThreadLocalRandom.current().nextInt(totalWeight);
+                int operation = 0;
+                while (cumulativeWeights[operation] <= draw) {
+                    operation++;
+                }
+                String name = operations[operation];
+                LatencyReport report = i < warmupRequests ? warmup : measured;
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        LoadClient.Outcome outcome = loadClient.execute(name);
+                        report.record(outcome.endpoint(), System.nanoTime() - due, outcome.status());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            // let the last requests finish, but do not wait for a stalled application forever
+            if (!inFlight.tryAcquire(options.maxInFlight(), DRAIN_TIMEOUT.toNanos(),
+                    TimeUnit.NANOSECONDS)) {
+                System.out.println("Requests still in flight after " + DRAIN_TIMEOUT + " are left out");
+                executor.shutdownNow();
+            }
+        }
+        return measured;
+    }
+
+    private void printPinning(LoadClient loadClient) throws IOException, InterruptedException {
+        HttpResponse<String> response = loadClient.readMetric("antifraud.virtualthreads.pinned");
+        if (response.statusCode() != 200) {
+            System.out.println("No pinning recorded");
+            return;
+        }
+        Map<String, Double> statistics = new HashMap<>();
+        for (JsonNode measurement : objectMapper.readTree(response.body()).path("measurements")) {
+            statistics.put(measurement.path("statistic").asText(), measurement.path("value").asDouble());
+        }
+        System.out.printf("carrier threads pinned %.0f times for %.3f s in total, longest %.3f s " +
+                        "(pinning sites are in the application log)%n", statistics.getOrDefault("COUNT", 0.0),
+                statistics.getOrDefault("TOTAL_TIME", 0.0), statistics.getOrDefault("MAX", 0.0));
+    }
+
+    private static void printComparison(PrintStream out, Map<String, LatencyReport> reports, Options options) {
+        double seconds = options.duration().toNanos() / 1e9;
+        out.println();
+        out.printf("%-10s %10s %9s %9s %9s %9s%n", "threads", "req/s", "errors", "p50 ms", "p99 ms", "p99.9 ms");
+        reports.forEach((threading, report) -> {
+            Histogram all = report.all();
+            out.printf("%-10s %10.1f %9d %9.2f %9.2f %9.2f%n", threading, all.getTotalCount() / seconds,
+                    report.errors(), all.getValueAtPercentile(50) / 1e6, all.getValueAtPercentile(99) / 1e6,
+                    all.getValueAtPercentile(99.9) / 1e6);
+        });
+    }
+}
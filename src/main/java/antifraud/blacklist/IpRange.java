@@ -0,0 +1,77 @@
+package antifraud.blacklist;
+
+/**
+ * IPv4 address block in CIDR notation, held as a 32-bit network address and a prefix length. A single address
+ * is a block with prefix length 32 and is written without the {@code /32} suffix.
+ */
+public record IpRange(int network, int prefixLength) {
+    public static final int ADDRESS_BITS = 32;
+
+    public IpRange {
+        if (prefixLength < 0 || prefixLength > ADDRESS_BITS) {
+            throw new IllegalArgumentException("Invalid prefix length " + prefixLength);
+        }
+        network &= mask(prefixLength);
+    }
+
+    /** Parses {@code a.b.c.d} or {@code a.b.c.d/n}; host bits below the prefix are cleared. */
+    public static IpRange parse(String value) {
+        int slash = value.indexOf('/');
+        if (slash < 0) {
+            return new IpRange(parseAddress(value), ADDRESS_BITS);
+        }
+        return new IpRange(parseAddress(value.substring(0, slash)),
+                Integer.parseInt(value.substring(slash + 1)));
+    }
+
+    /** Parses a dotted-quad address into an int without allocating. */
+    public static int parseAddress(String address) {
+        int result = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c == '.') {
+                if (digits == 0 || ++dots > 3) {
+                    throw new IllegalArgumentException("Invalid IPv4 address " + address);
+                }
+                result = (result << 8) | octet;
+                octet = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9' && digits < 3) {
+                octet = octet * 10 + (c - '0');
+                digits++;
+                if (octet > 255) {
+                    throw new IllegalArgumentException("Invalid IPv4 address " + address);
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid IPv4 address " + address);
+            }
+        }
+        if (digits == 0 || dots != 3) {
+            throw new IllegalArgumentException("Invalid IPv4 address " + address);
+        }
+        return (result << 8) | octet;
+    }
+
+    /** Writes an int address as a dotted quad. */
+    public static String formatAddress(int address) {
+        return (address >>> 24) + "." + ((address >>> 16) & 0xff) + "." + ((address >>> 8) & 0xff) + "."
+                + (address & 0xff);
+    }
+
+    public static int mask(int prefixLength) {
+        return prefixLength == 0 ? 0 : -1 << (ADDRESS_BITS - prefixLength);
+    }
+
+    public boolean contains(int address) {
+        return ((address ^ network) & mask(prefixLength)) == 0;
+    }
+
+    @Override
+    public String toString() {
+        String address = formatAddress(network);
+        return prefixLength == ADDRESS_BITS ? address : address + "/" + prefixLength;
+    }
+}
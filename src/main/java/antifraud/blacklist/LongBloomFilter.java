@@ -0,0 +1,48 @@
+package antifraud.blacklist;
+
+/**
+ * Bloom filter over {@code long} keys, sized for about 1% false positives at its expected capacity. Bits are
+ * never cleared, so callers rebuild the filter once enough keys have been removed or added beyond capacity.
+ */
+final class LongBloomFilter {
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+
+    private final long[] bits;
+    private final int capacity;
+
+    LongBloomFilter(int capacity) {
+        this.capacity = Math.max(capacity, 64);
+        long bitCount = Long.highestOneBit((long) this.capacity * BITS_PER_KEY - 1) << 1;
+        bits = new long[(int) (bitCount >>> 6)];
+    }
+
+    void put(long key) {
+        long hash = LongHashSet.mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long mask = bits.length * 64L - 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = (h1 + (long) i * h2) & mask;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(long key) {
+        long hash = LongHashSet.mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long mask = bits.length * 64L - 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = (h1 + (long) i * h2) & mask;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
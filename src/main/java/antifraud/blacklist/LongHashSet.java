@@ -0,0 +1,126 @@
+package antifraud.blacklist;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing set of non-zero {@code long} keys (zero marks an empty slot). Linear probing at a load
+ * factor of at most one half, backward-shift deletion, no boxing. Not thread-safe; readers may probe a stale
+ * table but never run out of bounds, which lets callers use optimistic locking.
+ */
+final class LongHashSet {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+    private int size;
+
+    LongHashSet(int expectedSize) {
+        table = new long[capacityFor(expectedSize)];
+    }
+
+    boolean contains(long key) {
+        long[] t = table;
+        int mask = t.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long k = t[i];
+            if (k == key) {
+                return true;
+            }
+            if (k == 0) {
+                return false;
+            }
+        }
+    }
+
+    boolean add(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Zero is reserved for empty slots");
+        }
+        if ((size + 1) * 2 > table.length) {
+            resize(table.length * 2);
+        }
+        int mask = table.length - 1;
+        int i = slot(key, mask);
+        while (table[i] != 0) {
+            if (table[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = key;
+        size++;
+        return true;
+    }
+
+    boolean remove(long key) {
+        int mask = table.length - 1;
+        int i = slot(key, mask);
+        while (table[i] != key) {
+            if (table[i] == 0) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        // shift following entries of the probe chain back into the hole
+        for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+            int home = slot(table[j], mask);
+            boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+            if (movable) {
+                table[i] = table[j];
+                i = j;
+            }
+        }
+        table[i] = 0;
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(LongConsumer action) {
+        for (long key : table) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        long[] resized = new long[capacity];
+        int mask = capacity - 1;
+        for (long key : old) {
+            if (key != 0) {
+                int i = slot(key, mask);
+                while (resized[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                resized[i] = key;
+            }
+        }
+        table = resized;
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) mix(key) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // MurmurHash3 64-bit finalizer
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,145 @@
+package antifraud.blacklist;
+
+import antifraud.repository.StolenCardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory copy of the stolen-card list for the scoring path. Card numbers of up to 19 digits without a leading
+ * zero are packed into an unsigned {@code long} and kept in a primitive hash set behind a Bloom filter, so the
+ * usual "not stolen" answer costs a few bit tests and no allocation. Any other number is kept as a string.
+ * Loaded from the repository on startup and updated write-through by the service.
+ */
+@Component
+public class StolenCardIndex {
+    static final long NOT_PACKABLE = 0L;
+    private static final int MAX_PACKED_DIGITS = 19;
+
+    private final StampedLock lock = new StampedLock();
+    private final Set<String> unpackedNumbers = new HashSet<>();
+    private LongHashSet packedNumbers;
+    private LongBloomFilter filter;
+    private int removedSinceRebuild;
+
+    @Autowired
+    public StolenCardIndex(StolenCardRepository repository) {
+        List<String> numbers = repository.findAllNumbers();
+        packedNumbers = new LongHashSet(numbers.size());
+        numbers.forEach(this::addUnlocked);
+        rebuildFilter();
+    }
+
+    public boolean contains(String number) {
+        long packed = pack(number);
+        if (packed == NOT_PACKABLE) {
+            long stamp = lock.readLock();
+            try {
+                return unpackedNumbers.contains(number);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        long stamp = lock.tryOptimisticRead();
+        boolean found = containsPacked(packed);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = containsPacked(packed);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    public void add(String number) {
+        long stamp = lock.writeLock();
+        try {
+            addUnlocked(number);
+            if (packedNumbers.size() > filter.capacity()) {
+                rebuildFilter();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(String number) {
+        long stamp = lock.writeLock();
+        try {
+            long packed = pack(number);
+            if (packed == NOT_PACKABLE) {
+                unpackedNumbers.remove(number);
+            } else if (packedNumbers.remove(packed) && ++removedSinceRebuild > filter.capacity() / 2) {
+                // removed keys leave their bits behind and slowly raise the false-positive rate
+                rebuildFilter();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            unpackedNumbers.clear();
+            packedNumbers = new LongHashSet(0);
+            rebuildFilter();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return packedNumbers.size() + unpackedNumbers.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // returns the digits as an unsigned long (10^19 - 1 < 2^64), or NOT_PACKABLE if that would not be unique
+    static long pack(String number) {
+        int length = number.length();
+        if (length == 0 || length > MAX_PACKED_DIGITS || number.charAt(0) == '0') {
+            return NOT_PACKABLE;
+        }
+        long packed = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = number.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_PACKABLE;
+            }
+            packed = packed * 10 + digit;
+        }
+        return packed;
+    }
+
+    private boolean containsPacked(long packed) {
+        LongBloomFilter currentFilter = filter;
+        LongHashSet currentNumbers = packedNumbers;
+        return currentFilter.mightContain(packed) && currentNumbers.contains(packed);
+    }
+
+    private void addUnlocked(String number) {
+        long packed = pack(number);
+        if (packed == NOT_PACKABLE) {
+            unpackedNumbers.add(number);
+        } else if (packedNumbers.add(packed) && filter != null) {
+            filter.put(packed);
+        }
+    }
+
+    private void rebuildFilter() {
+        LongBloomFilter rebuilt = new LongBloomFilter(packedNumbers.size() * 2);
+        packedNumbers.forEach(rebuilt::put);
+        filter = rebuilt;
+        removedSinceRebuild = 0;
+    }
+}
@@ -0,0 +1,180 @@
+package antifraud.blacklist;
+
+import antifraud.repository.SuspiciousIpRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory copy of the suspicious-IP list for the scoring path: a path-compressed binary radix trie over 32-bit
+ * addresses holding single addresses and CIDR blocks alike. A lookup follows at most one node per distinct
+ * prefix length on the address's path and answers whether any stored block covers it. Loaded from the
+ * repository on startup and updated in place by the service.
+ */
+@Component
+public class SuspiciousIpIndex {
+    private final StampedLock lock = new StampedLock();
+    private final Node root = new Node(0, 0, false);
+    private int size;
+
+    @Autowired
+    public SuspiciousIpIndex(SuspiciousIpRepository repository) {
+        repository.findAllIps().forEach(ip -> add(IpRange.parse(ip)));
+    }
+
+    public boolean contains(String ip) {
+        int address = IpRange.parseAddress(ip);
+        long stamp = lock.tryOptimisticRead();
+        boolean found = matches(address);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = matches(address);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    public void add(IpRange range) {
+        long stamp = lock.writeLock();
+        try {
+            insert(range.network(), range.prefixLength());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(IpRange range) {
+        long stamp = lock.writeLock();
+        try {
+            delete(range.network(), range.prefixLength());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            root.terminal = false;
+            root.children[0] = null;
+            root.children[1] = null;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean matches(int address) {
+        Node node = root;
+        // prefix lengths strictly increase along a path; the bound also guards optimistic reads of a changing trie
+        for (int depth = 0; node != null && depth <= IpRange.ADDRESS_BITS; depth++) {
+            if (!node.covers(address, node.length)) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+            if (node.length == IpRange.ADDRESS_BITS) {
+                return false;
+            }
+            node = node.children[bit(address, node.length)];
+        }
+        return false;
+    }
+
+    private void insert(int key, int length) {
+        Node node = root;
+        while (node.length < length) {
+            int slot = bit(key, node.length);
+            Node child = node.children[slot];
+            if (child == null) {
+                node.children[slot] = new Node(key, length, true);
+                size++;
+                return;
+            }
+            int common = Math.min(Math.min(child.length, length), Integer.numberOfLeadingZeros(child.key ^ key));
+            if (common < child.length) {
+                // split the compressed edge at the first differing bit
+                Node split = new Node(key, common, common == length);
+                split.children[bit(child.key, common)] = child;
+                if (common < length) {
+                    split.children[bit(key, common)] = new Node(key, length, true);
+                }
+                node.children[slot] = split;
+                size++;
+                return;
+            }
+            node = child;
+        }
+        if (!node.terminal) {
+            node.terminal = true;
+            size++;
+        }
+    }
+
+    private void delete(int key, int length) {
+        Node grandparent = null;
+        Node parent = null;
+        Node node = root;
+        while (node != null && node.length < length && node.covers(key, node.length)) {
+            grandparent = parent;
+            parent = node;
+            node = node.children[bit(key, node.length)];
+        }
+        if (node == null || node.length != length || node.key != key || !node.terminal) {
+            return;
+        }
+        node.terminal = false;
+        size--;
+        if (parent == null) {
+            return;
+        }
+        compact(parent, node);
+        if (grandparent != null) {
+            compact(grandparent, parent);
+        }
+    }
+
+    // unlinks a non-terminal node with no children, or replaces one with a single child by that child
+    private static void compact(Node parent, Node node) {
+        if (node.terminal || (node.children[0] != null && node.children[1] != null)) {
+            return;
+        }
+        parent.children[bit(node.key, parent.length)] =
+                node.children[0] != null ? node.children[0] : node.children[1];
+    }
+
+    private static int bit(int address, int index) {
+        return (address >>> (IpRange.ADDRESS_BITS - 1 - index)) & 1;
+    }
+
+    private static final class Node {
+        private final int key;
+        private final int length;
+        private final Node[] children = new Node[2];
+        private boolean terminal;
+
+        private Node(int key, int length, boolean terminal) {
+            this.key = key & IpRange.mask(length);
+            this.length = length;
+            this.terminal = terminal;
+        }
+
+        private boolean covers(int address, int prefixLength) {
+            return ((address ^ key) & IpRange.mask(prefixLength)) == 0;
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package antifraud.configuration;
 
+import antifraud.limits.LimitSnapshot;
+import antifraud.persistence.TransactionLimitMigration;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Optional;
+
 @Configuration
 public class DefaultConfiguration {
+    // limits learned before they were kept per merchant and region take precedence over the fixed defaults
     @Bean
-    public Long defaultMaxAllowed() {
-        return 200L;
+    public Long defaultMaxAllowed(ObjectProvider<TransactionLimitMigration> migration) {
+        return legacyLimits(migration).map(LimitSnapshot::maxAllowed).orElse(200L);
     }
 
     @Bean
-    public Long defaultMaxManual() {
-        return 1500L;
+    public Long defaultMaxManual(ObjectProvider<TransactionLimitMigration> migration) {
+        return legacyLimits(migration).map(LimitSnapshot::maxManual).orElse(1500L);
+    }
+
+    private static Optional<LimitSnapshot> legacyLimits(ObjectProvider<TransactionLimitMigration> migration) {
+        TransactionLimitMigration available = migration.getIfAvailable();
+        return available == null ? Optional.empty() : available.legacyLimits();
     }
 }
@@ -0,0 +1,33 @@
+package antifraud.configuration;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fast-start profile: springdoc's beans are only created when the API docs or Swagger UI are first requested,
+ * instead of at startup. Covers beans of springdoc classes and beans declared by springdoc's configurations.
+ */
+@Component
+@Profile("faststart")
+public class LazyApiDocsPostProcessor implements BeanFactoryPostProcessor {
+    private static final String SPRINGDOC_PACKAGE = "org.springdoc.";
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (isSpringdoc(definition.getBeanClassName()) || definition.getFactoryBeanName() != null &&
+                    beanFactory.containsBeanDefinition(definition.getFactoryBeanName()) &&
+                    isSpringdoc(beanFactory.getBeanDefinition(definition.getFactoryBeanName()).getBeanClassName())) {
+                definition.setLazyInit(true);
+            }
+        }
+    }
+
+    private static boolean isSpringdoc(String className) {
+        return className != null && className.startsWith(SPRINGDOC_PACKAGE);
+    }
+}
@@ -16,6 +16,12 @@ import org.springframework.context.annotation.Configuration;
                 name = "basicAuth",
                 type = SecuritySchemeType.HTTP,
                 scheme = "basic"
+        ),
+        @SecurityScheme(
+                name = "bearerAuth",
+                type = SecuritySchemeType.HTTP,
+                scheme = "bearer",
+                description = "Access token from POST /api/auth/token"
         )
 })
 public class OpenApiConfig {
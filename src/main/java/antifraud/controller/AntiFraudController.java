@@ -4,38 +4,64 @@ import antifraud.dto.*;
 import antifraud.exception.ErrorResponse;
 import antifraud.exception.ValidationErrorResponse;
 import antifraud.service.AntiFraudService;
+import antifraud.streaming.TransactionHistoryStreamer;
+import antifraud.streaming.TransactionStreamProcessor;
 import antifraud.validations.CardNumberConstraint;
+import antifraud.warmup.WarmUpRunner;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/antifraud")
 @Validated
 public class AntiFraudController {
+    static final int MAX_BATCH_SIZE = 1000;
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final AntiFraudService service;
+    private final TransactionStreamProcessor streamProcessor;
+    private final TransactionHistoryStreamer historyStreamer;
 
     @Autowired
-    public AntiFraudController(AntiFraudService service) {
+    public AntiFraudController(AntiFraudService service, TransactionStreamProcessor streamProcessor,
+                               TransactionHistoryStreamer historyStreamer) {
         this.service = service;
+        this.streamProcessor = streamProcessor;
+        this.historyStreamer = historyStreamer;
     }
 
     @Operation(
             summary = "Post a transaction",
             description = "Submits a transaction for fraud analysis (Role: MERCHANT)",
-            security = @SecurityRequirement(name = "basicAuth"))
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(
@@ -49,14 +75,66 @@ public class AntiFraudController {
                     ))
     })
     @PostMapping("/transaction")
-    public PostTransactionOutDto postTransaction(@Valid @RequestBody PostTransactionInDto postTransactionInDto) {
-        return service.postTransaction(postTransactionInDto);
+    public PostTransactionOutDto postTransaction(@Valid @RequestBody PostTransactionInDto postTransactionInDto,
+                                                 Principal principal) {
+        // synthetic transactions of the start-up warm-up are decided on, but not stored
+        if (WarmUpRunner.isDryRun(principal)) {
+            return service.scoreTransaction(postTransactionInDto, principal.getName());
+        }
+        return service.postTransaction(postTransactionInDto, principal.getName());
+    }
+
+    @Operation(
+            summary = "Post transactions",
+            description = "Submits up to " + MAX_BATCH_SIZE + " transactions for fraud analysis in one request. " +
+                    "Decisions are returned in input order; each transaction is checked as if the preceding ones " +
+                    "had been posted individually (Role: MERCHANT)",
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = PostTransactionOutDto[].class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Validation failed for request parameter",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ValidationErrorResponse.class)
+                    ))
+    })
+    @PostMapping("/transactions")
+    public PostTransactionOutDto[] postTransactions(@RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE)
+                                                    List<@Valid @NotNull PostTransactionInDto> postTransactionInDtos,
+                                                    Principal principal) {
+        return service.postTransactions(postTransactionInDtos, principal.getName());
+    }
+
+    @Operation(
+            summary = "Stream transactions",
+            description = "Submits newline-delimited transactions (NDJSON) for fraud analysis and streams one " +
+                    "result per line back as each transaction is checked. A line that cannot be parsed or " +
+                    "validated is answered with an error line and does not end the stream (Role: MERCHANT)",
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(oneOf = {PostTransactionOutDto.class, TransactionStreamErrorDto.class})
+                    ))
+    })
+    @PostMapping(value = "/transactions/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void postTransactionStream(InputStream body, HttpServletResponse response, Principal principal)
+            throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        streamProcessor.process(body, response.getOutputStream(), principal.getName());
     }
 
     @Operation(
             summary = "Send feedback",
             description = "Submits feedback on a transaction's validity (Role: SUPPORT)",
-            security = @SecurityRequirement(name = "basicAuth"))
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(
@@ -84,10 +162,37 @@ public class AntiFraudController {
         return service.updateTransactionFeedback(feedback);
     }
 
+    @Operation(
+            summary = "Send feedback in bulk",
+            description = "Submits feedback on up to " + MAX_BATCH_SIZE + " transactions in one request. Items " +
+                    "are applied in order and answered with one status each: 200 with the updated transaction, " +
+                    "or the 404, 409 or 422 error the single-item endpoint would return (Role: SUPPORT)",
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = TransactionFeedbackStatusDto[].class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Validation failed for request parameter",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ValidationErrorResponse.class)
+                    ))
+    })
+    @PutMapping("/transactions")
+    public TransactionFeedbackStatusDto[] uploadTransactionFeedbacks(@RequestBody @NotEmpty
+                                                                     @Size(max = MAX_BATCH_SIZE)
+                                                                     List<@Valid @NotNull UpdateTransactionFeedback>
+                                                                             feedbacks) {
+        return service.updateTransactionFeedbacks(feedbacks);
+    }
+
     @Operation(
             summary = "Transaction history",
-            description = "Retrieves the history of processed transactions (Role: SUPPORT)",
-            security = @SecurityRequirement(name = "basicAuth"))
+            description = "Retrieves the whole history of processed transactions, ordered by id. The response is " +
+                    "streamed from the database as it is written (Role: SUPPORT)",
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(
@@ -96,14 +201,40 @@ public class AntiFraudController {
                     ))
     })
     @GetMapping("/history")
-    public TransactionOutDto[] getTransactionHistory() {
-        return service.getTransactionHistory();
+    public void getTransactionHistory(HttpServletResponse response) throws IOException {
+        // Jackson writes UTF-8, the default encoding of application/json
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        historyStreamer.writeHistory(response.getOutputStream());
+    }
+
+    @Operation(
+            summary = "Transaction history page",
+            description = "Retrieves up to limit transactions with an id greater than afterId, ordered by id. Pass " +
+                    "the last transactionId of a page as afterId to get the next one (Role: SUPPORT)",
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = TransactionOutDto[].class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Validation failed for request parameter",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ValidationErrorResponse.class)
+                    ))
+    })
+    @GetMapping(value = "/history", params = "limit")
+    public TransactionOutDto[] getTransactionHistoryPage(
+            @RequestParam(value = "afterId", defaultValue = "0") @Min(0) long afterId,
+            @RequestParam("limit") @Min(1) @Max(MAX_PAGE_SIZE) int limit) {
+        return service.getTransactionHistory(afterId, limit);
     }
 
     @Operation(
             summary = "Transaction history by card",
             description = "Retrieves transaction history for a specific card number (Role: SUPPORT)",
-            security = @SecurityRequirement(name = "basicAuth"))
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(
@@ -122,15 +253,107 @@ public class AntiFraudController {
                     ))
     })
     @GetMapping("/history/{number}")
-    public TransactionOutDto[] getTransactionHistoryByNumber(@PathVariable("number") @CardNumberConstraint String number) {
+    public void getTransactionHistoryByNumber(@PathVariable("number") @CardNumberConstraint String number,
+                                              HttpServletResponse response) throws IOException {
         //@LuhnCheck  (For demo purposes, use a custom constraint.)
-        return service.getTransactionHistoryByNumber(number);
+        // Jackson writes UTF-8, the default encoding of application/json
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        historyStreamer.writeHistoryByNumber(number, response.getOutputStream());
+    }
+
+    @Operation(
+            summary = "Transaction history page by card",
+            description = "Retrieves up to limit transactions of a specific card number with an id greater than " +
+                    "afterId, ordered by id. Pass the last transactionId of a page as afterId to get the next one " +
+                    "(Role: SUPPORT)",
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = TransactionOutDto[].class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Validation failed for request parameter",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ValidationErrorResponse.class)
+                    )),
+            @ApiResponse(responseCode = "404", description = "Card number not found",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    ))
+    })
+    @GetMapping(value = "/history/{number}", params = "limit")
+    public TransactionOutDto[] getTransactionHistoryPageByNumber(
+            @PathVariable("number") @CardNumberConstraint String number,
+            @RequestParam(value = "afterId", defaultValue = "0") @Min(0) long afterId,
+            @RequestParam("limit") @Min(1) @Max(MAX_PAGE_SIZE) int limit) {
+        return service.getTransactionHistoryByNumber(number, afterId, limit);
+    }
+
+    @Operation(
+            summary = "Search transactions",
+            description = "Retrieves up to limit transactions matching all given filters with an id greater than " +
+                    "afterId, ordered by id. Only the fields listed in fields are returned, plus transactionId; " +
+                    "without fields, all are returned. Pass the last transactionId of a page as afterId to get " +
+                    "the next one (Role: SUPPORT)",
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = TransactionOutDto[].class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Validation failed for request parameter",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ValidationErrorResponse.class)
+                    ))
+    })
+    @GetMapping("/transactions/search")
+    public List<Map<String, Object>> searchTransactions(
+            @Valid @ParameterObject TransactionSearchCriteria criteria,
+            @RequestParam(value = "fields", required = false)
+            @Parameter(description = "Fields to return, comma-separated", example = "amount,date,result")
+            List<@Pattern(regexp = TransactionField.NAMES) String> fields,
+            @RequestParam(value = "afterId", defaultValue = "0") @Min(0) long afterId,
+            @RequestParam(value = "limit", defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int limit) {
+        return service.searchTransactions(criteria, fields, afterId, limit);
+    }
+
+    @Operation(
+            summary = "Get hourly totals",
+            description = "Retrieves the number and amount sum of transactions per hour, region, result and " +
+                    "feedback for the hours from from up to to, both rounded down to the start of their hour. " +
+                    "Hours whose transactions have been archived are included (Role: SUPPORT)",
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = HourlyTotalsDto[].class)
+                    )),
+            @ApiResponse(responseCode = "400", description = "Validation failed for request parameter",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ValidationErrorResponse.class)
+                    ))
+    })
+    @GetMapping("/transactions/hourly")
+    public List<HourlyTotalsDto> getHourlyTotals(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Earliest hour (inclusive)", example = "2024-10-01T00:00:00")
+            LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Latest hour (exclusive)", example = "2024-10-02T00:00:00") LocalDateTime to) {
+        return service.getHourlyTotals(from, to);
     }
 
     @Operation(
             summary = "Add suspicious IP",
-            description = "Adds an IP address to the suspicious-IPs list (Role: SUPPORT)",
-            security = @SecurityRequirement(name = "basicAuth"))
+            description = "Adds an IP address or CIDR block to the suspicious-IPs list (Role: SUPPORT)",
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(
@@ -156,7 +379,7 @@ public class AntiFraudController {
     @Operation(
             summary = "Remove suspicious IP",
             description = "Removes an IP address from the suspicious-IP list (Role: SUPPORT)",
-            security = @SecurityRequirement(name = "basicAuth"))
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(
@@ -181,10 +404,41 @@ public class AntiFraudController {
         return Collections.singletonMap("status", "IP %s successfully removed!".formatted(ip));
     }
 
+    @Operation(
+            summary = "Remove suspicious IP range",
+            description = "Removes a CIDR block, given as network address and prefix length, from the suspicious-IP " +
+                    "list (Role: SUPPORT)",
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(example = "{\"status\":\"IP 192.168.0.0/24 successfully removed!\"}")
+                    )),
+            @ApiResponse(responseCode = "400", description = "Validation failed for request parameter",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ValidationErrorResponse.class)
+                    )),
+            @ApiResponse(responseCode = "404", description = "IP not found",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    ))
+    })
+    @DeleteMapping("/suspicious-ip/{ip}/{prefixLength}")
+    public Map<String, String> deleteSuspiciousIpRange(
+            @PathVariable("ip") @Pattern(regexp = "^((25[0-5]|(2[0-4]|1\\d|[1-9]|)\\d)\\.?\\b){4}$") String ip,
+            @PathVariable("prefixLength") @Pattern(regexp = "3[0-2]|[12]?\\d") String prefixLength) {
+        String range = ip + "/" + prefixLength;
+        service.deleteSuspiciousIp(range);
+        return Collections.singletonMap("status", "IP %s successfully removed!".formatted(range));
+    }
+
     @Operation(
             summary = "List suspicious IPs",
             description = "Retrieves the list of suspicious IP addresses (Role: SUPPORT)",
-            security = @SecurityRequirement(name = "basicAuth"))
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(
@@ -200,7 +454,7 @@ public class AntiFraudController {
     @Operation(
             summary = "Add stolen card",
             description = "Adds a card number to the stolen cards list (Role: SUPPORT)",
-            security = @SecurityRequirement(name = "basicAuth"))
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(
@@ -226,7 +480,7 @@ public class AntiFraudController {
     @Operation(
             summary = "Remove stolen card",
             description = "Removes a card number from the stolen cards list (Role: SUPPORT)",
-            security = @SecurityRequirement(name = "basicAuth"))
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(
@@ -253,7 +507,7 @@ public class AntiFraudController {
     @Operation(
             summary = "List stolen cards",
             description = "Retrieves the list of stolen cards (Role: SUPPORT)",
-            security = @SecurityRequirement(name = "basicAuth"))
+            security = {@SecurityRequirement(name = "basicAuth"), @SecurityRequirement(name = "bearerAuth")})
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success",
                     content = @Content(
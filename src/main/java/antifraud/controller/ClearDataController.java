@@ -1,8 +1,14 @@
 package antifraud.controller;
 
+import antifraud.blacklist.StolenCardIndex;
+import antifraud.blacklist.SuspiciousIpIndex;
+import antifraud.correlation.TransactionCorrelation;
 import antifraud.exception.ClearDataErrorException;
 import antifraud.exception.ErrorResponse;
+import antifraud.limits.TransactionLimits;
+import antifraud.persistence.TransactionWriter;
 import antifraud.repository.*;
+import antifraud.security.UserChangeListener;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,6 +20,7 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -22,19 +29,43 @@ public class ClearDataController {
     private final SuspiciousIpRepository suspiciousIpRepository;
     private final TransactionLimitRepository transactionLimitRepository;
     private final TransactionRepository transactionRepository;
+    private final TransactionArchiveRepository transactionArchiveRepository;
+    private final TransactionRollupRepository transactionRollupRepository;
     private final UserRepository userRepository;
+    private final TransactionCorrelation transactionCorrelation;
+    private final StolenCardIndex stolenCardIndex;
+    private final SuspiciousIpIndex suspiciousIpIndex;
+    private final TransactionWriter transactionWriter;
+    private final TransactionLimits transactionLimits;
+    private final List<UserChangeListener> userChangeListeners;
 
     @Autowired
     public ClearDataController(StolenCardRepository stolenCardRepository,
                                SuspiciousIpRepository suspiciousIpRepository,
                                TransactionLimitRepository transactionLimitRepository,
                                TransactionRepository transactionRepository,
-                               UserRepository userRepository) {
+                               TransactionArchiveRepository transactionArchiveRepository,
+                               TransactionRollupRepository transactionRollupRepository,
+                               UserRepository userRepository,
+                               TransactionCorrelation transactionCorrelation,
+                               StolenCardIndex stolenCardIndex,
+                               SuspiciousIpIndex suspiciousIpIndex,
+                               TransactionWriter transactionWriter,
+                               TransactionLimits transactionLimits,
+                               List<UserChangeListener> userChangeListeners) {
         this.stolenCardRepository = stolenCardRepository;
         this.suspiciousIpRepository = suspiciousIpRepository;
         this.transactionLimitRepository = transactionLimitRepository;
         this.transactionRepository = transactionRepository;
+        this.transactionArchiveRepository = transactionArchiveRepository;
+        this.transactionRollupRepository = transactionRollupRepository;
         this.userRepository = userRepository;
+        this.transactionCorrelation = transactionCorrelation;
+        this.stolenCardIndex = stolenCardIndex;
+        this.suspiciousIpIndex = suspiciousIpIndex;
+        this.transactionWriter = transactionWriter;
+        this.transactionLimits = transactionLimits;
+        this.userChangeListeners = userChangeListeners;
     }
 
     @Operation(
@@ -60,9 +91,20 @@ public class ClearDataController {
         try {
             stolenCardRepository.deleteAll();
             suspiciousIpRepository.deleteAll();
+            // before the table is cleared, so pending changes are not saved back into it
+            transactionLimits.reset();
             transactionLimitRepository.deleteAll();
+            // queued transactions must not reappear after the reset
+            transactionWriter.flush();
             transactionRepository.deleteAll();
+            transactionArchiveRepository.deleteAll();
+            transactionRollupRepository.deleteAll();
             userRepository.deleteAll();
+            // cached logins, tokens and principals of the deleted users must not stay valid
+            userChangeListeners.forEach(UserChangeListener::allUsersChanged);
+            transactionCorrelation.clear();
+            stolenCardIndex.clear();
+            suspiciousIpIndex.clear();
         } catch (Exception e) {
             throw new ClearDataErrorException();
         }
@@ -3,6 +3,7 @@ package antifraud.controller;
 import antifraud.dto.*;
 import antifraud.exception.ErrorResponse;
 import antifraud.exception.ValidationErrorResponse;
+import antifraud.security.AccessTokenService;
 import antifraud.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -16,6 +17,7 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Collections;
@@ -26,10 +28,12 @@ import java.util.Map;
 @RequestMapping("/api/auth")
 public class UserController {
     private final UserService service;
+    private final AccessTokenService accessTokenService;
 
     @Autowired
-    public UserController(UserService service) {
+    public UserController(UserService service, AccessTokenService accessTokenService) {
         this.service = service;
+        this.accessTokenService = accessTokenService;
     }
 
     @Operation(
@@ -158,4 +162,23 @@ public class UserController {
                         changeAccessDto.operation().equals("LOCK") ?
                                 "locked" : "unlocked"));
     }
+
+    @Operation(
+            summary = "Get access token",
+            description = "Exchanges Basic credentials for a short-lived access token that is accepted by all " +
+                    "/api/antifraud endpoints. It is verified without a password check or user lookup, and " +
+                    "revoked when the user is locked, deleted or given another role (Role: any)",
+            security = @SecurityRequirement(name = "basicAuth"))
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Success",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = AccessTokenDto.class)
+                    ))
+    })
+    @PostMapping("/token")
+    public AccessTokenDto createAccessToken(Authentication authentication) {
+        return new AccessTokenDto(accessTokenService.issue(authentication), "Bearer",
+                accessTokenService.ttl().toSeconds());
+    }
 }
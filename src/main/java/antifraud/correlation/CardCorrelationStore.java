@@ -0,0 +1,339 @@
+package antifraud.correlation;
+
+import antifraud.domain.Transaction;
+import antifraud.persistence.TransactionWriter;
+import antifraud.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Card-scope {@link TransactionCorrelation}: keeps the recent (region, ip, date) tuples of each card number,
+ * so a correlation check is a hash lookup plus a scan of the card's own hour instead of a table scan.
+ * <p>
+ * The store holds at most {@code antifraud.correlation.card.max-cards} cards (least recently used cards are
+ * evicted first) and cards not touched for {@code antifraud.correlation.card.idle-timeout} are dropped. Each card
+ * keeps at most {@code antifraud.correlation.card.max-events} of its latest transactions; a check whose hour
+ * reaches further back than the card's kept transactions reads the repository instead. So memory is bounded by
+ * max-cards times max-events transactions. A card that is not in the store is loaded from the repository on first
+ * use, so neither evictions nor the per-card bound ever change a decision. The load
+ * runs without holding the store's lock, so a cold card only holds up transactions on the same card, which wait
+ * for the one load in progress. Repository reads flush the {@link TransactionWriter} first, so with write-behind
+ * persistence they see queued transactions as well.
+ * Hits, misses, evictions, transactions dropped by the per-card bound and the current size are published as
+ * {@code antifraud.correlation.card.*} metrics.
+ */
+@Component
+@ConditionalOnProperty(name = "antifraud.correlation.scope", havingValue = "card")
+public class CardCorrelationStore implements TransactionCorrelation {
+    private static final Duration WINDOW = Duration.ofHours(1);
+
+    private final TransactionRepository repository;
+    private final TransactionWriter transactionWriter;
+    private final Duration retention;
+    private final int maxCards;
+    private final int maxEvents;
+    private final Duration idleTimeout;
+    private final Clock clock;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter idleEvictions;
+    private final Counter trimmedEvents;
+
+    // a lock rather than synchronized, so waiting virtual threads do not pin their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    // cards being loaded from the repository, with the transactions recorded for them in the meantime
+    private final Map<String, Load> loads = new HashMap<>();
+    // access order: the eldest entry is the least recently used card
+    private final LinkedHashMap<String, CardHistory> cards = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CardHistory> eldest) {
+            if (size() > maxCards) {
+                sizeEvictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    @Autowired
+    public CardCorrelationStore(TransactionRepository repository,
+                                TransactionWriter transactionWriter,
+                                MeterRegistry meterRegistry,
+                                @Value("${antifraud.correlation.retention:PT2H}") Duration retention,
+                                @Value("${antifraud.correlation.card.max-cards:1000000}") int maxCards,
+                                @Value("${antifraud.correlation.card.max-events:100}") int maxEvents,
+                                @Value("${antifraud.correlation.card.idle-timeout:PT1H}") Duration idleTimeout) {
+        this(repository, transactionWriter, meterRegistry, retention, maxCards, maxEvents, idleTimeout,
+                Clock.systemUTC());
+    }
+
+    CardCorrelationStore(TransactionRepository repository, TransactionWriter transactionWriter,
+                         MeterRegistry meterRegistry, Duration retention, int maxCards, int maxEvents,
+                         Duration idleTimeout, Clock clock) {
+        if (retention.compareTo(WINDOW) < 0) {
+            throw new IllegalArgumentException("Correlation retention must cover at least " + WINDOW);
+        }
+        if (maxCards < 1) {
+            throw new IllegalArgumentException("Correlation store must hold at least one card");
+        }
+        if (maxEvents < 1) {
+            throw new IllegalArgumentException("Correlation store must hold at least one transaction per card");
+        }
+        this.repository = repository;
+        this.transactionWriter = transactionWriter;
+        this.retention = retention;
+        this.maxCards = maxCards;
+        this.maxEvents = maxEvents;
+        this.idleTimeout = idleTimeout;
+        this.clock = clock;
+        hits = meterRegistry.counter("antifraud.correlation.card.hits");
+        misses = meterRegistry.counter("antifraud.correlation.card.misses");
+        sizeEvictions = meterRegistry.counter("antifraud.correlation.card.evictions", "cause", "size");
+        idleEvictions = meterRegistry.counter("antifraud.correlation.card.evictions", "cause", "idle");
+        trimmedEvents = meterRegistry.counter("antifraud.correlation.card.trimmed");
+        Gauge.builder("antifraud.correlation.card.size", this, CardCorrelationStore::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public CorrelationCounts countDistinctExcluding(String number, LocalDateTime date, String region, String ip) {
+        return count(number, date, Set.of(region), Set.of(ip));
+    }
+
+    @Override
+    public CorrelationCounts countDistinctExcluding(String number, LocalDateTime date, String region, String ip,
+                                                    List<Transaction> pending) {
+        PendingValues values = PendingValues.of(pending, number, date, region, ip);
+        return values.addTo(count(number, date, values.excludedRegions(), values.excludedIps()));
+    }
+
+    // even reading a cached card would mark it as recently used, so a peek always asks the repository
+    @Override
+    public CorrelationCounts peekDistinctExcluding(String number, LocalDateTime date, String region, String ip) {
+        transactionWriter.flush();
+        return repository.countDistinctForNumberInPeriodExcluding(number, date.minus(WINDOW), date, Set.of(region),
+                Set.of(ip));
+    }
+
+    private CorrelationCounts count(String number, LocalDateTime date, Set<String> excludedRegions,
+                                    Set<String> excludedIps) {
+        CardHistory history = lookup(number, date);
+        lock.lock();
+        try {
+            if (!date.minus(WINDOW).isBefore(history.loadedFrom)) {
+                return history.countDistinctExcluding(date, excludedRegions, excludedIps);
+            }
+        } finally {
+            lock.unlock();
+        }
+        // older than the card's history: the query runs without the lock
+        transactionWriter.flush();
+        return repository.countDistinctForNumberInPeriodExcluding(number, date.minus(WINDOW), date,
+                excludedRegions, excludedIps);
+    }
+
+    @Override
+    public void record(Transaction transaction) {
+        lock.lock();
+        try {
+            Event event = new Event(transaction.getDate(), transaction.getRegion(), transaction.getIp());
+            CardHistory history = cards.get(transaction.getNumber());
+            if (history == null) {
+                Load load = loads.get(transaction.getNumber());
+                if (load != null) {
+                    // the load may have read the repository before the transaction was stored
+                    load.recorded.add(event);
+                }
+                // otherwise the repository already holds the transaction; it is picked up when the card is loaded
+                return;
+            }
+            history.lastAccess = clock.instant();
+            history.add(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            cards.clear();
+            // loads in progress are not added to the store
+            loads.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return cards.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the card's history; on a miss it is loaded without holding the lock, and concurrent misses on the same card
+    // share one load
+    private CardHistory lookup(String number, LocalDateTime date) {
+        Load load;
+        boolean loading;
+        lock.lock();
+        try {
+            Instant now = clock.instant();
+            evictIdle(now);
+            CardHistory history = cards.get(number);
+            if (history != null) {
+                hits.increment();
+                history.lastAccess = now;
+                return history;
+            }
+            misses.increment();
+            load = loads.get(number);
+            loading = load == null;
+            if (loading) {
+                load = new Load();
+                loads.put(number, load);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!loading) {
+            return load.await();
+        }
+
+        CardHistory history;
+        try {
+            history = load(number, date);
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                loads.remove(number, load);
+            } finally {
+                lock.unlock();
+            }
+            load.result.completeExceptionally(e);
+            throw e;
+        }
+        lock.lock();
+        try {
+            load.recorded.forEach(history::add);
+            history.lastAccess = clock.instant();
+            if (loads.remove(number, load)) {
+                cards.put(number, history);
+            }
+        } finally {
+            lock.unlock();
+        }
+        load.result.complete(history);
+        return history;
+    }
+
+    private CardHistory load(String number, LocalDateTime date) {
+        CardHistory history = new CardHistory(date.minus(retention));
+        transactionWriter.flush();
+        repository.findAllByNumberAndDateGreaterThanEqual(number, history.loadedFrom)
+                .forEach(t -> history.add(new Event(t.getDate(), t.getRegion(), t.getIp())));
+        return history;
+    }
+
+    private void evictIdle(Instant now) {
+        Instant idleBefore = now.minus(idleTimeout);
+        Iterator<CardHistory> iterator = cards.values().iterator();
+        while (iterator.hasNext() && iterator.next().lastAccess.isBefore(idleBefore)) {
+            iterator.remove();
+            idleEvictions.increment();
+        }
+    }
+
+    private record Event(LocalDateTime date, String region, String ip) {
+    }
+
+    private static final class Load {
+        private final CompletableFuture<CardHistory> result = new CompletableFuture<>();
+        private final List<Event> recorded = new ArrayList<>();
+
+        private CardHistory await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+    }
+
+    private final class CardHistory {
+        private final List<Event> events = new ArrayList<>(4);
+        // events holds every transaction of the card dated on or after this point
+        private LocalDateTime loadedFrom;
+        private LocalDateTime latest;
+        private Instant lastAccess = Instant.MIN;
+
+        private CardHistory(LocalDateTime loadedFrom) {
+            this.loadedFrom = loadedFrom;
+        }
+
+        private void add(Event event) {
+            if (event.date().isBefore(loadedFrom)) {
+                return;
+            }
+            events.add(event);
+            if (latest == null || event.date().isAfter(latest)) {
+                latest = event.date();
+                LocalDateTime retainedFrom = latest.minus(retention);
+                if (retainedFrom.isAfter(loadedFrom)) {
+                    events.removeIf(e -> e.date().isBefore(retainedFrom));
+                    loadedFrom = retainedFrom;
+                }
+            }
+            if (events.size() > maxEvents) {
+                trim();
+            }
+        }
+
+        // drops the oldest events down to maxEvents; events sharing the date of the last dropped one go with it,
+        // so the history still holds every transaction dated on or after loadedFrom
+        private void trim() {
+            events.sort(Comparator.comparing(Event::date));
+            LocalDateTime droppedUpTo = events.get(events.size() - maxEvents - 1).date();
+            int before = events.size();
+            events.removeIf(e -> !e.date().isAfter(droppedUpTo));
+            loadedFrom = droppedUpTo.plusNanos(1);
+            trimmedEvents.increment(before - events.size());
+        }
+
+        private CorrelationCounts countDistinctExcluding(LocalDateTime date, Set<String> excludedRegions,
+                                                         Set<String> excludedIps) {
+            LocalDateTime from = date.minus(WINDOW);
+            Set<String> regions = new HashSet<>();
+            Set<String> ips = new HashSet<>();
+            for (Event event : events) {
+                if (!event.date().isBefore(from) && !event.date().isAfter(date)) {
+                    regions.add(event.region());
+                    ips.add(event.ip());
+                }
+            }
+            regions.removeAll(excludedRegions);
+            ips.removeAll(excludedIps);
+            return new CorrelationCounts((long) regions.size(), (long) ips.size());
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package antifraud.correlation;
+
+/**
+ * Result of a correlation check: distinct regions and distinct IPs seen in the hour up to a transaction,
+ * not counting the transaction's own region and IP.
+ */
+public record CorrelationCounts(Long regions, Long ips) {
+}
@@ -0,0 +1,203 @@
+package antifraud.correlation;
+
+import antifraud.domain.Transaction;
+import antifraud.persistence.TransactionWriter;
+import antifraud.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Global-scope {@link TransactionCorrelation}: an in-memory replacement for the region/IP correlation queries
+ * of {@link TransactionRepository}.
+ * <p>
+ * Transactions are kept in time buckets (one bucket per distinct transaction date) covering the retention
+ * horizon behind the latest date seen. For the trailing hour of that latest date, per-region and per-IP counts
+ * are maintained incrementally, so the common case (transactions arriving in date order) is answered in O(1)
+ * and expired buckets are evicted as the window moves forward. Out-of-order dates inside the horizon are
+ * answered by scanning the buckets of their own hour; dates outside the horizon fall back to the repository.
+ * The window is rebuilt from the repository on startup. Both repository reads flush the {@link TransactionWriter}
+ * first, so with write-behind persistence they see queued transactions as well.
+ */
+@Component
+@ConditionalOnProperty(name = "antifraud.correlation.scope", havingValue = "global", matchIfMissing = true)
+public class CorrelationWindow implements TransactionCorrelation {
+    private static final Duration WINDOW = Duration.ofHours(1);
+
+    private final TransactionRepository repository;
+    private final TransactionWriter transactionWriter;
+    private final Duration retention;
+
+    // a lock rather than synchronized, so waiting virtual threads do not pin their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final NavigableMap<LocalDateTime, List<Event>> buckets = new TreeMap<>();
+    private final Map<String, Integer> regionCounts = new HashMap<>();
+    private final Map<String, Integer> ipCounts = new HashMap<>();
+    // latest date seen; the counts above cover [head - WINDOW, head]
+    private LocalDateTime head;
+    private LocalDateTime windowStart;
+    // buckets hold every transaction dated on or after this point
+    private LocalDateTime retainedFrom = LocalDateTime.MIN;
+
+    @Autowired
+    public CorrelationWindow(TransactionRepository repository,
+                             TransactionWriter transactionWriter,
+                             @Value("${antifraud.correlation.retention:PT2H}") Duration retention) {
+        if (retention.compareTo(WINDOW) < 0) {
+            throw new IllegalArgumentException("Correlation retention must cover at least " + WINDOW);
+        }
+        this.repository = repository;
+        this.transactionWriter = transactionWriter;
+        this.retention = retention;
+        rebuild();
+    }
+
+    @Override
+    public CorrelationCounts countDistinctExcluding(String number, LocalDateTime date, String region, String ip) {
+        return count(date, Set.of(region), Set.of(ip), true);
+    }
+
+    @Override
+    public CorrelationCounts countDistinctExcluding(String number, LocalDateTime date, String region, String ip,
+                                                    List<Transaction> pending) {
+        PendingValues values = PendingValues.of(pending, null, date, region, ip);
+        return values.addTo(count(date, values.excludedRegions(), values.excludedIps(), true));
+    }
+
+    @Override
+    public CorrelationCounts peekDistinctExcluding(String number, LocalDateTime date, String region, String ip) {
+        return count(date, Set.of(region), Set.of(ip), false);
+    }
+
+    // without moving the window, a date past the head is answered by a scan: the buckets still cover its hour
+    private CorrelationCounts count(LocalDateTime date, Set<String> excludedRegions, Set<String> excludedIps,
+                                    boolean moveWindow) {
+        lock.lock();
+        try {
+            if (!isBeyondHorizon(date)) {
+                if (moveWindow) {
+                    advance(date);
+                }
+                if (date.equals(head)) {
+                    return new CorrelationCounts(countExcluding(regionCounts, excludedRegions),
+                            countExcluding(ipCounts, excludedIps));
+                }
+                return scan(date, excludedRegions, excludedIps);
+            }
+        } finally {
+            lock.unlock();
+        }
+        // the query runs without the lock, so other transactions are not held up by the database
+        transactionWriter.flush();
+        return repository.countDistinctInPeriodExcluding(date.minus(WINDOW), date, excludedRegions, excludedIps);
+    }
+
+    private static long countExcluding(Map<String, Integer> counts, Set<String> excluded) {
+        long count = counts.size();
+        for (String value : excluded) {
+            if (counts.containsKey(value)) {
+                count--;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void record(Transaction transaction) {
+        lock.lock();
+        try {
+            LocalDateTime date = transaction.getDate();
+            advance(date);
+            if (date.isBefore(retainedFrom)) {
+                // queries that could see this transaction are answered by the repository anyway
+                return;
+            }
+            Event event = new Event(transaction.getRegion(), transaction.getIp());
+            buckets.computeIfAbsent(date, d -> new ArrayList<>(1)).add(event);
+            if (!date.isBefore(windowStart)) {
+                add(event);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            buckets.clear();
+            regionCounts.clear();
+            ipCounts.clear();
+            head = null;
+            windowStart = null;
+            retainedFrom = LocalDateTime.MIN;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rebuild() {
+        transactionWriter.flush();
+        clear();
+        repository.findTopByOrderByDateDesc().ifPresent(latest -> {
+            advance(latest.getDate());
+            repository.findAllByDateGreaterThanEqual(retainedFrom).forEach(this::record);
+        });
+    }
+
+    private boolean isBeyondHorizon(LocalDateTime date) {
+        return head != null && !date.isAfter(head) && date.minus(WINDOW).isBefore(retainedFrom);
+    }
+
+    // moves the window forward to date, evicting buckets that dropped out of the trailing hour or the horizon
+    private void advance(LocalDateTime date) {
+        if (head != null && !date.isAfter(head)) {
+            return;
+        }
+        LocalDateTime newWindowStart = date.minus(WINDOW);
+        if (head != null) {
+            buckets.subMap(windowStart, true, newWindowStart, false).values()
+                    .forEach(events -> events.forEach(this::remove));
+        }
+        head = date;
+        windowStart = newWindowStart;
+        LocalDateTime newRetainedFrom = date.minus(retention);
+        if (newRetainedFrom.isAfter(retainedFrom)) {
+            buckets.headMap(newRetainedFrom, false).clear();
+            retainedFrom = newRetainedFrom;
+        }
+    }
+
+    private CorrelationCounts scan(LocalDateTime date, Set<String> excludedRegions, Set<String> excludedIps) {
+        Set<String> regions = new HashSet<>();
+        Set<String> ips = new HashSet<>();
+        buckets.subMap(date.minus(WINDOW), true, date, true).values()
+                .forEach(events -> events.forEach(event -> {
+                    regions.add(event.region());
+                    ips.add(event.ip());
+                }));
+        regions.removeAll(excludedRegions);
+        ips.removeAll(excludedIps);
+        return new CorrelationCounts((long) regions.size(), (long) ips.size());
+    }
+
+    private void add(Event event) {
+        regionCounts.merge(event.region(), 1, Integer::sum);
+        ipCounts.merge(event.ip(), 1, Integer::sum);
+    }
+
+    private void remove(Event event) {
+        regionCounts.computeIfPresent(event.region(), (k, count) -> count == 1 ? null : count - 1);
+        ipCounts.computeIfPresent(event.ip(), (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    private record Event(String region, String ip) {
+    }
+}
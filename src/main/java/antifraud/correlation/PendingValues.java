@@ -0,0 +1,44 @@
+package antifraud.correlation;
+
+import antifraud.domain.Transaction;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The distinct regions and IPs of transactions that are scored but not recorded yet (the earlier items of a
+ * batch) within the hour up to a transaction's date. Recorded transactions are counted excluding these values and
+ * the transaction's own, and the pending values other than its own are added on top, so a value seen in both is
+ * counted once.
+ */
+record PendingValues(Set<String> excludedRegions, Set<String> excludedIps, long regions, long ips) {
+    private static final Duration WINDOW = Duration.ofHours(1);
+
+    /** Values of the pending transactions with the given card number, or of all of them if it is null. */
+    static PendingValues of(List<Transaction> pending, String number, LocalDateTime date, String region, String ip) {
+        Set<String> regions = new HashSet<>();
+        Set<String> ips = new HashSet<>();
+        LocalDateTime from = date.minus(WINDOW);
+        for (Transaction transaction : pending) {
+            if ((number == null || number.equals(transaction.getNumber()))
+                    && !transaction.getDate().isBefore(from) && !transaction.getDate().isAfter(date)) {
+                regions.add(transaction.getRegion());
+                ips.add(transaction.getIp());
+            }
+        }
+        regions.remove(region);
+        ips.remove(ip);
+        long pendingRegions = regions.size();
+        long pendingIps = ips.size();
+        regions.add(region);
+        ips.add(ip);
+        return new PendingValues(regions, ips, pendingRegions, pendingIps);
+    }
+
+    CorrelationCounts addTo(CorrelationCounts recorded) {
+        return new CorrelationCounts(recorded.regions() + regions, recorded.ips() + ips);
+    }
+}
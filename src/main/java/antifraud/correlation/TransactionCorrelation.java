@@ -0,0 +1,34 @@
+package antifraud.correlation;
+
+import antifraud.domain.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Answers the region/IP correlation checks of the scoring path: how many distinct regions and IPs, other than
+ * the current ones, were seen in the hour up to a transaction's date. The implementation is selected with
+ * {@code antifraud.correlation.scope}: {@code global} counts across all transactions, {@code card} only across
+ * transactions with the same card number.
+ */
+public interface TransactionCorrelation {
+    CorrelationCounts countDistinctExcluding(String number, LocalDateTime date, String region, String ip);
+
+    /**
+     * Counts as if the pending transactions had been recorded: the earlier items of a batch, which are only
+     * recorded once the batch is stored.
+     */
+    CorrelationCounts countDistinctExcluding(String number, LocalDateTime date, String region, String ip,
+                                             List<Transaction> pending);
+
+    /**
+     * Counts like {@link #countDistinctExcluding(String, LocalDateTime, String, String)} but leaves the state as
+     * it is: nothing is moved forward, evicted or cached, and no metric changes. Used by dry runs, whose
+     * transactions must leave no trace.
+     */
+    CorrelationCounts peekDistinctExcluding(String number, LocalDateTime date, String region, String ip);
+
+    void record(Transaction transaction);
+
+    void clear();
+}
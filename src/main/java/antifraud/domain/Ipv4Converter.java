@@ -0,0 +1,23 @@
+package antifraud.domain;
+
+import antifraud.blacklist.IpRange;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Persists a dotted-quad IPv4 address as its 32-bit value in an {@code INTEGER} column. Addresses from
+ * {@code 128.0.0.0} up are stored as negative numbers, which only changes their sort order.
+ */
+@Converter
+public class Ipv4Converter implements AttributeConverter<String, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(String ip) {
+        return ip == null ? null : IpRange.parseAddress(ip);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer column) {
+        return column == null ? null : IpRange.formatAddress(column);
+    }
+}
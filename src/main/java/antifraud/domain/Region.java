@@ -0,0 +1,31 @@
+package antifraud.domain;
+
+/** The regions a transaction can come from, with the code each is persisted as. */
+public enum Region {
+    EAP(1),
+    ECA(2),
+    HIC(3),
+    LAC(4),
+    MENA(5),
+    SA(6),
+    SSA(7);
+
+    private final byte code;
+
+    Region(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    public static Region fromCode(byte code) {
+        for (Region region : values()) {
+            if (region.code == code) {
+                return region;
+            }
+        }
+        throw new IllegalArgumentException("Unknown region code: " + code);
+    }
+}
@@ -0,0 +1,19 @@
+package antifraud.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/** Persists a region name as the {@code TINYINT} code of its {@link Region}. */
+@Converter
+public class RegionConverter implements AttributeConverter<String, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(String region) {
+        return region == null ? null : Region.valueOf(region).code();
+    }
+
+    @Override
+    public String convertToEntityAttribute(Byte column) {
+        return column == null ? null : Region.fromCode(column).name();
+    }
+}
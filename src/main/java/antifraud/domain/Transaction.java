@@ -12,25 +12,45 @@ import java.time.LocalDateTime;
 @Setter
 @NoArgsConstructor
 @Accessors(chain = true)
-@Table(name = "\"TRANSACTION\"")
+// (date, region) and (date, ip) cover the correlation counts, (number, id) the history pages of a card; the others
+// serve the transaction search, which pages in id order: an equality filter first, then the id. Searches on
+// feedback, amount or dates alone read the primary key in id order and stop once a page is full.
+@Table(name = "\"TRANSACTION\"", indexes = {
+        @Index(name = "idx_transaction_date_region", columnList = "date, region"),
+        @Index(name = "idx_transaction_date_ip", columnList = "date, ip"),
+        @Index(name = "idx_transaction_number_id", columnList = "number, id"),
+        @Index(name = "idx_transaction_result_id", columnList = "result, id"),
+        @Index(name = "idx_transaction_region_id", columnList = "region, id"),
+        @Index(name = "idx_transaction_ip_id", columnList = "ip, id")
+})
 @Entity
 public class Transaction {
+    public static final String ID_SEQUENCE = "transaction_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // pooled sequence ids let Hibernate batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     @Column(nullable = false)
     private Long id;
     @Column(nullable = false)
     private Long amount;
     @Column(nullable = false)
+    @Convert(converter = Ipv4Converter.class)
     String ip;
     @Column(nullable = false)
     String number;
     @Column(nullable = false)
+    @Convert(converter = RegionConverter.class)
     String region;
     @Column(nullable = false)
     LocalDateTime date;
+    // user name of the merchant that posted the transaction; null for transactions saved before it was recorded
+    String merchant;
     @Column(nullable = false)
-    String result;
+    TransactionResult result;
+    // null until support staff give feedback
     @Column(nullable = false)
-    String feedback;
+    TransactionResult feedback;
 }
@@ -0,0 +1,39 @@
+package antifraud.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// transactions moved out of TRANSACTION by the retention job, with the same columns and ids
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "\"TRANSACTION_ARCHIVE\"", indexes = {
+        @Index(name = "idx_transaction_archive_date", columnList = "date"),
+        @Index(name = "idx_transaction_archive_number_id", columnList = "number, id")
+})
+@Entity
+public class TransactionArchive {
+    @Id
+    private Long id;
+    @Column(nullable = false)
+    private Long amount;
+    @Column(nullable = false)
+    @Convert(converter = Ipv4Converter.class)
+    String ip;
+    @Column(nullable = false)
+    String number;
+    @Column(nullable = false)
+    @Convert(converter = RegionConverter.class)
+    String region;
+    @Column(nullable = false)
+    LocalDateTime date;
+    String merchant;
+    @Column(nullable = false)
+    TransactionResult result;
+    @Column(nullable = false)
+    TransactionResult feedback;
+}
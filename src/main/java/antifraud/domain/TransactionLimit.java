@@ -1,28 +1,30 @@
 package antifraud.domain;
 
-import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
-import jakarta.persistence.Id;
-import jakarta.persistence.Table;
+import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+// one row per (merchant, region) that has received feedback; all other pairs use the default limits
 @Getter
 @Setter
 @NoArgsConstructor
-@Table(name = "\"TRANSACTIONLIMIT\"")
+@Table(name = "\"TRANSACTION_LIMIT\"")
+@IdClass(TransactionLimitId.class)
 @Entity
 public class TransactionLimit {
     @Id
-    Long id;
+    String merchant;
+    @Id
+    String region;
     @Column(nullable = false)
     Long maxAllowed;
     @Column(nullable = false)
     Long maxManual;
 
-    public TransactionLimit(Long maxAllowed, Long maxManual) {
-        this.id = 1L;
+    public TransactionLimit(String merchant, String region, Long maxAllowed, Long maxManual) {
+        this.merchant = merchant;
+        this.region = region;
         this.maxAllowed = maxAllowed;
         this.maxManual = maxManual;
     }
@@ -0,0 +1,34 @@
+package antifraud.domain;
+
+/**
+ * Outcome of a transaction check, and the feedback a merchant can give on it. Constants are declared in order
+ * of severity.
+ */
+public enum TransactionResult {
+    ALLOWED(1),
+    MANUAL_PROCESSING(2),
+    PROHIBITED(3);
+
+    /** Code of a missing result, i.e. a transaction without feedback. */
+    public static final byte NONE = 0;
+
+    private final byte code;
+
+    TransactionResult(int code) {
+        this.code = (byte) code;
+    }
+
+    /** Code the result is persisted as. */
+    public byte code() {
+        return code;
+    }
+
+    public static TransactionResult fromCode(byte code) {
+        return switch (code) {
+            case 1 -> ALLOWED;
+            case 2 -> MANUAL_PROCESSING;
+            case 3 -> PROHIBITED;
+            default -> throw new IllegalArgumentException("Unknown transaction result code: " + code);
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package antifraud.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Persists a {@link TransactionResult} as its {@code TINYINT} code. A missing result (a transaction without
+ * feedback) is stored as {@link TransactionResult#NONE}, so the column can stay {@code NOT NULL}.
+ */
+@Converter(autoApply = true)
+public class TransactionResultConverter implements AttributeConverter<TransactionResult, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(TransactionResult result) {
+        return result == null ? TransactionResult.NONE : result.code();
+    }
+
+    @Override
+    public TransactionResult convertToEntityAttribute(Byte column) {
+        if (column == null || column == TransactionResult.NONE) {
+            return null;
+        }
+        return TransactionResult.fromCode(column);
+    }
+}
@@ -0,0 +1,35 @@
+package antifraud.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// number and amount sum of archived transactions per hour, region, result and feedback; reports add the
+// transactions not archived yet from the live table (see TransactionReportRepository)
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "\"TRANSACTION_ROLLUP\"", uniqueConstraints = @UniqueConstraint(name = "uk_transaction_rollup",
+        columnNames = {"start_of_hour", "region", "result", "feedback"}))
+@Entity
+public class TransactionRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    LocalDateTime startOfHour;
+    @Column(nullable = false)
+    @Convert(converter = RegionConverter.class)
+    String region;
+    @Column(nullable = false)
+    TransactionResult result;
+    @Column(nullable = false)
+    TransactionResult feedback;
+    @Column(nullable = false)
+    Long transactionCount;
+    @Column(nullable = false)
+    Long amountSum;
+}
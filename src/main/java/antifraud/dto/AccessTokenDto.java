@@ -0,0 +1,13 @@
+package antifraud.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record AccessTokenDto(
+        @Schema(description = "Send as 'Authorization: Bearer <accessToken>' to /api/antifraud/** endpoints")
+        String accessToken,
+        @Schema(example = "Bearer")
+        String tokenType,
+        @Schema(description = "Seconds until the token expires", example = "900")
+        long expiresIn
+) {
+}
@@ -0,0 +1,22 @@
+package antifraud.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/** Number and amount sum of the transactions of one hour with the same region, result and feedback. */
+public record HourlyTotalsDto(
+        @Schema(description = "Start of the hour", example = "2024-10-01T13:00:00")
+        LocalDateTime hour,
+        @Schema(example = "MENA")
+        String region,
+        @Schema(example = "MANUAL_PROCESSING")
+        String result,
+        @Schema(description = "Feedback, empty for transactions without feedback", example = "")
+        String feedback,
+        @Schema(example = "17")
+        long transactionCount,
+        @Schema(example = "8450")
+        long amountSum
+) {
+}
@@ -1,10 +1,11 @@
 package antifraud.dto;
 
+import antifraud.domain.TransactionResult;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 public record PostTransactionOutDto(
         @Schema(example = "PROHIBITED")
-        String result,
+        TransactionResult result,
         @Schema(example = "amount, ip")
         String info
 ) {
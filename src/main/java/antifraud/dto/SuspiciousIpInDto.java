@@ -6,8 +6,8 @@ import jakarta.validation.constraints.Pattern;
 
 public record SuspiciousIpInDto(
         @NotBlank
-        @Pattern(regexp = "^((25[0-5]|(2[0-4]|1\\d|[1-9]|)\\d)\\.?\\b){4}$")
-                @Schema(example = "192.168.0.1")
+        @Pattern(regexp = "^((25[0-5]|(2[0-4]|1\\d|[1-9]|)\\d)\\.?\\b){4}(/(3[0-2]|[12]?\\d))?$")
+        @Schema(example = "192.168.0.0/24", description = "IPv4 address or CIDR block")
         String ip
 ) {
 }
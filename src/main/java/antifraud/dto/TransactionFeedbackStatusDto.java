@@ -0,0 +1,16 @@
+package antifraud.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+// status is the HTTP status the single-item endpoint would have answered with
+public record TransactionFeedbackStatusDto(
+        @Schema(example = "1")
+        Long transactionId,
+        @Schema(example = "200")
+        int status,
+        @Schema(example = "Feedback for transaction already exists", nullable = true)
+        String error,
+        @Schema(nullable = true)
+        TransactionOutDto transaction
+) {
+}
@@ -0,0 +1,58 @@
+package antifraud.dto;
+
+import antifraud.domain.TransactionResult;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * The fields of a {@link TransactionOutDto} a transaction search can return, in output order, each with the
+ * entity attribute it is read from and how the attribute value is written.
+ */
+public enum TransactionField {
+    TRANSACTION_ID("transactionId", "id"),
+    AMOUNT("amount", "amount"),
+    IP("ip", "ip"),
+    NUMBER("number", "number"),
+    REGION("region", "region"),
+    DATE("date", "date"),
+    RESULT("result", "result", value -> ((TransactionResult) value).name()),
+    FEEDBACK("feedback", "feedback", value -> value == null ? "" : ((TransactionResult) value).name());
+
+    /** Pattern matching the name of any field. */
+    public static final String NAMES = "transactionId|amount|ip|number|region|date|result|feedback";
+
+    private final String fieldName;
+    private final String attribute;
+    private final UnaryOperator<Object> output;
+
+    TransactionField(String fieldName, String attribute) {
+        this(fieldName, attribute, UnaryOperator.identity());
+    }
+
+    TransactionField(String fieldName, String attribute, UnaryOperator<Object> output) {
+        this.fieldName = fieldName;
+        this.attribute = attribute;
+        this.output = output;
+    }
+
+    public String fieldName() {
+        return fieldName;
+    }
+
+    public String attribute() {
+        return attribute;
+    }
+
+    public Object output(Object value) {
+        return output.apply(value);
+    }
+
+    public static TransactionField fromFieldName(String fieldName) {
+        for (TransactionField field : values()) {
+            if (field.fieldName.equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown transaction field: " + fieldName);
+    }
+}
@@ -0,0 +1,39 @@
+package antifraud.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/** Filters of a transaction search; a null filter matches every transaction. */
+public record TransactionSearchCriteria(
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        @Schema(description = "Earliest transaction date (inclusive)", example = "2024-10-01T00:00:00")
+        LocalDateTime from,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        @Schema(description = "Latest transaction date (exclusive)", example = "2024-10-02T00:00:00")
+        LocalDateTime to,
+        @Pattern(regexp = "ALLOWED|MANUAL_PROCESSING|PROHIBITED")
+        @Schema(example = "PROHIBITED")
+        String result,
+        @Pattern(regexp = "ALLOWED|MANUAL_PROCESSING|PROHIBITED|NONE")
+        @Schema(description = "Feedback given on the transaction, or NONE for transactions without feedback",
+                example = "NONE")
+        String feedback,
+        @Pattern(regexp = "EAP|ECA|HIC|LAC|MENA|SA|SSA")
+        @Schema(example = "MENA")
+        String region,
+        @Pattern(regexp = "^((25[0-5]|(2[0-4]|1\\d|[1-9]|)\\d)\\.?\\b){4}$")
+        @Schema(example = "192.168.0.1")
+        String ip,
+        @Min(value = 1L)
+        @Schema(description = "Smallest amount (inclusive)", example = "200")
+        Long minAmount,
+        @Min(value = 1L)
+        @Schema(description = "Largest amount (inclusive)", example = "1500")
+        Long maxAmount
+) {
+    public static final String NO_FEEDBACK = "NONE";
+}
@@ -0,0 +1,15 @@
+package antifraud.dto;
+
+import antifraud.exception.ValidationErrorResponse;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public record TransactionStreamErrorDto(
+        @Schema(example = "3")
+        long line,
+        @Schema(example = "Validation failed for request parameters")
+        String error,
+        List<ValidationErrorResponse.FieldError> fieldErrors
+) {
+}
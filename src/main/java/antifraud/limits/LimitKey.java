@@ -0,0 +1,10 @@
+package antifraud.limits;
+
+/** The merchant and region a set of adaptive limits applies to. */
+public record LimitKey(String merchant, String region) {
+
+    public LimitKey {
+        // transactions saved before limits were kept per merchant have no merchant
+        merchant = merchant == null ? "" : merchant;
+    }
+}
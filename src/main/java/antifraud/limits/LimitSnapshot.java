@@ -0,0 +1,45 @@
+package antifraud.limits;
+
+import antifraud.domain.TransactionResult;
+
+/**
+ * Immutable pair of amount limits: amounts up to {@code maxAllowed} are ALLOWED, up to {@code maxManual} need
+ * MANUAL_PROCESSING, anything above is PROHIBITED.
+ */
+public record LimitSnapshot(long maxAllowed, long maxManual) {
+
+    /** Returns the limits adjusted for feedback on a transaction of the given amount and result. */
+    public LimitSnapshot withFeedback(TransactionResult result, TransactionResult feedback, long amount) {
+        long newMaxAllowed = maxAllowed;
+        long newMaxManual = maxManual;
+        if (result == TransactionResult.ALLOWED) {
+            // dec maxAllowed
+            newMaxAllowed = updateLimit(maxAllowed, amount, false);
+            if (feedback == TransactionResult.PROHIBITED) {
+                // dec maxManual
+                newMaxManual = updateLimit(maxManual, amount, false);
+            }
+        } else if (result == TransactionResult.MANUAL_PROCESSING) {
+            if (feedback == TransactionResult.ALLOWED) {
+                // inc maxAllowed
+                newMaxAllowed = updateLimit(maxAllowed, amount, true);
+            } else {
+                // dec maxManual
+                newMaxManual = updateLimit(maxManual, amount, false);
+            }
+        } else {
+            // inc Manual
+            newMaxManual = updateLimit(maxManual, amount, true);
+            if (feedback == TransactionResult.ALLOWED) {
+                // inc maxAllowed
+                newMaxAllowed = updateLimit(maxAllowed, amount, true);
+            }
+        }
+        return new LimitSnapshot(newMaxAllowed, newMaxManual);
+    }
+
+    private static long updateLimit(long currentLimit, long transactionValue, boolean increase) {
+        return (long) Math.ceil((0.8 * currentLimit +
+                (increase ? 0.2 * transactionValue : -0.2 * transactionValue)));
+    }
+}
@@ -0,0 +1,145 @@
+package antifraud.limits;
+
+import antifraud.domain.TransactionLimit;
+import antifraud.domain.TransactionResult;
+import antifraud.repository.TransactionLimitRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The adaptive amount limits, one immutable {@link LimitSnapshot} per (merchant, region). The snapshots live in
+ * a concurrent table, each behind its own atomic reference: scoring reads them without locking and feedback
+ * replaces a single key's snapshot by compare-and-set, so updates for different keys never contend. A key
+ * without feedback yet uses the default limits from {@code DefaultConfiguration} and takes no table entry.
+ * <p>
+ * Changes are not saved one by one; changed keys are marked dirty and a background flusher saves their latest
+ * snapshots every {@code antifraud.limits.flush-interval} and once more on shutdown. The number of keys with
+ * their own limits is published as the {@code antifraud.limits.keys} metric.
+ */
+@Component
+public class TransactionLimits {
+    private static final Logger log = LoggerFactory.getLogger(TransactionLimits.class);
+
+    private final TransactionLimitRepository repository;
+    private final LimitSnapshot defaults;
+    private final ConcurrentHashMap<LimitKey, AtomicReference<LimitSnapshot>> limits = new ConcurrentHashMap<>();
+    private final Set<LimitKey> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Autowired
+    public TransactionLimits(TransactionLimitRepository repository,
+                             MeterRegistry meterRegistry,
+                             @Qualifier("defaultMaxAllowed") Long defaultMaxAllowed,
+                             @Qualifier("defaultMaxManual") Long defaultMaxManual,
+                             @Value("${antifraud.limits.flush-interval:PT1S}") Duration flushInterval) {
+        this.repository = repository;
+        this.defaults = new LimitSnapshot(defaultMaxAllowed, defaultMaxManual);
+        repository.findAll().forEach(limit -> limits.put(new LimitKey(limit.getMerchant(), limit.getRegion()),
+                new AtomicReference<>(new LimitSnapshot(limit.getMaxAllowed(), limit.getMaxManual()))));
+        Gauge.builder("antifraud.limits.keys", this, TransactionLimits::size)
+                .register(meterRegistry);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transaction-limits-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toNanos(), flushInterval.toNanos(),
+                TimeUnit.NANOSECONDS);
+    }
+
+    public LimitSnapshot current(String merchant, String region) {
+        AtomicReference<LimitSnapshot> limit = limits.get(new LimitKey(merchant, region));
+        return limit == null ? defaults : limit.get();
+    }
+
+    public LimitSnapshot applyFeedback(String merchant, String region, TransactionResult result,
+                                       TransactionResult feedback, long amount) {
+        LimitKey key = new LimitKey(merchant, region);
+        LimitSnapshot updated = limits.computeIfAbsent(key, k -> new AtomicReference<>(defaults))
+                .updateAndGet(limit -> limit.withFeedback(result, feedback, amount));
+        // marked after the update, so a flush that has already taken the key saves it again next time
+        dirty.add(key);
+        return updated;
+    }
+
+    /** Number of (merchant, region) pairs with their own limits. */
+    public int size() {
+        return limits.size();
+    }
+
+    /** Goes back to the default limits for every key, e.g. after the limits table has been cleared. */
+    public void reset() {
+        flushLock.lock();
+        try {
+            limits.clear();
+            dirty.clear();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** Saves the latest limits of every key changed since the last flush. */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<LimitKey> keys = new ArrayList<>();
+            List<TransactionLimit> changed = new ArrayList<>();
+            for (LimitKey key : dirty) {
+                dirty.remove(key);
+                AtomicReference<LimitSnapshot> limit = limits.get(key);
+                if (limit != null) {
+                    LimitSnapshot snapshot = limit.get();
+                    keys.add(key);
+                    changed.add(new TransactionLimit(key.merchant(), key.region(), snapshot.maxAllowed(),
+                            snapshot.maxManual()));
+                }
+            }
+            if (changed.isEmpty()) {
+                return;
+            }
+            try {
+                repository.saveAll(changed);
+            } catch (RuntimeException e) {
+                dirty.addAll(keys);
+                throw e;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // an exception would cancel all further runs of the scheduled flush
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to save transaction limits, retrying", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+}
@@ -25,8 +25,8 @@ public class AntiFraudMapper {
                 transaction.getNumber(),
                 transaction.getRegion(),
                 transaction.getDate(),
-                transaction.getResult(),
-                transaction.getFeedback());
+                transaction.getResult().name(),
+                transaction.getFeedback() == null ? "" : transaction.getFeedback().name());
     }
 
     public SuspiciousIp toSuspisiousIp(SuspiciousIpInDto suspiciousIPInDto) {
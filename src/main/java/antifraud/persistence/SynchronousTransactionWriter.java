@@ -0,0 +1,35 @@
+package antifraud.persistence;
+
+import antifraud.domain.Transaction;
+import antifraud.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "antifraud.persistence.mode", havingValue = "sync", matchIfMissing = true)
+public class SynchronousTransactionWriter implements TransactionWriter {
+    private final TransactionRepository repository;
+
+    @Autowired
+    public SynchronousTransactionWriter(TransactionRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public void write(Transaction transaction) {
+        repository.save(transaction);
+    }
+
+    @Override
+    public void writeAll(List<Transaction> transactions) {
+        repository.saveAll(transactions);
+    }
+
+    @Override
+    public void flush() {
+        // every write is already stored
+    }
+}
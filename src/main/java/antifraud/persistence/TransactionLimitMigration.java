@@ -0,0 +1,44 @@
+package antifraud.persistence;
+
+import antifraud.limits.LimitSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Carries the amount limits learned before limits were kept per merchant and region over to the new scheme.
+ * They were a single row of the {@code transactionlimit} table, which no entity maps any more; when that row
+ * exists, its limits replace the configured defaults, so each (merchant, region) without feedback of its own
+ * starts from what had been learned rather than from scratch.
+ * <p>
+ * The old table is only read, never changed or dropped, so the learned limits stay the defaults on every start.
+ */
+@Component
+public class TransactionLimitMigration {
+    private static final Logger log = LoggerFactory.getLogger(TransactionLimitMigration.class);
+
+    private final LimitSnapshot legacyLimits;
+
+    @Autowired
+    public TransactionLimitMigration(JdbcTemplate jdbcTemplate) {
+        Long tables = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE LOWER(TABLE_NAME) = 'transactionlimit'", Long.class);
+        List<LimitSnapshot> rows = tables == null || tables == 0 ? List.of() : jdbcTemplate.query(
+                "SELECT max_allowed, max_manual FROM \"transactionlimit\" WHERE id = 1",
+                (rs, rowNum) -> new LimitSnapshot(rs.getLong(1), rs.getLong(2)));
+        legacyLimits = rows.isEmpty() ? null : rows.get(0);
+        if (legacyLimits != null) {
+            log.info("Using the limits learned before per-merchant limits as defaults: {}", legacyLimits);
+        }
+    }
+
+    /** The limits of the old single-row table, if there are any. */
+    public Optional<LimitSnapshot> legacyLimits() {
+        return Optional.ofNullable(legacyLimits);
+    }
+}
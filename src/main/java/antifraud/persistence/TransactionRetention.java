@@ -0,0 +1,158 @@
+package antifraud.persistence;
+
+import antifraud.domain.Transaction;
+import antifraud.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves transactions older than {@code antifraud.retention.horizon} from {@code TRANSACTION} into
+ * {@code TRANSACTION_ARCHIVE}, and adds them to the hourly roll-ups in {@code TRANSACTION_ROLLUP} (number and
+ * amount sum per hour, region, result and feedback) on the way; reports read them together with the
+ * transactions still in the table (see {@code TransactionReportRepository}). Like the correlation window, the
+ * horizon is measured back from the latest transaction date, not from the clock, and it must cover the
+ * correlation retention, since correlation checks read recent transactions from the table.
+ * <p>
+ * A run works through the old transactions in chunks of {@code batch-size}, oldest first, each in its own short
+ * database transaction that only touches the rows of the chunk, so new transactions can be inserted meanwhile.
+ * Runs are repeated every {@code interval}; the number of archived transactions is published as
+ * {@code antifraud.retention.archived} and every run is timed as {@code antifraud.retention.run}.
+ */
+@Component
+@ConditionalOnProperty(name = "antifraud.retention.enabled", havingValue = "true")
+public class TransactionRetention {
+    private static final Logger log = LoggerFactory.getLogger(TransactionRetention.class);
+
+    private static final String COLUMNS = "id, amount, ip, number, region, date, merchant, result, feedback";
+    private static final String SELECT_CHUNK = "SELECT id FROM \"transaction\" WHERE date < ? ORDER BY date LIMIT ?";
+    private static final String ROLL_UP = "MERGE INTO \"transaction_rollup\" r " +
+            "USING (SELECT DATE_TRUNC('HOUR', date) AS start_of_hour, region, result, feedback, " +
+            "COUNT(*) AS transaction_count, SUM(amount) AS amount_sum " +
+            "FROM \"transaction\" WHERE id IN (:ids) " +
+            "GROUP BY DATE_TRUNC('HOUR', date), region, result, feedback) s " +
+            "ON (r.start_of_hour = s.start_of_hour AND r.region = s.region AND r.result = s.result " +
+            "AND r.feedback = s.feedback) " +
+            "WHEN MATCHED THEN UPDATE SET transaction_count = r.transaction_count + s.transaction_count, " +
+            "amount_sum = r.amount_sum + s.amount_sum " +
+            "WHEN NOT MATCHED THEN INSERT (start_of_hour, region, result, feedback, transaction_count, amount_sum) " +
+            "VALUES (s.start_of_hour, s.region, s.result, s.feedback, s.transaction_count, s.amount_sum)";
+    private static final String ARCHIVE = "INSERT INTO \"transaction_archive\" (" + COLUMNS + ") " +
+            "SELECT " + COLUMNS + " FROM \"transaction\" WHERE id IN (:ids)";
+    private static final String DELETE = "DELETE FROM \"transaction\" WHERE id IN (:ids)";
+
+    private final TransactionRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration horizon;
+    private final int batchSize;
+    private final Counter archived;
+    private final Timer runTimer;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public TransactionRetention(TransactionRepository repository,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${antifraud.retention.horizon:P30D}") Duration horizon,
+                                @Value("${antifraud.retention.batch-size:1000}") int batchSize,
+                                @Value("${antifraud.retention.interval:PT1H}") Duration interval,
+                                @Value("${antifraud.correlation.retention:PT2H}") Duration correlationRetention) {
+        if (horizon.compareTo(correlationRetention) < 0) {
+            throw new IllegalArgumentException("Retention horizon must cover the correlation retention of " +
+                    correlationRetention);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Retention batch size must be positive");
+        }
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizon = horizon;
+        this.batchSize = batchSize;
+        archived = meterRegistry.counter("antifraud.retention.archived");
+        runTimer = meterRegistry.timer("antifraud.retention.run");
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transaction-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::archiveQuietly, interval.toNanos(), interval.toNanos(),
+                TimeUnit.NANOSECONDS);
+    }
+
+    /** Archives all transactions older than the horizon and returns how many were moved. */
+    public long archive() {
+        LocalDateTime latest = repository.findTopByOrderByDateDesc()
+                .map(Transaction::getDate)
+                .orElse(null);
+        if (latest == null) {
+            return 0;
+        }
+        LocalDateTime cutoff = latest.minus(horizon);
+        return runTimer.record(() -> {
+            long total = 0;
+            int moved;
+            do {
+                moved = archiveChunk(cutoff);
+                total += moved;
+            } while (moved == batchSize);
+            if (total > 0) {
+                log.info("Archived {} transactions dated before {}", total, cutoff);
+            }
+            return total;
+        });
+    }
+
+    private int archiveChunk(LocalDateTime cutoff) {
+        Integer moved = transactionTemplate.execute(status -> {
+            List<Long> ids = jdbcTemplate.queryForList(SELECT_CHUNK, Long.class, cutoff, batchSize);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            MapSqlParameterSource chunk = new MapSqlParameterSource("ids", ids);
+            namedJdbcTemplate.update(ROLL_UP, chunk);
+            namedJdbcTemplate.update(ARCHIVE, chunk);
+            return namedJdbcTemplate.update(DELETE, chunk);
+        });
+        archived.increment(moved);
+        return moved;
+    }
+
+    // an exception would cancel all further runs
+    private void archiveQuietly() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            log.error("Failed to archive transactions, retrying at the next run", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,134 @@
+package antifraud.persistence;
+
+import antifraud.domain.Region;
+import antifraud.domain.TransactionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Converts a {@code TRANSACTION} table created before the compact column types to them in place: IPs from text
+ * to {@code INTEGER}, and regions, results and feedback from text to {@code TINYINT} codes. Schema update does
+ * not change the type of existing columns, so each one is copied into a new column by a single {@code UPDATE},
+ * the old column and the indexes on it are dropped, and the new column takes its name. The indexes are then
+ * recreated by the schema update, which runs after this migration.
+ * <p>
+ * Columns that already have their compact type are left alone, and a migration interrupted before the rename is
+ * redone or finished on the next start. Indexes that earlier versions declared and the schema update would keep
+ * forever are dropped.
+ */
+@Component
+public class TransactionSchemaMigration {
+    private static final Logger log = LoggerFactory.getLogger(TransactionSchemaMigration.class);
+    private static final String TABLE = "\"transaction\"";
+    private static final String SUFFIX = "_compact";
+    // search indexes that ended in the date rather than the id the search pages by
+    private static final List<String> OBSOLETE_INDEXES = List.of("idx_transaction_result_date",
+            "idx_transaction_feedback_date", "idx_transaction_region_date", "idx_transaction_ip_date",
+            "idx_transaction_amount");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TransactionSchemaMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        migrate("ip", "INTEGER", ipExpression());
+        migrate("region", "TINYINT", regionExpression());
+        migrate("result", "TINYINT", resultExpression("result") + " END");
+        migrate("feedback", "TINYINT", resultExpression("feedback") + " ELSE " + TransactionResult.NONE + " END");
+        for (String index : OBSOLETE_INDEXES) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + index);
+        }
+    }
+
+    private void migrate(String column, String type, String expression) {
+        String compact = column + SUFFIX;
+        String current = columnType(column);
+        if (current == null) {
+            // no table yet, or a migration stopped after dropping the old column
+            if (columnType(compact) != null) {
+                rename(compact, column);
+            }
+            return;
+        }
+        if (current.equals(type)) {
+            return;
+        }
+        log.info("Migrating transaction column {} from {} to {}", column, current, type);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP COLUMN IF EXISTS " + compact);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD COLUMN " + compact + " " + type);
+        int rows = jdbcTemplate.update("UPDATE " + TABLE + " SET " + compact + " = " + expression);
+        Long unconverted = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + TABLE + " WHERE " + compact + " IS NULL", Long.class);
+        if (unconverted != null && unconverted > 0) {
+            throw new IllegalStateException(unconverted + " transactions have a " + column +
+                    " that cannot be converted to " + type);
+        }
+        for (String index : indexesOn(column)) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS \"" + index + "\"");
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP COLUMN " + column);
+        rename(compact, column);
+        log.info("Migrated transaction column {} of {} rows", column, rows);
+    }
+
+    private void rename(String from, String to) {
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ALTER COLUMN " + from + " RENAME TO " + to);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ALTER COLUMN " + to + " SET NOT NULL");
+    }
+
+    private String columnType(String column) {
+        List<String> types = jdbcTemplate.queryForList("SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE LOWER(TABLE_NAME) = 'transaction' AND LOWER(COLUMN_NAME) = ?", String.class, column);
+        return types.isEmpty() ? null : types.get(0);
+    }
+
+    private List<String> indexesOn(String column) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT c.INDEX_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS c " +
+                "JOIN INFORMATION_SCHEMA.INDEXES i ON i.INDEX_SCHEMA = c.INDEX_SCHEMA AND i.INDEX_NAME = c.INDEX_NAME " +
+                "WHERE LOWER(c.TABLE_NAME) = 'transaction' AND LOWER(c.COLUMN_NAME) = ? " +
+                "AND i.INDEX_TYPE_NAME <> 'PRIMARY KEY'", String.class, column);
+    }
+
+    // the dotted quad as a signed 32-bit value: the first octet is taken as negative from 128 up
+    private static String ipExpression() {
+        String first = octet(1);
+        return "CAST((" + first + " - CASE WHEN " + first + " >= 128 THEN 256 ELSE 0 END) * 16777216 + " +
+                octet(2) + " * 65536 + " + octet(3) + " * 256 + " + octet(4) + " AS INTEGER)";
+    }
+
+    private static String octet(int occurrence) {
+        return "CAST(REGEXP_SUBSTR(ip, '[0-9]+', 1, " + occurrence + ") AS BIGINT)";
+    }
+
+    private static String regionExpression() {
+        return Arrays.stream(Region.values())
+                .map(region -> "WHEN '" + region.name() + "' THEN " + region.code())
+                .collect(Collectors.joining(" ", "CASE TRIM(region) ", " END"));
+    }
+
+    // rows hold either the full result name or, since results were stored as codes, its first letter
+    private static String resultExpression(String column) {
+        StringBuilder expression = new StringBuilder("CASE");
+        for (TransactionResult result : TransactionResult.values()) {
+            expression.append(" WHEN TRIM(").append(column).append(") IN ('").append(result.name()).append("', '")
+                    .append(result.name().charAt(0)).append("') THEN ").append(result.code());
+        }
+        return expression.toString();
+    }
+
+    /** Makes the entity manager factory, and with it the schema update, wait for the migration. */
+    @Component
+    static class EntityManagerFactoryDependsOnMigration extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryDependsOnMigration() {
+            super(TransactionSchemaMigration.class);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package antifraud.persistence;
+
+import antifraud.domain.Transaction;
+import antifraud.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the transaction id sequence past the ids already in the table. Databases created while transaction ids
+ * were identity columns get a fresh sequence on schema update, which would otherwise hand out ids that are
+ * already taken.
+ */
+@Component
+public class TransactionSequenceInitializer {
+
+    // the repository dependency makes sure the schema has been updated before this runs
+    @Autowired
+    public TransactionSequenceInitializer(TransactionRepository repository, JdbcTemplate jdbcTemplate) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM \"transaction\"", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        // Hibernate's pooled optimizer hands out the ids (value - allocation size, value]
+        long minValue = maxId + Transaction.ID_ALLOCATION_SIZE;
+        Long nextValue = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + Transaction.ID_SEQUENCE,
+                Long.class);
+        if (nextValue != null && nextValue < minValue) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + Transaction.ID_SEQUENCE + " RESTART WITH " + minValue);
+        }
+    }
+}
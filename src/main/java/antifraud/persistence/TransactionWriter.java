@@ -0,0 +1,20 @@
+package antifraud.persistence;
+
+import antifraud.domain.Transaction;
+
+import java.util.List;
+
+/**
+ * Persists scored transactions. The implementation is chosen by {@code antifraud.persistence.mode}: {@code sync}
+ * saves each transaction before the decision is returned, {@code write-behind} queues it for a background
+ * writer.
+ */
+public interface TransactionWriter {
+    void write(Transaction transaction);
+
+    /** Writes the transactions in order, as one insert batch where the implementation allows it. */
+    void writeAll(List<Transaction> transactions);
+
+    /** Blocks until every transaction written so far is stored in the repository. */
+    void flush();
+}
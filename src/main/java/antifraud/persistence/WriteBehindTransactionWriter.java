@@ -0,0 +1,270 @@
+package antifraud.persistence;
+
+import antifraud.domain.Transaction;
+import antifraud.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind {@link TransactionWriter}: transactions are put on a bounded queue and a background thread stores
+ * them with {@code saveAll}, which Hibernate sends as JDBC batches ({@code hibernate.jdbc.batch_size}) because
+ * transaction ids come from a pooled sequence.
+ * <p>
+ * A batch is written once {@code flush-size} transactions are queued or {@code flush-interval} has passed since
+ * the first of them arrived. A full queue blocks the caller until the writer catches up. With durability
+ * {@code async} the decision is returned as soon as the transaction is queued, so queued transactions are lost
+ * if the process dies; with {@code commit} the caller waits until the batch holding its transaction is
+ * committed, which still shares one insert batch and commit among concurrent requests.
+ * <p>
+ * A batch that fails with a transient error (the database is unreachable, a lock timed out) is retried up to
+ * {@code max-retries} times. After that, or after any other error, its transactions are saved one by one, so a
+ * single row the database rejects does not hold up the rest; rows that still fail are logged and dropped. The
+ * queue depth is published as {@code antifraud.persistence.queue.depth}, every batch write is timed as
+ * {@code antifraud.persistence.flush} and dropped transactions are counted as {@code antifraud.persistence.dropped}.
+ */
+@Component
+@ConditionalOnProperty(name = "antifraud.persistence.mode", havingValue = "write-behind")
+public class WriteBehindTransactionWriter implements TransactionWriter {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindTransactionWriter.class);
+
+    public enum Durability {
+        ASYNC,
+        COMMIT
+    }
+
+    private final TransactionRepository repository;
+    private final BlockingQueue<Transaction> queue;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final Durability durability;
+    private final int maxRetries;
+    private final Timer flushTimer;
+    private final Counter dropped;
+    private final Thread writerThread;
+
+    // number of transactions ever queued and ever stored; the n-th queued transaction is stored once written >= n.
+    // Locks rather than synchronized, so callers blocked here do not pin the carrier of a virtual thread.
+    private final ReentrantLock enqueueLock = new ReentrantLock();
+    private final ReentrantLock progressLock = new ReentrantLock();
+    private final Condition progressed = progressLock.newCondition();
+    private long queued;
+    private long written;
+    private volatile boolean running = true;
+
+    @Autowired
+    public WriteBehindTransactionWriter(TransactionRepository repository,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${antifraud.persistence.write-behind.queue-capacity:10000}")
+                                        int queueCapacity,
+                                        @Value("${antifraud.persistence.write-behind.flush-size:100}")
+                                        int flushSize,
+                                        @Value("${antifraud.persistence.write-behind.flush-interval:PT0.05S}")
+                                        Duration flushInterval,
+                                        @Value("${antifraud.persistence.write-behind.durability:async}")
+                                        Durability durability,
+                                        @Value("${antifraud.persistence.write-behind.max-retries:5}")
+                                        int maxRetries) {
+        if (flushSize < 1 || queueCapacity < flushSize) {
+            throw new IllegalArgumentException("Write-behind queue must hold at least one batch");
+        }
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.durability = durability;
+        this.maxRetries = maxRetries;
+        Gauge.builder("antifraud.persistence.queue.depth", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        flushTimer = meterRegistry.timer("antifraud.persistence.flush");
+        dropped = meterRegistry.counter("antifraud.persistence.dropped");
+        writerThread = new Thread(this::run, "transaction-writer");
+        writerThread.start();
+    }
+
+    @Override
+    public void write(Transaction transaction) {
+        long ticket = enqueue(transaction);
+        if (durability == Durability.COMMIT) {
+            awaitWritten(ticket);
+        }
+    }
+
+    @Override
+    public void writeAll(List<Transaction> transactions) {
+        long ticket = 0;
+        for (Transaction transaction : transactions) {
+            ticket = enqueue(transaction);
+        }
+        if (durability == Durability.COMMIT) {
+            awaitWritten(ticket);
+        }
+    }
+
+    @Override
+    public void flush() {
+        long ticket;
+        enqueueLock.lock();
+        try {
+            ticket = queued;
+        } finally {
+            enqueueLock.unlock();
+        }
+        awaitWritten(ticket);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.join();
+    }
+
+    private long enqueue(Transaction transaction) {
+        try {
+            // queue and ticket must be taken together, so tickets follow the queue order
+            enqueueLock.lockInterruptibly();
+            try {
+                queue.put(transaction);
+                return ++queued;
+            } finally {
+                enqueueLock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing transaction", e);
+        }
+    }
+
+    private void awaitWritten(long ticket) {
+        progressLock.lock();
+        try {
+            while (written < ticket) {
+                if (!writerThread.isAlive()) {
+                    throw new IllegalStateException("Transaction writer has stopped");
+                }
+                try {
+                    progressed.await(flushIntervalNanos + 1, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for transaction writer", e);
+                }
+            }
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    private void run() {
+        List<Transaction> batch = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                // store what was collected and drain the rest
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                store(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<Transaction> batch) throws InterruptedException {
+        Transaction first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || remaining <= 0 || !running) {
+                return;
+            }
+            Transaction next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void store(List<Transaction> batch) {
+        if (!storeBatch(batch)) {
+            storeOneByOne(batch);
+        }
+        progressLock.lock();
+        try {
+            written += batch.size();
+            progressed.signalAll();
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    // false if the batch could not be stored as a whole
+    private boolean storeBatch(List<Transaction> batch) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                flushTimer.record(() -> repository.saveAll(batch));
+                return true;
+            } catch (RuntimeException e) {
+                if (!isTransient(e) || attempt >= maxRetries || !running) {
+                    log.error("Failed to store {} transactions as a batch, storing them one by one", batch.size(), e);
+                    return false;
+                }
+                // keep the batch: a full queue holds producers back until the repository is reachable again
+                log.warn("Failed to store {} transactions, retrying", batch.size(), e);
+                try {
+                    TimeUnit.NANOSECONDS.sleep(flushIntervalNanos << Math.min(attempt, 10));
+                } catch (InterruptedException interrupted) {
+                    running = false;
+                }
+            }
+        }
+    }
+
+    private void storeOneByOne(List<Transaction> batch) {
+        for (Transaction transaction : batch) {
+            try {
+                repository.save(transaction);
+            } catch (RuntimeException e) {
+                dropped.increment();
+                // the card number stays out of the log
+                log.error("Dropping transaction that could not be stored: merchant={}, date={}, amount={}, " +
+                                "result={}", transaction.getMerchant(), transaction.getDate(), transaction.getAmount(),
+                        transaction.getResult(), e);
+            }
+        }
+    }
+
+    static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+}
@@ -2,6 +2,7 @@ package antifraud.repository;
 
 import antifraud.domain.StolenCard;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +13,6 @@ public interface StolenCardRepository extends JpaRepository<StolenCard,Long> {
     Boolean existsByNumber (String ip);
     Optional<StolenCard> findByNumber (String number);
     List<StolenCard> findAllByOrderByIdAsc();
+    @Query("SELECT s.number FROM StolenCard s")
+    List<String> findAllNumbers();
 }
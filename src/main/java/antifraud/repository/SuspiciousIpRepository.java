@@ -2,6 +2,7 @@ package antifraud.repository;
 
 import antifraud.domain.SuspiciousIp;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +13,6 @@ public interface SuspiciousIpRepository extends JpaRepository<SuspiciousIp,Long>
     Boolean existsByIp (String ip);
     Optional<SuspiciousIp> findByIp (String ip);
     List<SuspiciousIp> findAllByOrderByIdAsc();
+    @Query("SELECT s.ip FROM SuspiciousIp s")
+    List<String> findAllIps();
 }
@@ -0,0 +1,7 @@
+package antifraud.repository;
+
+import antifraud.domain.TransactionArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TransactionArchiveRepository extends JpaRepository<TransactionArchive, Long> {
+}
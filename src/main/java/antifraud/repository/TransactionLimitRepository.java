@@ -1,7 +1,8 @@
 package antifraud.repository;
 
 import antifraud.domain.TransactionLimit;
+import antifraud.domain.TransactionLimitId;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface TransactionLimitRepository extends JpaRepository<TransactionLimit,Long> {
+public interface TransactionLimitRepository extends JpaRepository<TransactionLimit, TransactionLimitId> {
 }
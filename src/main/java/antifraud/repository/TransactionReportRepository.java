@@ -0,0 +1,16 @@
+package antifraud.repository;
+
+import antifraud.dto.HourlyTotalsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/** Reports over all transactions, whether still in {@code TRANSACTION} or already archived. */
+public interface TransactionReportRepository {
+    /**
+     * Returns the hourly totals per region, result and feedback of the hours starting from {@code from}
+     * (inclusive) up to {@code to} (exclusive), both at the start of an hour, ordered by hour. Archived hours come
+     * from the roll-ups and recent ones from the live table.
+     */
+    List<HourlyTotalsDto> hourlyTotals(LocalDateTime from, LocalDateTime to);
+}
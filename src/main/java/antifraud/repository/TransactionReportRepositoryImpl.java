@@ -0,0 +1,65 @@
+package antifraud.repository;
+
+import antifraud.domain.Region;
+import antifraud.domain.TransactionResult;
+import antifraud.dto.HourlyTotalsDto;
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Combines the roll-ups with the live table in one query. Retention moves every transaction into the roll-ups
+ * in the same database transaction that deletes it from {@code TRANSACTION}, so each transaction is counted on
+ * exactly one side, and an hour that is partly archived is the sum of both. The live side is grouped on the
+ * fly; it only holds the transactions within the retention horizon, which the correlation indexes already
+ * cover by date.
+ * <p>
+ * Feedback of archived transactions is as of archiving, since archived transactions cannot receive feedback.
+ */
+public class TransactionReportRepositoryImpl implements TransactionReportRepository {
+    private static final String HOURLY_TOTALS = "SELECT start_of_hour, region, result, feedback, " +
+            "SUM(transaction_count) AS transaction_count, SUM(amount_sum) AS amount_sum FROM (" +
+            "SELECT start_of_hour, region, result, feedback, transaction_count, amount_sum " +
+            "FROM \"transaction_rollup\" WHERE start_of_hour >= :from AND start_of_hour < :to " +
+            "UNION ALL " +
+            "SELECT DATE_TRUNC('HOUR', date), region, result, feedback, COUNT(*), SUM(amount) " +
+            "FROM \"transaction\" WHERE date >= :from AND date < :to " +
+            "GROUP BY DATE_TRUNC('HOUR', date), region, result, feedback) totals " +
+            "GROUP BY start_of_hour, region, result, feedback " +
+            "ORDER BY start_of_hour, region, result, feedback";
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public TransactionReportRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<HourlyTotalsDto> hourlyTotals(LocalDateTime from, LocalDateTime to) {
+        List<Object[]> rows = entityManager.createNativeQuery(HOURLY_TOTALS)
+                .unwrap(NativeQuery.class)
+                .addScalar("start_of_hour", LocalDateTime.class)
+                .addScalar("region", Byte.class)
+                .addScalar("result", Byte.class)
+                .addScalar("feedback", Byte.class)
+                .addScalar("transaction_count", Long.class)
+                .addScalar("amount_sum", Long.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new HourlyTotalsDto((LocalDateTime) row[0], Region.fromCode((Byte) row[1]).name(),
+                        TransactionResult.fromCode((Byte) row[2]).name(), feedback((Byte) row[3]),
+                        (Long) row[4], (Long) row[5]))
+                .toList();
+    }
+
+    private static String feedback(byte code) {
+        return code == TransactionResult.NONE ? "" : TransactionResult.fromCode(code).name();
+    }
+}
@@ -1,31 +1,64 @@
 package antifraud.repository;
 
+import antifraud.correlation.CorrelationCounts;
 import antifraud.domain.Transaction;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    @Query("SELECT COUNT(DISTINCT t.region) " +
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionSearchRepository,
+        TransactionReportRepository {
+    int STREAM_FETCH_SIZE = 500;
+
+    // both correlation counts in one round trip; CASE yields NULL for the excluded values (the current ones, and
+    // those of transactions not stored yet, which the caller counts itself), and COUNT skips NULL
+    @Query("SELECT new antifraud.correlation.CorrelationCounts(" +
+            "COUNT(DISTINCT CASE WHEN t.region NOT IN :excludedRegions THEN t.region END), " +
+            "COUNT(DISTINCT CASE WHEN t.ip NOT IN :excludedIps THEN t.ip END)) " +
             "FROM Transaction t " +
-            "WHERE t.date BETWEEN :startDateTime AND :endDateTime " +
-            "AND t.region <> :currentRegion")
-    Long countDistinctRegionsInPeriodExcludingCurrentRegion(@Param("startDateTime") LocalDateTime startDateTime,
-                                                           @Param("endDateTime") LocalDateTime endDateTime,
-                                                           @Param("currentRegion") String currentRegion);
+            "WHERE t.date BETWEEN :startDateTime AND :endDateTime")
+    CorrelationCounts countDistinctInPeriodExcluding(@Param("startDateTime") LocalDateTime startDateTime,
+                                                     @Param("endDateTime") LocalDateTime endDateTime,
+                                                     @Param("excludedRegions") Collection<String> excludedRegions,
+                                                     @Param("excludedIps") Collection<String> excludedIps);
 
-    @Query("SELECT COUNT(DISTINCT t.ip) " +
+    @Query("SELECT new antifraud.correlation.CorrelationCounts(" +
+            "COUNT(DISTINCT CASE WHEN t.region NOT IN :excludedRegions THEN t.region END), " +
+            "COUNT(DISTINCT CASE WHEN t.ip NOT IN :excludedIps THEN t.ip END)) " +
             "FROM Transaction t " +
-            "WHERE t.date BETWEEN :startDateTime AND :endDateTime " +
-            "AND t.ip <> :currentIp")
-    Long countDistinctIpsInPeriodExcludingCurrentIp(@Param("startDateTime") LocalDateTime startDateTime,
-                                                      @Param("endDateTime") LocalDateTime endDateTime,
-                                                      @Param("currentIp") String currentIp);
-    List<Transaction> findAllByOrderByIdAsc();
-    List<Transaction> findAllByNumberOrderByIdAsc(String number);
+            "WHERE t.number = :number " +
+            "AND t.date BETWEEN :startDateTime AND :endDateTime")
+    CorrelationCounts countDistinctForNumberInPeriodExcluding(@Param("number") String number,
+                                                              @Param("startDateTime") LocalDateTime startDateTime,
+                                                              @Param("endDateTime") LocalDateTime endDateTime,
+                                                              @Param("excludedRegions")
+                                                              Collection<String> excludedRegions,
+                                                              @Param("excludedIps") Collection<String> excludedIps);
+
+    // keyset pages: the rows after the last id of the previous page, served from the primary key index
+    List<Transaction> findAllByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+    List<Transaction> findAllByNumberAndIdGreaterThanOrderByIdAsc(String number, Long afterId, Limit limit);
+
+    // cursor-backed streams, to be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    Stream<Transaction> streamAllByOrderByIdAsc();
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    Stream<Transaction> streamAllByNumberOrderByIdAsc(String number);
+
+    List<Transaction> findAllByDateGreaterThanEqual(LocalDateTime date);
+    List<Transaction> findAllByNumberAndDateGreaterThanEqual(String number, LocalDateTime date);
+    Optional<Transaction> findTopByOrderByDateDesc();
 }
@@ -0,0 +1,12 @@
+package antifraud.repository;
+
+import antifraud.domain.TransactionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TransactionRollupRepository extends JpaRepository<TransactionRollup, Long> {
+    List<TransactionRollup> findAllByStartOfHourGreaterThanEqualAndStartOfHourLessThanOrderByStartOfHourAsc(
+            LocalDateTime from, LocalDateTime to);
+}
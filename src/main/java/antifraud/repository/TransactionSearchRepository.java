@@ -0,0 +1,17 @@
+package antifraud.repository;
+
+import antifraud.dto.TransactionField;
+import antifraud.dto.TransactionSearchCriteria;
+import jakarta.persistence.Tuple;
+
+import java.util.List;
+import java.util.Set;
+
+/** Transaction search with filters and selected columns only known at run time. */
+public interface TransactionSearchRepository {
+    /**
+     * Returns up to limit transactions matching all criteria with an id greater than afterId, ordered by id.
+     * Each tuple holds only the given fields, aliased by their {@link TransactionField#name()}.
+     */
+    List<Tuple> search(TransactionSearchCriteria criteria, Set<TransactionField> fields, long afterId, int limit);
+}
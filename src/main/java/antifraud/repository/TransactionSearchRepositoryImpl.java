@@ -0,0 +1,86 @@
+package antifraud.repository;
+
+import antifraud.domain.Transaction;
+import antifraud.domain.TransactionResult;
+import antifraud.dto.TransactionField;
+import antifraud.dto.TransactionSearchCriteria;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the search as a criteria query: one predicate per given filter, and a select list of only the requested
+ * columns, so no entity is loaded and a query on indexed columns can be answered from the index. The result,
+ * region and IP filters lead one of the {@code (column, id)} indexes declared on {@link Transaction}, so a page
+ * is a range scan from {@code afterId} that stops after {@code limit} rows.
+ */
+public class TransactionSearchRepositoryImpl implements TransactionSearchRepository {
+    private final EntityManager entityManager;
+
+    @Autowired
+    public TransactionSearchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Tuple> search(TransactionSearchCriteria criteria, Set<TransactionField> fields, long afterId,
+                              int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Transaction> transaction = query.from(Transaction.class);
+        List<Selection<?>> selections = new ArrayList<>();
+        for (TransactionField field : fields) {
+            selections.add(transaction.get(field.attribute()).alias(field.name()));
+        }
+        query.multiselect(selections)
+                .where(predicates(cb, transaction, criteria, afterId))
+                .orderBy(cb.asc(transaction.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static Predicate[] predicates(CriteriaBuilder cb, Root<Transaction> transaction,
+                                          TransactionSearchCriteria criteria, long afterId) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.greaterThan(transaction.get("id"), afterId));
+        if (criteria.from() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(transaction.<LocalDateTime>get("date"), criteria.from()));
+        }
+        if (criteria.to() != null) {
+            predicates.add(cb.lessThan(transaction.<LocalDateTime>get("date"), criteria.to()));
+        }
+        if (criteria.result() != null) {
+            predicates.add(cb.equal(transaction.get("result"), TransactionResult.valueOf(criteria.result())));
+        }
+        if (TransactionSearchCriteria.NO_FEEDBACK.equals(criteria.feedback())) {
+            // a missing feedback is stored as a code of its own, not as NULL
+            predicates.add(cb.not(transaction.get("feedback").in((Object[]) TransactionResult.values())));
+        } else if (criteria.feedback() != null) {
+            predicates.add(cb.equal(transaction.get("feedback"), TransactionResult.valueOf(criteria.feedback())));
+        }
+        if (criteria.region() != null) {
+            predicates.add(cb.equal(transaction.get("region"), criteria.region()));
+        }
+        if (criteria.ip() != null) {
+            predicates.add(cb.equal(transaction.get("ip"), criteria.ip()));
+        }
+        if (criteria.minAmount() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(transaction.<Long>get("amount"), criteria.minAmount()));
+        }
+        if (criteria.maxAmount() != null) {
+            predicates.add(cb.lessThanOrEqualTo(transaction.<Long>get("amount"), criteria.maxAmount()));
+        }
+        return predicates.toArray(Predicate[]::new);
+    }
+}
@@ -1,7 +1,10 @@
 package antifraud.repository;
 
 import antifraud.domain.User;
+import antifraud.security.UserPrincipal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +15,10 @@ public interface UserRepository extends JpaRepository<User,Long> {
     Optional<User> findByUsernameIgnoreCase(String username);
     boolean existsByUsernameIgnoreCase(String username);
     List<User> findAllByOrderByIdAsc();
+
+    // user and role name in one query, without managed entities
+    @Query("SELECT new antifraud.security.UserPrincipal(u.id, u.username, u.password, r.name, u.locked) " +
+            "FROM User u JOIN u.role r " +
+            "WHERE LOWER(u.username) = LOWER(:username)")
+    Optional<UserPrincipal> findPrincipalByUsernameIgnoreCase(@Param("username") String username);
 }
@@ -0,0 +1,32 @@
+package antifraud.rules;
+
+import antifraud.domain.TransactionResult;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import static antifraud.domain.TransactionResult.*;
+
+@Component
+@Order(1)
+public class AmountRule implements FraudRule {
+    @Override
+    public String name() {
+        return "amount";
+    }
+
+    @Override
+    public int cost() {
+        return COST_IN_MEMORY;
+    }
+
+    @Override
+    public TransactionResult evaluate(ScoringContext context) {
+        long amount = context.transaction().amount();
+        if (amount <= context.limit().maxAllowed()) {
+            return ALLOWED;
+        } else if (amount <= context.limit().maxManual()) {
+            return MANUAL_PROCESSING;
+        }
+        return PROHIBITED;
+    }
+}
@@ -0,0 +1,20 @@
+package antifraud.rules;
+
+import antifraud.domain.TransactionResult;
+
+import static antifraud.domain.TransactionResult.*;
+
+final class CorrelationVerdict {
+    private CorrelationVerdict() {
+    }
+
+    // more than 2 other regions/IPs within the hour: PROHIBITED, exactly 2: MANUAL_PROCESSING
+    static TransactionResult of(long distinctOthers) {
+        if (distinctOthers > 2) {
+            return PROHIBITED;
+        } else if (distinctOthers == 2) {
+            return MANUAL_PROCESSING;
+        }
+        return ALLOWED;
+    }
+}
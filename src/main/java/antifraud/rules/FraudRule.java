@@ -0,0 +1,23 @@
+package antifraud.rules;
+
+import antifraud.domain.TransactionResult;
+
+/**
+ * A single check of the scoring path. Rules are Spring beans; their {@code @Order} fixes the order in which
+ * reasons are listed in the decision's info, while {@link #cost()} decides the order in which they are
+ * evaluated, so cheap in-memory rules run before rules that may hit the database.
+ */
+public interface FraudRule {
+    int COST_IN_MEMORY = 1;
+    int COST_INDEX_LOOKUP = 10;
+    int COST_DATABASE = 100;
+
+    /** Reason reported in the decision's info when the rule fires. */
+    String name();
+
+    /** Relative evaluation cost; see the {@code COST_*} constants. */
+    int cost();
+
+    /** Returns ALLOWED if the rule does not fire, otherwise MANUAL_PROCESSING or PROHIBITED. */
+    TransactionResult evaluate(ScoringContext context);
+}
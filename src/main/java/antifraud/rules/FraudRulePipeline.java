@@ -0,0 +1,93 @@
+package antifraud.rules;
+
+import antifraud.domain.TransactionResult;
+import antifraud.dto.PostTransactionOutDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every {@link FraudRule} against a transaction and combines their verdicts: the result is the most severe
+ * verdict, and the info lists the rules that produced it in their {@code @Order}, or "none" if all rules allowed
+ * the transaction. Because the combination does not depend on evaluation order, rules are evaluated cheapest
+ * first. The time spent in each rule is published as the {@code antifraud.rule.evaluation} timer, tagged with
+ * the rule name.
+ * <p>
+ * The reasons of a decision are collected as a bitmask (bit i is the i-th rule in {@code @Order}) and every
+ * possible decision is built once up front, so evaluating a transaction allocates nothing for the decision.
+ */
+@Component
+public class FraudRulePipeline {
+    static final int MAX_RULES = 16;
+
+    private final List<FraudRule> rules;
+    // indexes into rules, cheapest first; ties keep their @Order
+    private final int[] evaluationOrder;
+    private final Timer[] timers;
+    // indexed by result ordinal and reason bitmask
+    private final PostTransactionOutDto[][] decisions;
+
+    @Autowired
+    public FraudRulePipeline(List<FraudRule> rules, MeterRegistry meterRegistry) {
+        if (rules.size() > MAX_RULES) {
+            throw new IllegalArgumentException("At most " + MAX_RULES + " fraud rules are supported");
+        }
+        this.rules = List.copyOf(rules);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < this.rules.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingInt(i -> this.rules.get(i).cost()));
+        evaluationOrder = order.stream().mapToInt(Integer::intValue).toArray();
+        timers = this.rules.stream()
+                .map(rule -> Timer.builder("antifraud.rule.evaluation")
+                        .tag("rule", rule.name())
+                        .register(meterRegistry))
+                .toArray(Timer[]::new);
+        decisions = new PostTransactionOutDto[TransactionResult.values().length][1 << this.rules.size()];
+        for (TransactionResult result : TransactionResult.values()) {
+            for (int reasons = 0; reasons < 1 << this.rules.size(); reasons++) {
+                decisions[result.ordinal()][reasons] = new PostTransactionOutDto(result, info(reasons));
+            }
+        }
+    }
+
+    public PostTransactionOutDto evaluate(ScoringContext context) {
+        TransactionResult result = TransactionResult.ALLOWED;
+        int reasons = 0;
+        for (int i : evaluationOrder) {
+            long start = System.nanoTime();
+            TransactionResult verdict = rules.get(i).evaluate(context);
+            timers[i].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (verdict.compareTo(result) > 0) {
+                result = verdict;
+                reasons = 1 << i;
+            } else if (verdict == result && verdict != TransactionResult.ALLOWED) {
+                reasons |= 1 << i;
+            }
+        }
+        return decisions[result.ordinal()][reasons];
+    }
+
+    private String info(int reasons) {
+        if (reasons == 0) {
+            return "none";
+        }
+        StringBuilder info = new StringBuilder();
+        for (int i = 0; i < rules.size(); i++) {
+            if ((reasons & 1 << i) != 0) {
+                if (!info.isEmpty()) {
+                    info.append(", ");
+                }
+                info.append(rules.get(i).name());
+            }
+        }
+        return info.toString();
+    }
+}
@@ -0,0 +1,25 @@
+package antifraud.rules;
+
+import antifraud.domain.TransactionResult;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Component
+@Order(5)
+public class IpCorrelationRule implements FraudRule {
+    @Override
+    public String name() {
+        return "ip-correlation";
+    }
+
+    @Override
+    public int cost() {
+        // in memory, but may fall back to the repository for old dates
+        return COST_DATABASE;
+    }
+
+    @Override
+    public TransactionResult evaluate(ScoringContext context) {
+        return CorrelationVerdict.of(context.correlationCounts().ips());
+    }
+}
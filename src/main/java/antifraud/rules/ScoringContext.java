@@ -0,0 +1,73 @@
+package antifraud.rules;
+
+import antifraud.correlation.CorrelationCounts;
+import antifraud.correlation.TransactionCorrelation;
+import antifraud.domain.Transaction;
+import antifraud.dto.PostTransactionInDto;
+import antifraud.limits.LimitSnapshot;
+
+import java.util.List;
+
+/**
+ * Everything the rules need to score one transaction. Lookups shared by several rules are made once, on first
+ * use, and cached for the rest of the evaluation.
+ */
+public class ScoringContext {
+    private final PostTransactionInDto transaction;
+    private final LimitSnapshot limit;
+    private final TransactionCorrelation correlation;
+    // scored but not recorded yet: the earlier items of a batch
+    private final List<Transaction> pending;
+    // a dry run only peeks at the correlation state
+    private final boolean dryRun;
+    private CorrelationCounts correlationCounts;
+
+    public ScoringContext(PostTransactionInDto transaction, LimitSnapshot limit,
+                          TransactionCorrelation correlation) {
+        this(transaction, limit, correlation, List.of());
+    }
+
+    public ScoringContext(PostTransactionInDto transaction, LimitSnapshot limit,
+                          TransactionCorrelation correlation, List<Transaction> pending) {
+        this(transaction, limit, correlation, pending, false);
+    }
+
+    private ScoringContext(PostTransactionInDto transaction, LimitSnapshot limit,
+                           TransactionCorrelation correlation, List<Transaction> pending, boolean dryRun) {
+        this.transaction = transaction;
+        this.limit = limit;
+        this.correlation = correlation;
+        this.pending = pending;
+        this.dryRun = dryRun;
+    }
+
+    /** A context for a transaction that is only scored, which leaves the correlation state untouched. */
+    public static ScoringContext dryRun(PostTransactionInDto transaction, LimitSnapshot limit,
+                                        TransactionCorrelation correlation) {
+        return new ScoringContext(transaction, limit, correlation, List.of(), true);
+    }
+
+    public PostTransactionInDto transaction() {
+        return transaction;
+    }
+
+    public LimitSnapshot limit() {
+        return limit;
+    }
+
+    public CorrelationCounts correlationCounts() {
+        if (correlationCounts == null) {
+            if (dryRun) {
+                correlationCounts = correlation.peekDistinctExcluding(transaction.number(), transaction.date(),
+                        transaction.region(), transaction.ip());
+            } else if (pending.isEmpty()) {
+                correlationCounts = correlation.countDistinctExcluding(transaction.number(), transaction.date(),
+                        transaction.region(), transaction.ip());
+            } else {
+                correlationCounts = correlation.countDistinctExcluding(transaction.number(), transaction.date(),
+                        transaction.region(), transaction.ip(), pending);
+            }
+        }
+        return correlationCounts;
+    }
+}
@@ -0,0 +1,35 @@
+package antifraud.rules;
+
+import antifraud.domain.TransactionResult;
+import antifraud.blacklist.StolenCardIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import static antifraud.domain.TransactionResult.*;
+
+@Component
+@Order(2)
+public class StolenCardRule implements FraudRule {
+    private final StolenCardIndex stolenCardIndex;
+
+    @Autowired
+    public StolenCardRule(StolenCardIndex stolenCardIndex) {
+        this.stolenCardIndex = stolenCardIndex;
+    }
+
+    @Override
+    public String name() {
+        return "card-number";
+    }
+
+    @Override
+    public int cost() {
+        return COST_INDEX_LOOKUP;
+    }
+
+    @Override
+    public TransactionResult evaluate(ScoringContext context) {
+        return stolenCardIndex.contains(context.transaction().number()) ? PROHIBITED : ALLOWED;
+    }
+}
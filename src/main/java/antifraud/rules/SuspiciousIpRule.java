@@ -0,0 +1,35 @@
+package antifraud.rules;
+
+import antifraud.domain.TransactionResult;
+import antifraud.blacklist.SuspiciousIpIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import static antifraud.domain.TransactionResult.*;
+
+@Component
+@Order(3)
+public class SuspiciousIpRule implements FraudRule {
+    private final SuspiciousIpIndex suspiciousIpIndex;
+
+    @Autowired
+    public SuspiciousIpRule(SuspiciousIpIndex suspiciousIpIndex) {
+        this.suspiciousIpIndex = suspiciousIpIndex;
+    }
+
+    @Override
+    public String name() {
+        return "ip";
+    }
+
+    @Override
+    public int cost() {
+        return COST_INDEX_LOOKUP;
+    }
+
+    @Override
+    public TransactionResult evaluate(ScoringContext context) {
+        return suspiciousIpIndex.contains(context.transaction().ip()) ? PROHIBITED : ALLOWED;
+    }
+}
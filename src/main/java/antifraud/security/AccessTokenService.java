@@ -0,0 +1,152 @@
+package antifraud.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues short-lived access tokens for users who authenticated once with their password, and verifies them
+ * without a database lookup: a token carries user name, authorities, issue and expiry time, and is signed with
+ * HMAC-SHA256 under {@code antifraud.security.token.secret} (a random key per start if empty, so tokens do not
+ * survive a restart). Tokens expire after {@code antifraud.security.token.ttl}.
+ * <p>
+ * A {@link #userChanged user change} revokes all tokens issued to the user until then, and a change to all users
+ * revokes every token issued so far. The deny-list only holds the user name and time of each change, and an
+ * entry is dropped once every token it revokes has expired anyway.
+ */
+@Component
+public class AccessTokenService implements UserChangeListener {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec secret;
+    private final Duration ttl;
+    private final Clock clock;
+    // lower-case user name -> epoch millis of the last change
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    // epoch millis of the last change to all users
+    private volatile long allRevoked = Long.MIN_VALUE;
+
+    @Autowired
+    public AccessTokenService(@Value("${antifraud.security.token.secret:}") String secret,
+                              @Value("${antifraud.security.token.ttl:PT15M}") Duration ttl) {
+        this(secret.isEmpty() ? randomSecret() : Base64.getDecoder().decode(secret), ttl, Clock.systemUTC());
+    }
+
+    AccessTokenService(byte[] secret, Duration ttl, Clock clock) {
+        if (secret.length < 32) {
+            throw new IllegalArgumentException("Access token secret must have at least 256 bits");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Access token ttl must be positive");
+        }
+        this.secret = new SecretKeySpec(secret, ALGORITHM);
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    private static byte[] randomSecret() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+
+    public Duration ttl() {
+        return ttl;
+    }
+
+    /** A token for the authenticated user that is valid for {@link #ttl}. */
+    public String issue(Authentication authentication) {
+        return issue(authentication, ttl);
+    }
+
+    /** A token for the authenticated user that is valid for the given time, but never longer than {@link #ttl}. */
+    public String issue(Authentication authentication, Duration validity) {
+        Instant issuedAt = clock.instant();
+        Instant expiresAt = issuedAt.plus(validity.compareTo(ttl) < 0 ? validity : ttl);
+        String authorities = String.join(",",
+                AuthorityUtils.authorityListToSet(authentication.getAuthorities()));
+        // the user name goes last, so it may contain the separator
+        String payload = issuedAt.toEpochMilli() + "\n" + expiresAt.toEpochMilli() + "\n" + authorities + "\n" +
+                authentication.getName();
+        String encoded = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encoded + "." + ENCODER.encodeToString(sign(encoded));
+    }
+
+    /** The authentication the token stands for; throws if it is malformed, forged, expired or revoked. */
+    public Authentication verify(String token) {
+        int dot = token.indexOf('.');
+        String[] fields;
+        try {
+            if (dot < 0 || !MessageDigest.isEqual(sign(token.substring(0, dot)),
+                    DECODER.decode(token.substring(dot + 1)))) {
+                throw new BadCredentialsException("Invalid access token");
+            }
+            fields = new String(DECODER.decode(token.substring(0, dot)), StandardCharsets.UTF_8)
+                    .split("\n", 4);
+        } catch (IllegalArgumentException e) {
+            throw new BadCredentialsException("Invalid access token", e);
+        }
+        long issuedAt = Long.parseLong(fields[0]);
+        long expiresAt = Long.parseLong(fields[1]);
+        String username = fields[3];
+        if (clock.millis() >= expiresAt) {
+            throw new CredentialsExpiredException("Access token expired");
+        }
+        Long changedAt = revoked.get(username.toLowerCase(Locale.ROOT));
+        if (issuedAt <= allRevoked || changedAt != null && issuedAt <= changedAt) {
+            throw new BadCredentialsException("Access token revoked");
+        }
+        List<GrantedAuthority> authorities = AuthorityUtils.commaSeparatedStringToAuthorityList(fields[2]);
+        return UsernamePasswordAuthenticationToken.authenticated(username, null, authorities);
+    }
+
+    @Override
+    public void userChanged(String username) {
+        long now = clock.millis();
+        revoked.values().removeIf(changedAt -> changedAt < now - ttl.toMillis());
+        revoked.merge(username.toLowerCase(Locale.ROOT), now, Math::max);
+    }
+
+    @Override
+    public void allUsersChanged() {
+        allRevoked = clock.millis();
+        revoked.clear();
+    }
+
+    int revokedUsers() {
+        return revoked.size();
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(secret);
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package antifraud.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * User name and password authentication that asks the {@link CredentialCache} first and only falls back to the
+ * user lookup and password check of a {@link DaoAuthenticationProvider} on a miss.
+ */
+@Component
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+    private final DaoAuthenticationProvider delegate;
+    private final CredentialCache cache;
+
+    @Autowired
+    public CachingAuthenticationProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder,
+                                         CredentialCache cache) {
+        this.delegate = new DaoAuthenticationProvider(passwordEncoder);
+        this.delegate.setUserDetailsService(userDetailsService);
+        this.cache = cache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) {
+        if (authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+        String key = cache.key(authentication.getName(), authentication.getCredentials().toString());
+        CredentialCache.Verified verified = cache.get(key);
+        if (verified != null) {
+            // a new token per request, the cached principal is shared
+            UsernamePasswordAuthenticationToken result = UsernamePasswordAuthenticationToken.authenticated(
+                    verified.principal(), null, verified.authorities());
+            result.setDetails(authentication.getDetails());
+            return result;
+        }
+        long generation = cache.generation();
+        Authentication result = delegate.authenticate(authentication);
+        if (result.getPrincipal() instanceof UserDetails principal) {
+            cache.put(key, principal, result.getAuthorities(), generation);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
@@ -0,0 +1,171 @@
+package antifraud.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recently verified credentials, so a client sending the same Basic credentials again within
+ * {@code antifraud.security.credential-cache.ttl} skips the BCrypt check. Entries are keyed by an HMAC of user
+ * name and password under a key generated at startup, so neither the password nor a fast hash of it is held.
+ * At most {@code max-size} entries are kept, the least recently used is dropped first. Failed logins are never
+ * cached.
+ * <p>
+ * A {@link #userChanged user change} drops the user's entries and discards every verification that was still
+ * in progress, so a stale principal cannot be cached after the change. Lookups are counted as
+ * {@code antifraud.security.credential-cache.requests} tagged with {@code result} hit or miss, and the number of
+ * entries is published as {@code antifraud.security.credential-cache.size}.
+ */
+@Component
+public class CredentialCache implements UserChangeListener {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final Duration ttl;
+    private final Clock clock;
+    private final SecretKeySpec secret;
+    private final Map<String, Entry> entries;
+    // locks rather than synchronized, so waiting callers do not pin the carrier of a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    private record Entry(String username, UserDetails principal, Collection<? extends GrantedAuthority> authorities,
+                         Instant expiresAt) {
+    }
+
+    /** A cached verification: the principal and the authorities it was granted. */
+    public record Verified(UserDetails principal, Collection<? extends GrantedAuthority> authorities) {
+    }
+
+    @Autowired
+    public CredentialCache(MeterRegistry meterRegistry,
+                           @Value("${antifraud.security.credential-cache.ttl:PT30S}") Duration ttl,
+                           @Value("${antifraud.security.credential-cache.max-size:10000}") int maxSize) {
+        this(meterRegistry, ttl, maxSize, Clock.systemUTC());
+    }
+
+    CredentialCache(MeterRegistry meterRegistry, Duration ttl, int maxSize, Clock clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Credential cache must hold at least one entry");
+        }
+        this.ttl = ttl;
+        this.clock = clock;
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.secret = new SecretKeySpec(key, ALGORITHM);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        hits = meterRegistry.counter("antifraud.security.credential-cache.requests", "result", "hit");
+        misses = meterRegistry.counter("antifraud.security.credential-cache.requests", "result", "miss");
+        Gauge.builder("antifraud.security.credential-cache.size", this, CredentialCache::size)
+                .register(meterRegistry);
+    }
+
+    public String key(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(secret);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            // separates user name and password, so ("ab", "c") and ("a", "bc") differ
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    /** The verification cached under the key, or null if there is none or it has expired. */
+    public Verified get(String key) {
+        Instant now = clock.instant();
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt().isAfter(now)) {
+                hits.increment();
+                return new Verified(entry.principal(), entry.authorities());
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** To be read before a verification starts and passed to {@link #put}. */
+    public long generation() {
+        return generation.get();
+    }
+
+    /** Caches a successful verification, unless a user has changed since it started. */
+    public void put(String key, UserDetails principal, Collection<? extends GrantedAuthority> authorities,
+                    long startedAt) {
+        Entry entry = new Entry(principal.getUsername(), principal, authorities, clock.instant().plus(ttl));
+        lock.lock();
+        try {
+            if (generation.get() == startedAt) {
+                entries.put(key, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void userChanged(String username) {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.values().removeIf(entry -> entry.username().equalsIgnoreCase(username));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void allUsersChanged() {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
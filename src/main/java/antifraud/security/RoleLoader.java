@@ -5,8 +5,14 @@ import antifraud.repository.RoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Component
 public class RoleLoader {
+    private static final List<String> ROLES = List.of("ADMINISTRATOR", "MERCHANT", "SUPPORT");
+
     private final RoleRepository repository;
 
     @Autowired
@@ -15,18 +21,17 @@ public class RoleLoader {
         createRoles();
     }
 
+    // only the missing roles are inserted, so a restart does not run into the unique name constraint
     private void createRoles() {
-        try {
-            repository.save(new Role().setName("ADMINISTRATOR"));
-        } catch (Exception e) {
-        }
-        try {
-            repository.save(new Role().setName("MERCHANT"));
-        } catch (Exception e) {
-        }
-        try {
-            repository.save(new Role().setName("SUPPORT"));
-        } catch (Exception e) {
+        Set<String> existing = repository.findAll().stream()
+                .map(Role::getName)
+                .collect(Collectors.toSet());
+        List<Role> missing = ROLES.stream()
+                .filter(name -> !existing.contains(name))
+                .map(name -> new Role().setName(name))
+                .toList();
+        if (!missing.isEmpty()) {
+            repository.saveAll(missing);
         }
     }
 }
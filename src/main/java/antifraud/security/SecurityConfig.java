@@ -12,6 +12,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 import java.security.SecureRandom;
 
@@ -19,10 +20,13 @@ import java.security.SecureRandom;
 @EnableWebSecurity
 public class SecurityConfig {
     private final RestAuthenticationEntryPoint restAuthenticationEntryPoint;
+    private final AccessTokenService accessTokenService;
 
     @Autowired
-    public SecurityConfig(RestAuthenticationEntryPoint restAuthenticationEntryPoint) {
+    public SecurityConfig(RestAuthenticationEntryPoint restAuthenticationEntryPoint,
+                          AccessTokenService accessTokenService) {
         this.restAuthenticationEntryPoint = restAuthenticationEntryPoint;
+        this.accessTokenService = accessTokenService;
     }
 
     @Bean
@@ -35,6 +39,9 @@ public class SecurityConfig {
             throws Exception {
         return http
                 .httpBasic(c -> c.authenticationEntryPoint(restAuthenticationEntryPoint))
+                // access tokens on /api/antifraud/**, no password check or user lookup per request
+                .addFilterBefore(new AccessTokenFilter(accessTokenService, restAuthenticationEntryPoint),
+                        BasicAuthenticationFilter.class)
                 .csrf(AbstractHttpConfigurer::disable)  // For modifying requests via Postman
                 .exceptionHandling(handling -> handling
                         .authenticationEntryPoint(restAuthenticationEntryPoint) // Handles auth error
@@ -46,11 +53,16 @@ public class SecurityConfig {
                                 // to prevent 401: (endpoints redirecting to the /error/** in case of error
                                 // and /error/ is secured by spring security)
                                 .requestMatchers("/error/**").permitAll()
+                                // the antifraud.* meters describe caches and queues, so only administrators
+                                // see them; health and info stay open for probes
+                                .requestMatchers("/actuator/metrics", "/actuator/metrics/**")
+                                .hasAuthority("ROLE_ADMINISTRATOR")
                                 .requestMatchers("/actuator/**").permitAll()
                                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**","swagger-ui.html",
                                         "/v3/api-docs.yaml").permitAll()
                                 .requestMatchers(HttpMethod.POST, "/api/auth/user").permitAll()
                                 .requestMatchers(HttpMethod.DELETE, "api/clear-data").permitAll()
+                                .requestMatchers(HttpMethod.POST, "/api/auth/token").authenticated()
                                 .requestMatchers(HttpMethod.DELETE, "/api/auth/user/*")
                                 .hasAuthority("ROLE_ADMINISTRATOR")
                                 .requestMatchers(HttpMethod.GET, "/api/auth/list")
@@ -59,11 +71,13 @@ public class SecurityConfig {
                                 .hasAuthority("ROLE_ADMINISTRATOR")
                                 .requestMatchers(HttpMethod.PUT, "/api/auth/role")
                                 .hasAuthority("ROLE_ADMINISTRATOR")
-                                .requestMatchers(HttpMethod.POST, "/api/antifraud/transaction")
+                                .requestMatchers(HttpMethod.POST, "/api/antifraud/transaction",
+                                        "/api/antifraud/transactions", "/api/antifraud/transactions/stream")
                                 .hasAuthority("ROLE_MERCHANT")
                                 .requestMatchers(HttpMethod.POST, "/api/antifraud/suspicious-ip")
                                 .hasAuthority("ROLE_SUPPORT")
-                                .requestMatchers(HttpMethod.DELETE, "/api/antifraud/suspicious-ip/*")
+                                .requestMatchers(HttpMethod.DELETE, "/api/antifraud/suspicious-ip/*",
+                                        "/api/antifraud/suspicious-ip/*/*")
                                 .hasAuthority("ROLE_SUPPORT")
                                 .requestMatchers(HttpMethod.GET, "/api/antifraud/suspicious-ip")
                                 .hasAuthority("ROLE_SUPPORT")
@@ -77,7 +91,12 @@ public class SecurityConfig {
                                 .hasAuthority("ROLE_SUPPORT")
                                 .requestMatchers(HttpMethod.GET, "/api/antifraud/history/*")
                                 .hasAuthority("ROLE_SUPPORT")
-                                .requestMatchers(HttpMethod.PUT, "/api/antifraud/transaction")
+                                .requestMatchers(HttpMethod.GET, "/api/antifraud/transactions/search")
+                                .hasAuthority("ROLE_SUPPORT")
+                                .requestMatchers(HttpMethod.GET, "/api/antifraud/transactions/hourly")
+                                .hasAuthority("ROLE_SUPPORT")
+                                .requestMatchers(HttpMethod.PUT, "/api/antifraud/transaction",
+                                        "/api/antifraud/transactions")
                                 .hasAuthority("ROLE_SUPPORT")
                                 .requestMatchers("/actuator/shutdown").permitAll()      // needs to run test
                                 .anyRequest().denyAll()
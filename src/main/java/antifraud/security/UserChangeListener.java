@@ -0,0 +1,12 @@
+package antifraud.security;
+
+/**
+ * Notified after a user has been locked or unlocked, given another role or deleted, so that anything derived from
+ * the user's previous state can be dropped.
+ */
+public interface UserChangeListener {
+    void userChanged(String username);
+
+    /** Notified after all users have been deleted at once. */
+    void allUsersChanged();
+}
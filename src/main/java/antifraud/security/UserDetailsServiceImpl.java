@@ -7,9 +7,27 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Looks users up as {@link UserPrincipal} projections and keeps them in memory, so only the first login of a user
+ * queries the database. Cached principals are dropped when {@code UserServiceImpl} reports a change to the user;
+ * users that do not exist are not cached, so one registered later is found right away. The cache holds at most
+ * one entry per registered user.
+ */
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserChangeListener {
     private final UserRepository repository;
+    // lower-case user name -> principal
+    private final Map<String, UserPrincipal> principals = new ConcurrentHashMap<>();
+    // held while caching a loaded principal and while dropping one, so a change cannot be overtaken by a load
+    // that read the user before it
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong();
 
     @Autowired
     public UserDetailsServiceImpl(UserRepository repository) {
@@ -18,7 +36,44 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) {
-        return repository.findByUsernameIgnoreCase(username)
+        String key = username.toLowerCase(Locale.ROOT);
+        UserPrincipal principal = principals.get(key);
+        if (principal != null) {
+            return principal;
+        }
+        long startedAt = generation.get();
+        principal = repository.findPrincipalByUsernameIgnoreCase(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found."));
+        lock.lock();
+        try {
+            if (generation.get() == startedAt) {
+                principals.put(key, principal);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return principal;
+    }
+
+    @Override
+    public void userChanged(String username) {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            principals.remove(username.toLowerCase(Locale.ROOT));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void allUsersChanged() {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            principals.clear();
+        } finally {
+            lock.unlock();
+        }
     }
 }
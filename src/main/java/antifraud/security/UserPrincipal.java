@@ -0,0 +1,45 @@
+package antifraud.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What authentication needs to know about a user, read in one query with the role name instead of loading the
+ * {@link antifraud.domain.User} entity and its role. Immutable, so it can be cached and shared between requests;
+ * the authority list is built once per role.
+ */
+public record UserPrincipal(Long id, String username, String password, String role, boolean locked)
+        implements UserDetails {
+    private static final Map<String, List<GrantedAuthority>> AUTHORITIES = new ConcurrentHashMap<>();
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return AUTHORITIES.computeIfAbsent(role, name -> AuthorityUtils.createAuthorityList("ROLE_" + name));
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return !locked;
+    }
+
+    // the password hash stays out of logs
+    @Override
+    public String toString() {
+        return "UserPrincipal[id=" + id + ", username=" + username + ", role=" + role + ", locked=" + locked + "]";
+    }
+}
@@ -2,14 +2,29 @@ package antifraud.service;
 
 import antifraud.dto.*;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
 public interface AntiFraudService {
-    PostTransactionOutDto postTransaction(PostTransactionInDto postTransactionInDto);
+    PostTransactionOutDto postTransaction(PostTransactionInDto postTransactionInDto, String merchant);
+
+    PostTransactionOutDto scoreTransaction(PostTransactionInDto postTransactionInDto, String merchant);
+
+    PostTransactionOutDto[] postTransactions(List<PostTransactionInDto> postTransactionInDtos, String merchant);
 
     TransactionOutDto updateTransactionFeedback(UpdateTransactionFeedback feedback);
 
-    TransactionOutDto[] getTransactionHistory();
+    TransactionFeedbackStatusDto[] updateTransactionFeedbacks(List<UpdateTransactionFeedback> feedbacks);
+
+    TransactionOutDto[] getTransactionHistory(long afterId, int limit);
+
+    TransactionOutDto[] getTransactionHistoryByNumber(String number, long afterId, int limit);
+
+    List<Map<String, Object>> searchTransactions(TransactionSearchCriteria criteria, List<String> fields,
+                                                 long afterId, int limit);
 
-    TransactionOutDto[] getTransactionHistoryByNumber(String number);
+    List<HourlyTotalsDto> getHourlyTotals(LocalDateTime from, LocalDateTime to);
 
     SuspiciousIpOutDto postSuspiciousIp(SuspiciousIpInDto suspiciousIpInDto);
 
@@ -1,23 +1,39 @@
 package antifraud.service.impl;
 
+import antifraud.blacklist.IpRange;
+import antifraud.blacklist.StolenCardIndex;
+import antifraud.blacklist.SuspiciousIpIndex;
+import antifraud.correlation.TransactionCorrelation;
 import antifraud.domain.StolenCard;
 import antifraud.domain.SuspiciousIp;
 import antifraud.domain.Transaction;
-import antifraud.domain.TransactionLimit;
+import antifraud.domain.TransactionResult;
 import antifraud.dto.*;
 import antifraud.exception.*;
+import antifraud.limits.TransactionLimits;
 import antifraud.mapper.AntiFraudMapper;
+import antifraud.persistence.TransactionWriter;
 import antifraud.repository.StolenCardRepository;
 import antifraud.repository.SuspiciousIpRepository;
-import antifraud.repository.TransactionLimitRepository;
 import antifraud.repository.TransactionRepository;
+import antifraud.rules.FraudRulePipeline;
+import antifraud.rules.ScoringContext;
 import antifraud.service.AntiFraudService;
+import jakarta.persistence.Tuple;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class AntiFraudServiceImpl implements AntiFraudService {
@@ -25,188 +41,178 @@ public class AntiFraudServiceImpl implements AntiFraudService {
     SuspiciousIpRepository suspiciousIPRepository;
     StolenCardRepository stolenCardRepository;
     AntiFraudMapper mapper;
-    TransactionLimitRepository transactionLimitRepository;
-    TransactionLimit transactionLimit;
+    TransactionLimits transactionLimits;
+    TransactionCorrelation transactionCorrelation;
+    StolenCardIndex stolenCardIndex;
+    SuspiciousIpIndex suspiciousIpIndex;
+    FraudRulePipeline rulePipeline;
+    TransactionWriter transactionWriter;
 
     @Autowired
     public AntiFraudServiceImpl(TransactionRepository transactionRepository,
                                 SuspiciousIpRepository suspiciousIPRepository,
                                 StolenCardRepository stolenCardRepository,
                                 AntiFraudMapper mapper,
-                                TransactionLimitRepository transactionLimitRepository,
-                                @Qualifier("defaultMaxAllowed")
-                                Long defaultMaxAllowed,
-                                @Qualifier("defaultMaxManual")
-                                Long defaultMaxManual) {
+                                TransactionLimits transactionLimits,
+                                TransactionCorrelation transactionCorrelation,
+                                StolenCardIndex stolenCardIndex,
+                                SuspiciousIpIndex suspiciousIpIndex,
+                                FraudRulePipeline rulePipeline,
+                                TransactionWriter transactionWriter) {
         this.transactionRepository = transactionRepository;
         this.suspiciousIPRepository = suspiciousIPRepository;
         this.stolenCardRepository = stolenCardRepository;
         this.mapper = mapper;
-        this.transactionLimitRepository = transactionLimitRepository;
-        transactionLimit = transactionLimitRepository.findById(1L)
-                .orElseGet(() -> {
-                    return transactionLimitRepository.save(new TransactionLimit(defaultMaxAllowed, defaultMaxManual));
-                });
+        this.transactionLimits = transactionLimits;
+        this.transactionCorrelation = transactionCorrelation;
+        this.stolenCardIndex = stolenCardIndex;
+        this.suspiciousIpIndex = suspiciousIpIndex;
+        this.rulePipeline = rulePipeline;
+        this.transactionWriter = transactionWriter;
     }
 
     @Override
-    public PostTransactionOutDto postTransaction(PostTransactionInDto postTransactionInDto) {
-        String result;
-        StringBuilder info = new StringBuilder();
+    public PostTransactionOutDto postTransaction(PostTransactionInDto postTransactionInDto, String merchant) {
+        PostTransactionOutDto decision = scoreTransaction(postTransactionInDto, merchant, List.of());
 
-        if (postTransactionInDto.amount() <= transactionLimit.getMaxAllowed()) {
-            result = "ALLOWED";
-            info.append("none");
-        } else if (postTransactionInDto.amount() <= transactionLimit.getMaxManual()) {
-            result = "MANUAL_PROCESSING";
-            info.append("amount");
-        } else {
-            result = "PROHIBITED";
-            info.append("amount");
-        }
-
-        if (stolenCardRepository.existsByNumber(postTransactionInDto.number())) {
-            if (result.equals("PROHIBITED")) {
-                info.append(", ");
-            } else {
-                result = "PROHIBITED";
-                info.setLength(0);
-            }
-            info.append("card-number");
-        }
-
-        if (suspiciousIPRepository.existsByIp(postTransactionInDto.ip())) {
-            if (result.equals("PROHIBITED")) {
-                info.append(", ");
-            } else {
-                result = "PROHIBITED";
-                info.setLength(0);
-            }
-            info.append("ip");
-        }
-
-        LocalDateTime oneHourAgo = postTransactionInDto.date().minusHours(1);
-        Long countTransactionsDiffRegion = transactionRepository.
-                countDistinctRegionsInPeriodExcludingCurrentRegion(oneHourAgo, postTransactionInDto.date(),
-                        postTransactionInDto.region());
+        Transaction newTransaction = mapper.toTransaction(postTransactionInDto)
+                .setMerchant(merchant)
+                .setResult(decision.result());
+        transactionWriter.write(newTransaction);
+        transactionCorrelation.record(newTransaction);
+        return decision;
+    }
 
-        if (countTransactionsDiffRegion > 2) {
-            if (result.equals("PROHIBITED")) {
-                info.append(", ");
-            } else {
-                result = "PROHIBITED";
-                info.setLength(0);
-            }
-            info.append("region-correlation");
-        } else if (countTransactionsDiffRegion == 2 && !result.equals("PROHIBITED")) {
-            if (result.equals("MANUAL_PROCESSING")) {
-                info.append(", ");
-            } else {
-                result = "MANUAL_PROCESSING";
-                info.setLength(0);
-            }
-            info.append("region-correlation");
-        }
+    // a dry run: decided on like a posted transaction, but without changing any state
+    @Override
+    public PostTransactionOutDto scoreTransaction(PostTransactionInDto postTransactionInDto, String merchant) {
+        return rulePipeline.evaluate(ScoringContext.dryRun(postTransactionInDto,
+                transactionLimits.current(merchant, postTransactionInDto.region()), transactionCorrelation));
+    }
 
-        Long countTransactionUniqueDiffIp = transactionRepository
-                .countDistinctIpsInPeriodExcludingCurrentIp(oneHourAgo, postTransactionInDto.date(),
-                        postTransactionInDto.ip());
+    // pending: transactions scored but not recorded yet, counted by the correlation checks as if they had been
+    private PostTransactionOutDto scoreTransaction(PostTransactionInDto postTransactionInDto, String merchant,
+                                                   List<Transaction> pending) {
+        return rulePipeline.evaluate(new ScoringContext(postTransactionInDto,
+                transactionLimits.current(merchant, postTransactionInDto.region()), transactionCorrelation,
+                pending));
+    }
 
-        if (countTransactionUniqueDiffIp > 2) {
-            if (result.equals("PROHIBITED")) {
-                info.append(", ");
-            } else {
-                result = "PROHIBITED";
-                info.setLength(0);
-            }
-            info.append("ip-correlation");
-        } else if (countTransactionUniqueDiffIp == 2 && !result.equals("PROHIBITED")) {
-            if (result.equals("MANUAL_PROCESSING")) {
-                info.append(", ");
-            } else {
-                result = "MANUAL_PROCESSING";
-                info.setLength(0);
-            }
-            info.append("ip-correlation");
+    @Override
+    public PostTransactionOutDto[] postTransactions(List<PostTransactionInDto> postTransactionInDtos,
+                                                    String merchant) {
+        PostTransactionOutDto[] decisions = new PostTransactionOutDto[postTransactionInDtos.size()];
+        List<Transaction> newTransactions = new ArrayList<>(postTransactionInDtos.size());
+        for (int i = 0; i < decisions.length; i++) {
+            PostTransactionInDto postTransactionInDto = postTransactionInDtos.get(i);
+            // later items of the batch are correlated with the earlier ones, as if they had been posted one by one
+            decisions[i] = scoreTransaction(postTransactionInDto, merchant, newTransactions);
+            newTransactions.add(mapper.toTransaction(postTransactionInDto)
+                    .setMerchant(merchant)
+                    .setResult(decisions[i].result()));
         }
-
-        Transaction newTransaction = mapper.toTransaction(postTransactionInDto)
-                .setResult(result)
-                .setFeedback("");
-        transactionRepository.save(newTransaction);
-        return new PostTransactionOutDto(result, info.toString());
+        transactionWriter.writeAll(newTransactions);
+        // recorded only once stored, so a failed write leaves nothing behind in the correlation state
+        newTransactions.forEach(transactionCorrelation::record);
+        return decisions;
     }
 
     @Override
     public TransactionOutDto updateTransactionFeedback(UpdateTransactionFeedback feedback) {
+        transactionWriter.flush();
         Transaction transaction = transactionRepository.findById(feedback.transactionId())
                 .orElseThrow(TransactionNotFoundException::new);
-        if (!transaction.getFeedback().isEmpty()) {
-            throw new TransactionFeedbackAlreadyExistsException();
-        }
-
-        // if validity equals feedback: exception
-        if (transaction.getResult().equals(feedback.feedback())) {
-            throw new TransactionFeedbackUnprocessableException();
+        TransactionResult feedbackResult = TransactionResult.valueOf(feedback.feedback());
+        RuntimeException rejection = rejection(transaction, feedbackResult);
+        if (rejection != null) {
+            throw rejection;
         }
 
         // save feedback into db
-        transaction.setFeedback(feedback.feedback());
+        transaction.setFeedback(feedbackResult);
         transactionRepository.save(transaction);
 
-        // adjust limits
-        if (transaction.getResult().equals("ALLOWED")) {
-            // dec maxAllowed
-            transactionLimit.setMaxAllowed(updateLimit(transactionLimit.getMaxAllowed(),
-                    transaction.getAmount(), false));
-            if (feedback.feedback().equals("PROHIBITED")) {
-                // dec maxManual
-                transactionLimit.setMaxManual(updateLimit(transactionLimit.getMaxManual(),
-                        transaction.getAmount(), false));
-            }
-        } else if (transaction.getResult().equals("MANUAL_PROCESSING")) {
-            if (feedback.feedback().equals("ALLOWED")) {
-                // inc maxAllowed
-                transactionLimit.setMaxAllowed(updateLimit(transactionLimit.getMaxAllowed(),
-                        transaction.getAmount(), true));
+        // adjust the limits of the merchant and region the transaction was posted for
+        transactionLimits.applyFeedback(transaction.getMerchant(), transaction.getRegion(), transaction.getResult(),
+                feedbackResult, transaction.getAmount());
+        return mapper.toDto(transaction);
+    }
+
+    @Override
+    public TransactionFeedbackStatusDto[] updateTransactionFeedbacks(List<UpdateTransactionFeedback> feedbacks) {
+        transactionWriter.flush();
+        Map<Long, Transaction> transactions = new HashMap<>();
+        transactionRepository.findAllById(feedbacks.stream().map(UpdateTransactionFeedback::transactionId).toList())
+                .forEach(transaction -> transactions.put(transaction.getId(), transaction));
+
+        // items are checked in order, so a second feedback on the same transaction is a conflict
+        TransactionFeedbackStatusDto[] statuses = new TransactionFeedbackStatusDto[feedbacks.size()];
+        List<Transaction> updated = new ArrayList<>();
+        for (int i = 0; i < statuses.length; i++) {
+            Long transactionId = feedbacks.get(i).transactionId();
+            Transaction transaction = transactions.get(transactionId);
+            TransactionResult feedbackResult = TransactionResult.valueOf(feedbacks.get(i).feedback());
+            RuntimeException rejection = transaction == null
+                    ? new TransactionNotFoundException()
+                    : rejection(transaction, feedbackResult);
+            if (rejection != null) {
+                statuses[i] = new TransactionFeedbackStatusDto(transactionId, status(rejection),
+                        rejection.getMessage(), null);
             } else {
-                // dec maxManual
-                transactionLimit.setMaxManual(updateLimit(transactionLimit.getMaxManual(),
-                        transaction.getAmount(), false));
-            }
-        } else {
-            // inc Manual
-            transactionLimit.setMaxManual(updateLimit(transactionLimit.getMaxManual(),
-                    transaction.getAmount(), true));
-            if (feedback.feedback().equals("ALLOWED")) {
-                // inc maxAllowed
-                transactionLimit.setMaxAllowed(updateLimit(transactionLimit.getMaxAllowed(),
-                        transaction.getAmount(), true));
+                transaction.setFeedback(feedbackResult);
+                updated.add(transaction);
+                statuses[i] = new TransactionFeedbackStatusDto(transactionId, HttpStatus.OK.value(), null,
+                        mapper.toDto(transaction));
             }
         }
 
-        // save new limit
-        transactionLimit = transactionLimitRepository.save(transactionLimit);
-        return mapper.toDto(transaction);
+        // one batched write; the limits only change once it has succeeded
+        transactionRepository.saveAll(updated);
+        for (Transaction transaction : updated) {
+            transactionLimits.applyFeedback(transaction.getMerchant(), transaction.getRegion(),
+                    transaction.getResult(), transaction.getFeedback(), transaction.getAmount());
+        }
+        return statuses;
+    }
+
+    // null if the feedback can be applied to the transaction
+    private static RuntimeException rejection(Transaction transaction, TransactionResult feedback) {
+        if (transaction.getFeedback() != null) {
+            return new TransactionFeedbackAlreadyExistsException();
+        }
+        // if validity equals feedback: exception
+        if (transaction.getResult() == feedback) {
+            return new TransactionFeedbackUnprocessableException();
+        }
+        return null;
     }
 
-    private Long updateLimit(Long currentLimit, Long transactionValue, Boolean increase) {
-        return (long) Math.ceil((0.8 * currentLimit +
-                (increase ? 0.2 * transactionValue : -0.2 * transactionValue)));
+    // the status the single-item endpoint answers the rejection with
+    private static int status(RuntimeException rejection) {
+        return switch (rejection) {
+            case TransactionNotFoundException e -> HttpStatus.NOT_FOUND.value();
+            case TransactionFeedbackAlreadyExistsException e -> HttpStatus.CONFLICT.value();
+            default -> HttpStatus.UNPROCESSABLE_ENTITY.value();
+        };
     }
 
     @Override
-    public TransactionOutDto[] getTransactionHistory() {
-        List<Transaction> transactions = transactionRepository.findAllByOrderByIdAsc();
+    public TransactionOutDto[] getTransactionHistory(long afterId, int limit) {
+        transactionWriter.flush();
+        List<Transaction> transactions = transactionRepository.findAllByIdGreaterThanOrderByIdAsc(afterId,
+                Limit.of(limit));
         return transactions.stream()
                 .map(mapper::toDto)
                 .toArray(TransactionOutDto[]::new);
     }
 
     @Override
-    public TransactionOutDto[] getTransactionHistoryByNumber(String number) {
-        List<Transaction> transactions = transactionRepository.findAllByNumberOrderByIdAsc(number);
-        if (transactions.isEmpty()) {
+    public TransactionOutDto[] getTransactionHistoryByNumber(String number, long afterId, int limit) {
+        transactionWriter.flush();
+        List<Transaction> transactions = transactionRepository.findAllByNumberAndIdGreaterThanOrderByIdAsc(number,
+                afterId, Limit.of(limit));
+        // an empty later page just means the history has been read to the end
+        if (transactions.isEmpty() && afterId == 0) {
             throw new TransactionNotFoundException();
         }
         return transactions.stream()
@@ -214,19 +220,56 @@ public class AntiFraudServiceImpl implements AntiFraudService {
                 .toArray(TransactionOutDto[]::new);
     }
 
+    @Override
+    public List<Map<String, Object>> searchTransactions(TransactionSearchCriteria criteria, List<String> fields,
+                                                        long afterId, int limit) {
+        transactionWriter.flush();
+        // the id is always returned, as the key of the next page
+        Set<TransactionField> selected = EnumSet.of(TransactionField.TRANSACTION_ID);
+        if (fields == null || fields.isEmpty()) {
+            selected.addAll(EnumSet.allOf(TransactionField.class));
+        } else {
+            fields.forEach(field -> selected.add(TransactionField.fromFieldName(field)));
+        }
+        List<Map<String, Object>> transactions = new ArrayList<>();
+        for (Tuple row : transactionRepository.search(criteria, selected, afterId, limit)) {
+            Map<String, Object> transaction = new LinkedHashMap<>();
+            for (TransactionField field : selected) {
+                transaction.put(field.fieldName(), field.output(row.get(field.name())));
+            }
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    @Override
+    public List<HourlyTotalsDto> getHourlyTotals(LocalDateTime from, LocalDateTime to) {
+        transactionWriter.flush();
+        // whole hours only, as the roll-ups of archived transactions cannot be split
+        return transactionRepository.hourlyTotals(from.truncatedTo(ChronoUnit.HOURS),
+                to.truncatedTo(ChronoUnit.HOURS));
+    }
+
     @Override
     public SuspiciousIpOutDto postSuspiciousIp(SuspiciousIpInDto suspiciousIpInDto) {
-        if (suspiciousIPRepository.existsByIp(suspiciousIpInDto.ip())) {
+        // store CIDR blocks by network address, so 10.1.2.3/8 and 10.0.0.0/8 are the same entry
+        IpRange range = IpRange.parse(suspiciousIpInDto.ip());
+        if (suspiciousIPRepository.existsByIp(range.toString())) {
             throw new SuspiciousIpExistsException();
         }
-        return mapper.toDto(suspiciousIPRepository.save(mapper.toSuspisiousIp(suspiciousIpInDto)));
+        SuspiciousIp suspiciousIp = suspiciousIPRepository.save(mapper.toSuspisiousIp(suspiciousIpInDto)
+                .setIp(range.toString()));
+        suspiciousIpIndex.add(range);
+        return mapper.toDto(suspiciousIp);
     }
 
     @Override
     public void deleteSuspiciousIp(String ip) {
-        SuspiciousIp suspiciousIp = suspiciousIPRepository.findByIp(ip)
+        IpRange range = IpRange.parse(ip);
+        SuspiciousIp suspiciousIp = suspiciousIPRepository.findByIp(range.toString())
                 .orElseThrow(SuspiciousIpNotFoundException::new);
         suspiciousIPRepository.delete(suspiciousIp);
+        suspiciousIpIndex.remove(range);
     }
 
     @Override
@@ -242,7 +285,9 @@ public class AntiFraudServiceImpl implements AntiFraudService {
         if (stolenCardRepository.existsByNumber(stolenCardInDto.number())) {
             throw new StolenCardExistsException();
         }
-        return mapper.toDto(stolenCardRepository.save(mapper.toStolenCard(stolenCardInDto)));
+        StolenCard stolenCard = stolenCardRepository.save(mapper.toStolenCard(stolenCardInDto));
+        stolenCardIndex.add(stolenCard.getNumber());
+        return mapper.toDto(stolenCard);
     }
 
     @Override
@@ -250,6 +295,7 @@ public class AntiFraudServiceImpl implements AntiFraudService {
         StolenCard stolenCard = stolenCardRepository.findByNumber(number)
                 .orElseThrow(StolenCardNotFoundException::new);
         stolenCardRepository.delete(stolenCard);
+        stolenCardIndex.remove(stolenCard.getNumber());
     }
 
     @Override
@@ -12,6 +12,7 @@ import antifraud.exception.UserNotFoundException;
 import antifraud.mapper.UserMapper;
 import antifraud.repository.RoleRepository;
 import antifraud.repository.UserRepository;
+import antifraud.security.UserChangeListener;
 import antifraud.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -25,16 +26,19 @@ public class UserServiceImpl implements UserService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder encoder;
     private final UserMapper mapper;
+    private final List<UserChangeListener> userChangeListeners;
 
     @Autowired
     public UserServiceImpl(UserRepository userRepository,
                            RoleRepository roleRepository,
                            PasswordEncoder encoder,
-                           UserMapper mapper) {
+                           UserMapper mapper,
+                           List<UserChangeListener> userChangeListeners) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.encoder = encoder;
         this.mapper = mapper;
+        this.userChangeListeners = userChangeListeners;
     }
 
     @Override
@@ -70,6 +74,7 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findByUsernameIgnoreCase(username)
                 .orElseThrow(UserNotFoundException::new);
         userRepository.delete(user);
+        userChanged(user);
     }
 
     @Override
@@ -81,6 +86,7 @@ public class UserServiceImpl implements UserService {
         }
         user.setRole(roleRepository.findByName(changeRoleDto.role()));
         User user1 = userRepository.save(user);
+        userChanged(user1);
         return mapper.toDto(user1);
     }
 
@@ -93,5 +99,11 @@ public class UserServiceImpl implements UserService {
         }
         user.setLocked(changeAccessDto.operation().equals("LOCK"));
         userRepository.save(user);
+        userChanged(user);
+    }
+
+    // after the change is saved, so nothing derived from the old state can be rebuilt from the database
+    private void userChanged(User user) {
+        userChangeListeners.forEach(listener -> listener.userChanged(user.getUsername()));
     }
 }
@@ -0,0 +1,88 @@
+package antifraud.streaming;
+
+import antifraud.domain.Transaction;
+import antifraud.dto.TransactionOutDto;
+import antifraud.exception.TransactionNotFoundException;
+import antifraud.mapper.AntiFraudMapper;
+import antifraud.persistence.TransactionWriter;
+import antifraud.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole transaction history as one JSON array without holding it in memory: rows are read from a
+ * database cursor and each is serialized and detached from the persistence context before the next one is
+ * fetched, so memory use depends on the fetch size, not on the number of transactions.
+ */
+@Component
+public class TransactionHistoryStreamer {
+    private final TransactionRepository repository;
+    private final TransactionWriter transactionWriter;
+    private final AntiFraudMapper mapper;
+    private final EntityManager entityManager;
+    private final ObjectWriter writer;
+
+    @Autowired
+    public TransactionHistoryStreamer(TransactionRepository repository, TransactionWriter transactionWriter,
+                                      AntiFraudMapper mapper, EntityManager entityManager,
+                                      ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.transactionWriter = transactionWriter;
+        this.mapper = mapper;
+        this.entityManager = entityManager;
+        // the output belongs to the caller, and flushing after every row would defeat the generator's buffer
+        this.writer = objectMapper.writerFor(TransactionOutDto.class)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /** Returns the number of transactions written. */
+    @Transactional(readOnly = true)
+    public long writeHistory(OutputStream out) throws IOException {
+        transactionWriter.flush();
+        try (Stream<Transaction> transactions = repository.streamAllByOrderByIdAsc()) {
+            return write(transactions.iterator(), out);
+        }
+    }
+
+    /** Returns the number of transactions written; nothing is written if the card has no transactions. */
+    @Transactional(readOnly = true)
+    public long writeHistoryByNumber(String number, OutputStream out) throws IOException {
+        transactionWriter.flush();
+        try (Stream<Transaction> transactions = repository.streamAllByNumberOrderByIdAsc(number)) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            // checked before the first byte is written, so the error can still become a 404 response
+            if (!iterator.hasNext()) {
+                throw new TransactionNotFoundException();
+            }
+            return write(iterator, out);
+        }
+    }
+
+    private long write(Iterator<Transaction> transactions, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            generator.writeStartArray();
+            while (transactions.hasNext()) {
+                Transaction transaction = transactions.next();
+                writer.writeValue(generator, mapper.toDto(transaction));
+                entityManager.detach(transaction);
+                count++;
+            }
+            generator.writeEndArray();
+        }
+        return count;
+    }
+}
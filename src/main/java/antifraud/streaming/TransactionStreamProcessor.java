@@ -0,0 +1,118 @@
+package antifraud.streaming;
+
+import antifraud.dto.PostTransactionInDto;
+import antifraud.dto.TransactionStreamErrorDto;
+import antifraud.exception.ValidationErrorResponse;
+import antifraud.service.AntiFraudService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scores a stream of newline-delimited {@link PostTransactionInDto} JSON and writes one line of NDJSON per input
+ * line: the decision, or a {@link TransactionStreamErrorDto} for a line that cannot be parsed or validated.
+ * <p>
+ * Lines are read, scored and answered one at a time on the request thread, so memory does not grow with the
+ * stream and reading simply pauses (and TCP flow control holds the sender back) while a line is being scored.
+ * Output is flushed whenever no further input is buffered, so the sender sees every decision before the
+ * processor blocks waiting for more input.
+ */
+@Component
+public class TransactionStreamProcessor {
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final AntiFraudService service;
+    private final Validator validator;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    @Autowired
+    public TransactionStreamProcessor(AntiFraudService service, Validator validator, ObjectMapper objectMapper) {
+        this.service = service;
+        this.validator = validator;
+        this.reader = objectMapper.readerFor(PostTransactionInDto.class);
+        // one document per line, on an output that stays open and is flushed by process()
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * Scores the transactions as posted by the given merchant. Returns the number of lines read, including blank
+     * and rejected ones.
+     */
+    public long process(InputStream in, OutputStream out, String merchant) throws IOException {
+        BufferedReader input = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Writer output = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        StringBuilder line = new StringBuilder();
+        long lineNumber = 0;
+        while (readLine(input, line)) {
+            lineNumber++;
+            String text = line.toString();
+            if (!text.isBlank()) {
+                writer.writeValue(output, score(lineNumber, text, merchant));
+                output.write('\n');
+            }
+            if (!input.ready()) {
+                output.flush();
+            }
+        }
+        output.flush();
+        return lineNumber;
+    }
+
+    private Object score(long lineNumber, String line, String merchant) {
+        if (line.length() > MAX_LINE_LENGTH) {
+            return new TransactionStreamErrorDto(lineNumber, "Line exceeds " + MAX_LINE_LENGTH + " characters",
+                    List.of());
+        }
+        PostTransactionInDto transaction;
+        try {
+            transaction = reader.readValue(line);
+        } catch (JsonProcessingException e) {
+            return new TransactionStreamErrorDto(lineNumber, "Malformed JSON", List.of());
+        }
+        if (transaction == null) {
+            // a JSON null, which the validator would reject with an exception
+            return new TransactionStreamErrorDto(lineNumber, "Expected a transaction object", List.of());
+        }
+        Set<ConstraintViolation<PostTransactionInDto>> violations = validator.validate(transaction);
+        if (!violations.isEmpty()) {
+            return new TransactionStreamErrorDto(lineNumber, "Validation failed for request parameters",
+                    violations.stream()
+                            .map(violation -> new ValidationErrorResponse.FieldError(
+                                    violation.getPropertyPath().toString(), violation.getMessage()))
+                            .toList());
+        }
+        return service.postTransaction(transaction, merchant);
+    }
+
+    // reads the next line into line (keeping at most MAX_LINE_LENGTH + 1 characters); false at end of input
+    private static boolean readLine(BufferedReader input, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c = input.read();
+        if (c == -1) {
+            return false;
+        }
+        while (c != -1 && c != '\n') {
+            if (c != '\r' && line.length() <= MAX_LINE_LENGTH) {
+                line.append((char) c);
+            }
+            c = input.read();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,230 @@
+package antifraud.warmup;
+
+import antifraud.dto.PostTransactionInDto;
+import antifraud.dto.PostTransactionOutDto;
+import antifraud.security.AccessTokenService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms up the JIT before the application reports ready: sends synthetic transactions through the whole request
+ * path (HTTP, token check, JSON, validation including the Luhn check, controller, rules) and card history queries
+ * to the application's own port. Spring Boot only switches the readiness state to {@code ACCEPTING_TRAFFIC}
+ * after all application runners have returned, so {@code /actuator/health/readiness} reports
+ * {@code OUT_OF_SERVICE} until the warm-up is done and load balancers keep real traffic away from cold code.
+ * <p>
+ * The synthetic requests carry an access token with the {@value #DRY_RUN_AUTHORITY} authority, which only the
+ * warm-up can issue: their transactions are decided on, but neither stored nor added to the correlation state,
+ * and they are not recorded in any merchant's limits. The token expires after {@code antifraud.warmup.timeout}
+ * at the latest and is revoked as soon as the warm-up ends.
+ * <p>
+ * Active when {@code antifraud.warmup.enabled=true}. Sends {@code antifraud.warmup.requests} requests in rounds
+ * of {@value #ROUND_SIZE}, one at a time, and stops earlier once the median latency of a round is at or below
+ * {@code antifraud.warmup.target-latency} (if set) or after {@code antifraud.warmup.timeout}. A failing request
+ * ends the warm-up without stopping the start. The warm-up duration, the number of requests and the median
+ * latency of the last round are logged and published as {@code antifraud.warmup.duration},
+ * {@code antifraud.warmup.requests} and {@code antifraud.warmup.latency}.
+ */
+@Component
+public class WarmUpRunner implements ApplicationRunner {
+    public static final String DRY_RUN_AUTHORITY = "DRY_RUN";
+    static final String USERNAME = "warm-up";
+    static final int ROUND_SIZE = 100;
+    // every tenth request reads a card's history instead of posting a transaction
+    static final int QUERY_EVERY = 10;
+    private static final Logger log = LoggerFactory.getLogger(WarmUpRunner.class);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final long[] AMOUNTS = {50, 180, 200, 450, 900, 1500, 2500};
+    private static final String[] NUMBERS = {"4532015112830366", "4000008449433403", "4539578763621486",
+            "4111111111111111"};
+    private static final String[] REGIONS = {"EAP", "ECA", "HIC", "LAC", "MENA", "SA", "SSA"};
+
+    private final AccessTokenService tokenService;
+    private final ObjectMapper objectMapper;
+    private final Environment environment;
+    private final boolean enabled;
+    private final int requests;
+    private final Duration timeout;
+    private final Duration targetLatency;
+    private final AtomicLong durationNanos = new AtomicLong();
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private final AtomicLong sentRequests = new AtomicLong();
+
+    @Autowired
+    public WarmUpRunner(AccessTokenService tokenService,
+                        ObjectMapper objectMapper,
+                        Environment environment,
+                        MeterRegistry meterRegistry,
+                        @Value("${antifraud.warmup.enabled:false}") boolean enabled,
+                        @Value("${antifraud.warmup.requests:5000}") int requests,
+                        @Value("${antifraud.warmup.timeout:PT60S}") Duration timeout,
+                        @Value("${antifraud.warmup.target-latency:PT0S}") Duration targetLatency) {
+        if (requests < 1) {
+            throw new IllegalArgumentException("antifraud.warmup.requests must be positive");
+        }
+        this.tokenService = tokenService;
+        this.objectMapper = objectMapper;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.requests = requests;
+        this.timeout = timeout;
+        this.targetLatency = targetLatency;
+        TimeGauge.builder("antifraud.warmup.duration", durationNanos, TimeUnit.NANOSECONDS, AtomicLong::get)
+                .register(meterRegistry);
+        TimeGauge.builder("antifraud.warmup.latency", latencyNanos, TimeUnit.NANOSECONDS, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("antifraud.warmup.requests", sentRequests, AtomicLong::get).register(meterRegistry);
+    }
+
+    /** Whether a request was sent by the warm-up and must not leave any trace. */
+    public static boolean isDryRun(Principal principal) {
+        if (principal instanceof Authentication authentication) {
+            for (GrantedAuthority authority : authentication.getAuthorities()) {
+                if (DRY_RUN_AUTHORITY.equals(authority.getAuthority())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (port == null) {
+            log.info("Skipping warm-up: no web server is running");
+            return;
+        }
+        String base = "http://localhost:" + port + environment.getProperty("server.servlet.context-path", "");
+        String authorization = "Bearer " + tokenService.issue(UsernamePasswordAuthenticationToken.authenticated(
+                USERNAME, null, AuthorityUtils.createAuthorityList("ROLE_MERCHANT", "ROLE_SUPPORT",
+                        DRY_RUN_AUTHORITY)), timeout);
+        LocalDateTime date = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        log.info("Warming up with up to {} requests to {}", requests, base);
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build()) {
+            Result result = warmUp(i -> send(client, base, authorization, i, date));
+            log.info("Warm-up finished after {} requests in {} ms; median latency went from {} us to {} us",
+                    result.requests(), result.duration().toMillis(), result.firstLatency().toNanos() / 1000,
+                    result.latency().toNanos() / 1000);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.warn("Warm-up stopped after {} requests: {}", sentRequests.get(), e.toString());
+        } finally {
+            // the token carries the support and merchant roles, so it must not outlive the warm-up
+            tokenService.userChanged(USERNAME);
+        }
+    }
+
+    Result warmUp(Exchange exchange) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long[] latencies = new long[ROUND_SIZE];
+        long firstLatency = -1;
+        long latency = 0;
+        int sent = 0;
+        while (sent < requests && System.nanoTime() - deadline < 0) {
+            int round = Math.min(ROUND_SIZE, requests - sent);
+            for (int i = 0; i < round; i++) {
+                long requestStart = System.nanoTime();
+                exchange.send(sent);
+                latencies[i] = System.nanoTime() - requestStart;
+                sentRequests.set(++sent);
+            }
+            latency = median(latencies, round);
+            if (firstLatency < 0) {
+                firstLatency = latency;
+            }
+            latencyNanos.set(latency);
+            durationNanos.set(System.nanoTime() - start);
+            if (targetLatency.isPositive() && latency <= targetLatency.toNanos()) {
+                break;
+            }
+        }
+        return new Result(sent, Duration.ofNanos(System.nanoTime() - start),
+                Duration.ofNanos(Math.max(firstLatency, 0)), Duration.ofNanos(latency));
+    }
+
+    private void send(HttpClient client, String base, String authorization, int i, LocalDateTime date)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .timeout(REQUEST_TIMEOUT)
+                .header(HttpHeaders.AUTHORIZATION, authorization);
+        boolean query = i % QUERY_EVERY == QUERY_EVERY - 1;
+        if (query) {
+            request.uri(URI.create(base + "/api/antifraud/history/" + NUMBERS[i % NUMBERS.length] + "?limit=10"))
+                    .GET();
+        } else {
+            request.uri(URI.create(base + "/api/antifraud/transaction"))
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            objectMapper.writeValueAsString(transaction(i, date))));
+        }
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        // a card without history is answered with 404 after the query has run
+        if (response.statusCode() != 200 && !(query && response.statusCode() == 404)) {
+            throw new IllegalStateException("request " + response.request().uri() + " was answered with status "
+                    + response.statusCode());
+        }
+        if (!query) {
+            objectMapper.readValue(response.body(), PostTransactionOutDto.class);
+        }
+    }
+
+    /** The i-th synthetic transaction: cycles through amounts of all decisions, cards, regions and IPs. */
+    static PostTransactionInDto transaction(int i, LocalDateTime date) {
+        return new PostTransactionInDto(AMOUNTS[i % AMOUNTS.length], "198.51.100." + (1 + i % 254),
+                NUMBERS[i % NUMBERS.length], REGIONS[i % REGIONS.length], date);
+    }
+
+    private static long median(long[] latencies, int count) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return sorted[count / 2];
+    }
+
+    @FunctionalInterface
+    interface Exchange {
+        void send(int i) throws Exception;
+    }
+
+    record Result(int requests, Duration duration, Duration firstLatency, Duration latency) {
+    }
+}
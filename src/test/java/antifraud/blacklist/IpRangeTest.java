@@ -0,0 +1,45 @@
+package antifraud.blacklist;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpRangeTest {
+
+    @Test
+    void testParseSingleAddress() {
+        IpRange range = IpRange.parse("192.168.0.1");
+
+        assertEquals(0xc0a80001, range.network());
+        assertEquals(32, range.prefixLength());
+        assertEquals("192.168.0.1", range.toString());
+    }
+
+    @Test
+    void testParseRangeClearsHostBits() {
+        IpRange range = IpRange.parse("10.1.2.3/8");
+
+        assertEquals(new IpRange(0x0a000000, 8), range);
+        assertEquals("10.0.0.0/8", range.toString());
+        assertEquals("0.0.0.0/0", IpRange.parse("255.255.255.255/0").toString());
+        assertEquals("1.2.3.4", IpRange.parse("1.2.3.4/32").toString());
+    }
+
+    @Test
+    void testContains() {
+        IpRange range = IpRange.parse("172.16.0.0/12");
+
+        assertTrue(range.contains(IpRange.parseAddress("172.16.0.0")));
+        assertTrue(range.contains(IpRange.parseAddress("172.31.255.255")));
+        assertFalse(range.contains(IpRange.parseAddress("172.32.0.0")));
+    }
+
+    @Test
+    void testInvalidInputThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> IpRange.parseAddress("192.168.0"));
+        assertThrows(IllegalArgumentException.class, () -> IpRange.parseAddress("192.168.0.256"));
+        assertThrows(IllegalArgumentException.class, () -> IpRange.parseAddress("192.168..1"));
+        assertThrows(IllegalArgumentException.class, () -> IpRange.parseAddress("192.168.0.1.2"));
+        assertThrows(IllegalArgumentException.class, () -> IpRange.parse("192.168.0.0/33"));
+    }
+}
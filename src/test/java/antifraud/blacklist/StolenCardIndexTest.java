@@ -0,0 +1,115 @@
+package antifraud.blacklist;
+
+import antifraud.repository.StolenCardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class StolenCardIndexTest {
+
+    @Mock
+    StolenCardRepository stolenCardRepository;
+
+    StolenCardIndex stolenCardIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(stolenCardRepository.findAllNumbers()).thenReturn(List.of("4000008449433403", "4532015112830366"));
+        stolenCardIndex = new StolenCardIndex(stolenCardRepository);
+    }
+
+    @Test
+    void testLoadsNumbersFromRepository() {
+        assertTrue(stolenCardIndex.contains("4000008449433403"));
+        assertTrue(stolenCardIndex.contains("4532015112830366"));
+        assertFalse(stolenCardIndex.contains("4539578763621486"));
+        assertEquals(2, stolenCardIndex.size());
+    }
+
+    @Test
+    void testAddAndRemoveAreWrittenThrough() {
+        // Act & Assert
+        stolenCardIndex.add("4539578763621486");
+        assertTrue(stolenCardIndex.contains("4539578763621486"));
+
+        stolenCardIndex.remove("4000008449433403");
+        assertFalse(stolenCardIndex.contains("4000008449433403"));
+        assertTrue(stolenCardIndex.contains("4532015112830366"));
+        assertEquals(2, stolenCardIndex.size());
+    }
+
+    @Test
+    void testNumbersThatCannotBePackedAreKeptExactly() {
+        // Arrange
+        String leadingZero = "0000008449433403";
+        String twentyDigits = "40000084494334030008";
+
+        // Act
+        stolenCardIndex.add(leadingZero);
+        stolenCardIndex.add(twentyDigits);
+
+        // Assert
+        assertTrue(stolenCardIndex.contains(leadingZero));
+        assertFalse(stolenCardIndex.contains("8449433403"));
+        assertTrue(stolenCardIndex.contains(twentyDigits));
+        stolenCardIndex.remove(leadingZero);
+        assertFalse(stolenCardIndex.contains(leadingZero));
+    }
+
+    @Test
+    void testPackKeepsNineteenDigitNumbersDistinct() {
+        assertEquals(StolenCardIndex.NOT_PACKABLE, StolenCardIndex.pack("01234"));
+        assertEquals(StolenCardIndex.NOT_PACKABLE, StolenCardIndex.pack("12a4"));
+        assertEquals(StolenCardIndex.NOT_PACKABLE, StolenCardIndex.pack("12345678901234567890"));
+        assertNotEquals(StolenCardIndex.pack("9999999999999999999"), StolenCardIndex.pack("9999999999999999998"));
+        assertEquals("9999999999999999999", Long.toUnsignedString(StolenCardIndex.pack("9999999999999999999")));
+    }
+
+    @Test
+    void testManyAddsAndRemovesMatchHashSet() {
+        // Arrange
+        Random random = new Random(42);
+        Set<String> expected = new HashSet<>(List.of("4000008449433403", "4532015112830366"));
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            numbers.add(Long.toString(1_000_000_000_000_000L + random.nextLong(1_000_000_000L)));
+        }
+
+        // Act
+        for (String number : numbers) {
+            stolenCardIndex.add(number);
+            expected.add(number);
+        }
+        for (int i = 0; i < numbers.size(); i += 3) {
+            stolenCardIndex.remove(numbers.get(i));
+            expected.remove(numbers.get(i));
+        }
+
+        // Assert
+        assertEquals(expected.size(), stolenCardIndex.size());
+        for (String number : numbers) {
+            assertEquals(expected.contains(number), stolenCardIndex.contains(number));
+        }
+    }
+
+    @Test
+    void testClearEmptiesIndex() {
+        // Act
+        stolenCardIndex.clear();
+
+        // Assert
+        assertEquals(0, stolenCardIndex.size());
+        assertFalse(stolenCardIndex.contains("4000008449433403"));
+    }
+}
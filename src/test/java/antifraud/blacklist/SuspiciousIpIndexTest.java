@@ -0,0 +1,113 @@
+package antifraud.blacklist;
+
+import antifraud.repository.SuspiciousIpRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class SuspiciousIpIndexTest {
+
+    @Mock
+    SuspiciousIpRepository suspiciousIpRepository;
+
+    SuspiciousIpIndex suspiciousIpIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(suspiciousIpRepository.findAllIps()).thenReturn(List.of("192.168.0.1", "10.0.0.0/8"));
+        suspiciousIpIndex = new SuspiciousIpIndex(suspiciousIpRepository);
+    }
+
+    @Test
+    void testLoadsAddressesAndRangesFromRepository() {
+        assertTrue(suspiciousIpIndex.contains("192.168.0.1"));
+        assertFalse(suspiciousIpIndex.contains("192.168.0.2"));
+        assertTrue(suspiciousIpIndex.contains("10.0.0.0"));
+        assertTrue(suspiciousIpIndex.contains("10.255.255.255"));
+        assertFalse(suspiciousIpIndex.contains("11.0.0.0"));
+        assertEquals(2, suspiciousIpIndex.size());
+    }
+
+    @Test
+    void testNestedRangesAreRemovedIndependently() {
+        // Arrange
+        suspiciousIpIndex.add(IpRange.parse("10.1.0.0/16"));
+        suspiciousIpIndex.add(IpRange.parse("10.1.2.3"));
+
+        // Act
+        suspiciousIpIndex.remove(IpRange.parse("10.0.0.0/8"));
+
+        // Assert
+        assertTrue(suspiciousIpIndex.contains("10.1.200.1"));
+        assertFalse(suspiciousIpIndex.contains("10.2.0.1"));
+        suspiciousIpIndex.remove(IpRange.parse("10.1.0.0/16"));
+        assertTrue(suspiciousIpIndex.contains("10.1.2.3"));
+        assertFalse(suspiciousIpIndex.contains("10.1.2.4"));
+        assertEquals(2, suspiciousIpIndex.size());
+    }
+
+    @Test
+    void testRemovingUnknownRangeKeepsIndex() {
+        // Act
+        suspiciousIpIndex.remove(IpRange.parse("10.0.0.0/9"));
+        suspiciousIpIndex.remove(IpRange.parse("192.168.0.2"));
+
+        // Assert
+        assertEquals(2, suspiciousIpIndex.size());
+        assertTrue(suspiciousIpIndex.contains("10.0.0.1"));
+        assertTrue(suspiciousIpIndex.contains("192.168.0.1"));
+    }
+
+    @Test
+    void testDefaultRouteCoversEveryAddress() {
+        suspiciousIpIndex.add(IpRange.parse("0.0.0.0/0"));
+
+        assertTrue(suspiciousIpIndex.contains("255.255.255.255"));
+        assertTrue(suspiciousIpIndex.contains("0.0.0.0"));
+    }
+
+    @Test
+    void testRandomRangesMatchLinearScan() {
+        // Arrange
+        Random random = new Random(7);
+        suspiciousIpIndex.clear();
+        List<IpRange> ranges = new ArrayList<>();
+        while (ranges.size() < 500) {
+            IpRange range = new IpRange(random.nextInt(), 8 + random.nextInt(25));
+            if (!ranges.contains(range)) {
+                ranges.add(range);
+                suspiciousIpIndex.add(range);
+            }
+        }
+        List<IpRange> remaining = new ArrayList<>(ranges);
+        for (int i = 0; i < ranges.size(); i += 2) {
+            suspiciousIpIndex.remove(ranges.get(i));
+            remaining.remove(ranges.get(i));
+        }
+
+        // Act & Assert
+        assertEquals(remaining.size(), suspiciousIpIndex.size());
+        for (int i = 0; i < 20_000; i++) {
+            int address = i % 2 == 0 ? random.nextInt() : ranges.get(random.nextInt(ranges.size())).network();
+            boolean expected = remaining.stream().anyMatch(range -> range.contains(address));
+            assertEquals(expected, suspiciousIpIndex.contains(new IpRange(address, 32).toString()));
+        }
+    }
+
+    @Test
+    void testClearEmptiesIndex() {
+        suspiciousIpIndex.clear();
+
+        assertEquals(0, suspiciousIpIndex.size());
+        assertFalse(suspiciousIpIndex.contains("192.168.0.1"));
+    }
+}
@@ -0,0 +1,47 @@
+package antifraud.configuration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LazyApiDocsPostProcessorTest {
+    private DefaultListableBeanFactory beanFactory;
+
+    @BeforeEach
+    public void setUp() {
+        beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("springDocConfiguration",
+                new RootBeanDefinition("org.springdoc.core.configuration.SpringDocConfiguration"));
+        beanFactory.registerBeanDefinition("openApiResource",
+                new RootBeanDefinition("org.springdoc.webmvc.api.OpenApiWebMvcResource"));
+        beanFactory.registerBeanDefinition("springDocProviders", BeanDefinitionBuilder.genericBeanDefinition()
+                .setFactoryMethodOnBean("springDocProviders", "springDocConfiguration")
+                .getBeanDefinition());
+        beanFactory.registerBeanDefinition("defaultConfiguration",
+                new RootBeanDefinition(DefaultConfiguration.class));
+        beanFactory.registerBeanDefinition("defaultMaxAllowed", BeanDefinitionBuilder.genericBeanDefinition()
+                .setFactoryMethodOnBean("defaultMaxAllowed", "defaultConfiguration")
+                .getBeanDefinition());
+    }
+
+    @Test
+    public void shouldMakeSpringdocBeansLazy() {
+        new LazyApiDocsPostProcessor().postProcessBeanFactory(beanFactory);
+
+        assertThat(beanFactory.getBeanDefinition("springDocConfiguration").isLazyInit()).isTrue();
+        assertThat(beanFactory.getBeanDefinition("openApiResource").isLazyInit()).isTrue();
+        assertThat(beanFactory.getBeanDefinition("springDocProviders").isLazyInit()).isTrue();
+    }
+
+    @Test
+    public void shouldLeaveApplicationBeansEager() {
+        new LazyApiDocsPostProcessor().postProcessBeanFactory(beanFactory);
+
+        assertThat(beanFactory.getBeanDefinition("defaultConfiguration").isLazyInit()).isFalse();
+        assertThat(beanFactory.getBeanDefinition("defaultMaxAllowed").isLazyInit()).isFalse();
+    }
+}
@@ -1,22 +1,38 @@
 package antifraud.controller;
 
+import antifraud.domain.TransactionResult;
 import antifraud.dto.*;
+import antifraud.exception.TransactionNotFoundException;
+import antifraud.security.AccessTokenService;
 import antifraud.security.RestAuthenticationEntryPoint;
 import antifraud.security.SecurityConfig;
 import antifraud.service.AntiFraudService;
+import antifraud.streaming.TransactionHistoryStreamer;
+import antifraud.streaming.TransactionStreamProcessor;
+import antifraud.warmup.WarmUpRunner;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -24,7 +40,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(AntiFraudController.class)
-@Import(SecurityConfig.class)
+@Import({SecurityConfig.class, TransactionStreamProcessor.class, AccessTokenService.class})
 class AntiFraudControllerTest {
 
     @Autowired
@@ -33,18 +49,24 @@ class AntiFraudControllerTest {
     @MockBean
     private AntiFraudService antifraudService;
 
+    @MockBean
+    private TransactionHistoryStreamer historyStreamer;
+
     @MockBean
     private RestAuthenticationEntryPoint restAuthenticationEntryPoint;
 
+    @Autowired
+    private AccessTokenService accessTokenService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @Test
-    @WithMockUser(roles = "MERCHANT")
+    @WithMockUser(username = "shop", roles = "MERCHANT")
     public void testPostTransactionReturnsTransactionOutDto() throws Exception {
         PostTransactionInDto inDto = new PostTransactionInDto(120L, "192.168.0.1", "4532015112830366", "EAP", LocalDateTime.now());
-        when(antifraudService.postTransaction(any(PostTransactionInDto.class))).thenReturn(
-                new PostTransactionOutDto("ALLOWED", "none"));
+        when(antifraudService.postTransaction(any(PostTransactionInDto.class), eq("shop"))).thenReturn(
+                new PostTransactionOutDto(TransactionResult.ALLOWED, "none"));
 
         mockMvc.perform(post("/api/antifraud/transaction")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -54,6 +76,69 @@ class AntiFraudControllerTest {
                 .andExpect(jsonPath("$.info").value("none"));
     }
 
+    private String accessToken(String username, String role) {
+        return accessTokenService.issue(UsernamePasswordAuthenticationToken.authenticated(username, null,
+                AuthorityUtils.createAuthorityList("ROLE_" + role)));
+    }
+
+    private ResultActions postTransactionWithToken(String token) throws Exception {
+        PostTransactionInDto inDto = new PostTransactionInDto(120L, "192.168.0.1", "4532015112830366", "EAP",
+                LocalDateTime.now());
+        return mockMvc.perform(post("/api/antifraud/transaction")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(inDto)));
+    }
+
+    @Test
+    public void testPostTransactionAcceptsAccessToken() throws Exception {
+        when(antifraudService.postTransaction(any(PostTransactionInDto.class), eq("shop"))).thenReturn(
+                new PostTransactionOutDto(TransactionResult.ALLOWED, "none"));
+
+        postTransactionWithToken(accessToken("shop", "MERCHANT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value("ALLOWED"));
+    }
+
+    @Test
+    public void testPostTransactionChecksRoleOfAccessToken() throws Exception {
+        postTransactionWithToken(accessToken("support", "SUPPORT"))
+                .andExpect(status().isForbidden());
+        verify(antifraudService, never()).postTransaction(any(), any());
+    }
+
+    @Test
+    public void testPostTransactionRejectsRevokedAccessToken() throws Exception {
+        String token = accessToken("shop", "MERCHANT");
+        accessTokenService.userChanged("shop");
+
+        postTransactionWithToken(token);
+
+        verify(restAuthenticationEntryPoint).commence(any(), any(), any(AuthenticationException.class));
+        verify(antifraudService, never()).postTransaction(any(), any());
+    }
+
+    @Test
+    public void testPostTransactionRejectsForgedAccessToken() throws Exception {
+        postTransactionWithToken(accessToken("shop", "MERCHANT") + "x");
+
+        verify(restAuthenticationEntryPoint).commence(any(), any(), any(AuthenticationException.class));
+        verify(antifraudService, never()).postTransaction(any(), any());
+    }
+
+    @Test
+    public void testPostTransactionOfWarmUpIsOnlyScored() throws Exception {
+        String token = accessTokenService.issue(UsernamePasswordAuthenticationToken.authenticated("warm-up", null,
+                AuthorityUtils.createAuthorityList("ROLE_MERCHANT", WarmUpRunner.DRY_RUN_AUTHORITY)));
+        when(antifraudService.scoreTransaction(any(PostTransactionInDto.class), eq("warm-up"))).thenReturn(
+                new PostTransactionOutDto(TransactionResult.MANUAL_PROCESSING, "amount"));
+
+        postTransactionWithToken(token)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value("MANUAL_PROCESSING"));
+        verify(antifraudService, never()).postTransaction(any(), any());
+    }
+
     private void testPostTransactionInvalidData(PostTransactionInDto inDto) throws Exception {
         mockMvc.perform(post("/api/antifraud/transaction")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -87,6 +172,67 @@ class AntiFraudControllerTest {
         testPostTransactionInvalidData(createInDto(amount, ip, validCardNumber, region, null));
     }
 
+    @Test
+    @WithMockUser(roles = "MERCHANT")
+    public void testPostTransactionsReturnsDecisionsInOrder() throws Exception {
+        List<PostTransactionInDto> inDtos = List.of(
+                createInDto(120L, "192.168.0.1", "4532015112830366", "EAP", LocalDateTime.now()),
+                createInDto(12000L, "192.168.0.2", "4532015112830366", "ECA", LocalDateTime.now()));
+        when(antifraudService.postTransactions(inDtos, "user")).thenReturn(new PostTransactionOutDto[]{
+                new PostTransactionOutDto(TransactionResult.ALLOWED, "none"),
+                new PostTransactionOutDto(TransactionResult.PROHIBITED, "amount")});
+
+        mockMvc.perform(post("/api/antifraud/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(inDtos)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].result").value("ALLOWED"))
+                .andExpect(jsonPath("$[0].info").value("none"))
+                .andExpect(jsonPath("$[1].result").value("PROHIBITED"))
+                .andExpect(jsonPath("$[1].info").value("amount"));
+    }
+
+    private void testPostTransactionsInvalidData(List<PostTransactionInDto> inDtos) throws Exception {
+        mockMvc.perform(post("/api/antifraud/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(inDtos)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "MERCHANT")
+    public void testPostTransactionsWithInvalidDataThrowsValidationException() throws Exception {
+        PostTransactionInDto valid = createInDto(120L, "192.168.0.1", "4532015112830366", "EAP",
+                LocalDateTime.now());
+        PostTransactionInDto invalid = createInDto(120L, "192.168.0.1", "4532015112830367", "EAP",
+                LocalDateTime.now());
+
+        testPostTransactionsInvalidData(List.of());
+        testPostTransactionsInvalidData(List.of(valid, invalid));
+        testPostTransactionsInvalidData(Collections.nCopies(AntiFraudController.MAX_BATCH_SIZE + 1, valid));
+        verify(antifraudService, never()).postTransactions(any(), any());
+    }
+
+    @Test
+    @WithMockUser(roles = "MERCHANT")
+    public void testPostTransactionStreamReturnsOneLinePerTransaction() throws Exception {
+        PostTransactionInDto inDto = createInDto(120L, "192.168.0.1", "4532015112830366", "EAP",
+                LocalDateTime.of(2024, 10, 1, 12, 0));
+        when(antifraudService.postTransaction(inDto, "user")).thenReturn(
+                new PostTransactionOutDto(TransactionResult.ALLOWED, "none"));
+        String line = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT).writeValueAsString(inDto);
+
+        mockMvc.perform(post("/api/antifraud/transactions/stream")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(line + "\n" + line + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"result\":\"ALLOWED\",\"info\":\"none\"}\n" +
+                        "{\"result\":\"ALLOWED\",\"info\":\"none\"}\n"));
+        verify(antifraudService, times(2)).postTransaction(inDto, "user");
+    }
+
     private PostTransactionInDto createInDto(Long amount, String ip, String number, String region, LocalDateTime date) {
         return new PostTransactionInDto(amount, ip, number, region, date);
     }
@@ -130,7 +276,78 @@ class AntiFraudControllerTest {
 
     @Test
     @WithMockUser(roles = "SUPPORT")
-    public void testGetTransactionHistoryReturnsTransactionOutDtoArray() throws Exception {
+    public void testUploadTransactionFeedbacksReturnsStatusPerItem() throws Exception {
+        TransactionOutDto outDto = new TransactionOutDto(1L, 120L, "192.168.0.1",
+                "4532015112830366", "EAP", LocalDateTime.of(2024, 12, 12,
+                10, 10), "ALLOWED", "PROHIBITED");
+        List<UpdateTransactionFeedback> feedbacks = List.of(
+                new UpdateTransactionFeedback(1L, "PROHIBITED"),
+                new UpdateTransactionFeedback(2L, "ALLOWED"));
+        when(antifraudService.updateTransactionFeedbacks(feedbacks)).thenReturn(new TransactionFeedbackStatusDto[]{
+                new TransactionFeedbackStatusDto(1L, 200, null, outDto),
+                new TransactionFeedbackStatusDto(2L, 404, "Transaction not found", null)});
+
+        mockMvc.perform(put("/api/antifraud/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(feedbacks)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].transactionId").value(1))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].transaction.feedback").value("PROHIBITED"))
+                .andExpect(jsonPath("$[1].transactionId").value(2))
+                .andExpect(jsonPath("$[1].status").value(404))
+                .andExpect(jsonPath("$[1].error").value("Transaction not found"));
+    }
+
+    private void testUploadTransactionFeedbacksInvalidData(List<UpdateTransactionFeedback> feedbacks)
+            throws Exception {
+        mockMvc.perform(put("/api/antifraud/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(feedbacks)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testUploadTransactionFeedbacksWithInvalidDataThrowsValidationException() throws Exception {
+        UpdateTransactionFeedback valid = new UpdateTransactionFeedback(1L, "ALLOWED");
+
+        testUploadTransactionFeedbacksInvalidData(List.of());
+        testUploadTransactionFeedbacksInvalidData(List.of(valid, new UpdateTransactionFeedback(2L, "INVALID")));
+        testUploadTransactionFeedbacksInvalidData(Collections.nCopies(AntiFraudController.MAX_BATCH_SIZE + 1,
+                valid));
+        verify(antifraudService, never()).updateTransactionFeedbacks(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "MERCHANT")
+    public void testUploadTransactionFeedbacksRequiresSupportRole() throws Exception {
+        mockMvc.perform(put("/api/antifraud/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(
+                                new UpdateTransactionFeedback(1L, "ALLOWED")))))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testGetTransactionHistoryStreamsWholeHistory() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("[{\"transactionId\":1}]".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(historyStreamer).writeHistory(any());
+
+        mockMvc.perform(get("/api/antifraud/history"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$[0].transactionId").value(1));
+        verify(antifraudService, never()).getTransactionHistory(anyLong(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testGetTransactionHistoryPageReturnsTransactionOutDtoArray() throws Exception {
         TransactionOutDto[] mockResponse =
                 new TransactionOutDto[]{
                         new TransactionOutDto(1L, 120L, "192.168.0.1", "12345678909",
@@ -140,9 +357,9 @@ class AntiFraudControllerTest {
                                 "EAP", LocalDateTime.of(2024, 12, 12, 10, 10),
                                 "ALLOWED", "PROHIBITED"),
                 };
-        when(antifraudService.getTransactionHistory()).thenReturn(mockResponse);
+        when(antifraudService.getTransactionHistory(0L, 2)).thenReturn(mockResponse);
 
-        ResultActions mockMvcResult = mockMvc.perform(get("/api/antifraud/history"))
+        ResultActions mockMvcResult = mockMvc.perform(get("/api/antifraud/history?limit=2"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/json"));
 
@@ -156,24 +373,61 @@ class AntiFraudControllerTest {
             mockMvcResult.andExpect(jsonPath("$[" + i + "].result").value(mockResponse[i].result()));
             mockMvcResult.andExpect(jsonPath("$[" + i + "].feedback").value(mockResponse[i].feedback()));
         }
+        verify(historyStreamer, never()).writeHistory(any());
     }
 
     @Test
     @WithMockUser(roles = "SUPPORT")
-    public void testGetTransactionHistoryReturnsEmptyArray() throws Exception {
+    public void testGetTransactionHistoryPageReturnsEmptyArray() throws Exception {
         TransactionOutDto[] mockResponse = new TransactionOutDto[]{};
-        when(antifraudService.getTransactionHistory()).thenReturn(mockResponse);
+        when(antifraudService.getTransactionHistory(2L, 10)).thenReturn(mockResponse);
 
-        mockMvc.perform(get("/api/antifraud/history"))
+        mockMvc.perform(get("/api/antifraud/history?afterId=2&limit=10"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/json"))
                 .andExpect(content().string("[ ]"));
+    }
 
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testGetTransactionHistoryPageWithInvalidParametersReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/antifraud/history?limit=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/antifraud/history?limit=" + (AntiFraudController.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/antifraud/history?afterId=-1&limit=10"))
+                .andExpect(status().isBadRequest());
+        verify(antifraudService, never()).getTransactionHistory(anyLong(), anyInt());
     }
 
     @Test
     @WithMockUser(roles = "SUPPORT")
-    public void testGetTransactionHistoryByNumberReturnsTransactionOutDtoArray() throws Exception {
+    public void testGetTransactionHistoryByNumberStreamsHistoryOfCard() throws Exception {
+        String number = "4532015112830366";
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("[{\"transactionId\":1}]".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(historyStreamer).writeHistoryByNumber(eq(number), any());
+
+        mockMvc.perform(get("/api/antifraud/history/" + number))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$[0].transactionId").value(1));
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testGetTransactionHistoryByNumberUnknownCardReturnsNotFound() throws Exception {
+        String number = "4532015112830366";
+        when(historyStreamer.writeHistoryByNumber(eq(number), any())).thenThrow(new TransactionNotFoundException());
+
+        mockMvc.perform(get("/api/antifraud/history/" + number))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testGetTransactionHistoryPageByNumberReturnsTransactionOutDtoArray() throws Exception {
         String number = "4532015112830366";
         TransactionOutDto[] mockResponse =
                 new TransactionOutDto[]{
@@ -184,9 +438,9 @@ class AntiFraudControllerTest {
                                 "EAP", LocalDateTime.of(2024, 12, 12, 10, 10),
                                 "ALLOWED", "PROHIBITED"),
                 };
-        when(antifraudService.getTransactionHistoryByNumber(number)).thenReturn(mockResponse);
+        when(antifraudService.getTransactionHistoryByNumber(number, 0L, 2)).thenReturn(mockResponse);
 
-        ResultActions mockMvcResult = mockMvc.perform(get("/api/antifraud/history/" + number))
+        ResultActions mockMvcResult = mockMvc.perform(get("/api/antifraud/history/" + number + "?limit=2"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/json"));
 
@@ -204,18 +458,17 @@ class AntiFraudControllerTest {
 
     @Test
     @WithMockUser(roles = "SUPPORT")
-    public void testGetTransactionHistoryByNumberReturnsEmptyArray() throws Exception {
+    public void testGetTransactionHistoryPageByNumberReturnsEmptyArray() throws Exception {
         String number = "4532015112830366";
         TransactionOutDto[] mockResponse = new TransactionOutDto[]{};
-        when(antifraudService.getTransactionHistoryByNumber(number)).thenReturn(mockResponse);
+        when(antifraudService.getTransactionHistoryByNumber(number, 2L, 10)).thenReturn(mockResponse);
 
-        mockMvc.perform(get("/api/antifraud/history/" + number))
+        mockMvc.perform(get("/api/antifraud/history/" + number + "?afterId=2&limit=10"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/json"))
                 .andExpect(content().string("[ ]"));
     }
 
-
     @Test
     @WithMockUser(roles = "SUPPORT")
     public void testGetTransactionHistoryByNumberWithCardNumberConstraintViolationReturnsBadRequest() throws Exception {
@@ -225,6 +478,107 @@ class AntiFraudControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testSearchTransactionsBindsFiltersAndFields() throws Exception {
+        TransactionSearchCriteria criteria = new TransactionSearchCriteria(LocalDateTime.of(2024, 10, 1, 0, 0),
+                LocalDateTime.of(2024, 10, 2, 0, 0), "PROHIBITED", "NONE", "MENA", "192.168.0.1", 200L, 1500L);
+        when(antifraudService.searchTransactions(criteria, List.of("amount", "result"), 5L, 20)).thenReturn(
+                List.of(Map.of("transactionId", 6L, "amount", 300L, "result", "PROHIBITED")));
+
+        mockMvc.perform(get("/api/antifraud/transactions/search")
+                        .param("from", "2024-10-01T00:00:00")
+                        .param("to", "2024-10-02T00:00:00")
+                        .param("result", "PROHIBITED")
+                        .param("feedback", "NONE")
+                        .param("region", "MENA")
+                        .param("ip", "192.168.0.1")
+                        .param("minAmount", "200")
+                        .param("maxAmount", "1500")
+                        .param("fields", "amount,result")
+                        .param("afterId", "5")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].transactionId").value(6))
+                .andExpect(jsonPath("$[0].amount").value(300))
+                .andExpect(jsonPath("$[0].result").value("PROHIBITED"))
+                .andExpect(jsonPath("$[0].ip").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testSearchTransactionsWithoutParametersUsesDefaults() throws Exception {
+        TransactionSearchCriteria none = new TransactionSearchCriteria(null, null, null, null, null, null, null, null);
+        when(antifraudService.searchTransactions(none, null, 0L, 100)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/antifraud/transactions/search"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[ ]"));
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testSearchTransactionsWithInvalidParametersReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/antifraud/transactions/search?result=UNKNOWN"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/antifraud/transactions/search?region=EU"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/antifraud/transactions/search?minAmount=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/antifraud/transactions/search?from=yesterday"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/antifraud/transactions/search?fields=amount,merchant"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/antifraud/transactions/search?limit=" + (AntiFraudController.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+        verify(antifraudService, never()).searchTransactions(any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(roles = "MERCHANT")
+    public void testSearchTransactionsAsMerchantIsForbidden() throws Exception {
+        mockMvc.perform(get("/api/antifraud/transactions/search"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testGetHourlyTotalsBindsPeriod() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2024, 10, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 10, 2, 0, 0);
+        when(antifraudService.getHourlyTotals(from, to)).thenReturn(
+                List.of(new HourlyTotalsDto(from, "MENA", "PROHIBITED", "", 3L, 4500L)));
+
+        mockMvc.perform(get("/api/antifraud/transactions/hourly")
+                        .param("from", "2024-10-01T00:00:00")
+                        .param("to", "2024-10-02T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hour").value("2024-10-01T00:00:00"))
+                .andExpect(jsonPath("$[0].region").value("MENA"))
+                .andExpect(jsonPath("$[0].feedback").value(""))
+                .andExpect(jsonPath("$[0].transactionCount").value(3))
+                .andExpect(jsonPath("$[0].amountSum").value(4500));
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testGetHourlyTotalsWithoutValidPeriodReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/antifraud/transactions/hourly?from=2024-10-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/antifraud/transactions/hourly?from=yesterday&to=2024-10-02T00:00:00"))
+                .andExpect(status().isBadRequest());
+        verify(antifraudService, never()).getHourlyTotals(any(), any());
+    }
+
+    @Test
+    @WithMockUser(roles = "MERCHANT")
+    public void testGetHourlyTotalsAsMerchantIsForbidden() throws Exception {
+        mockMvc.perform(get("/api/antifraud/transactions/hourly")
+                        .param("from", "2024-10-01T00:00:00")
+                        .param("to", "2024-10-02T00:00:00"))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     @WithMockUser(roles = "SUPPORT")
     public void testPostSuspiciousIpReturnsSuspiciousIpOutDto() throws Exception {
@@ -259,6 +613,24 @@ class AntiFraudControllerTest {
         testHelperPostSuspiciousIpWithInvalidInDtoReturnsBadRequest("192.168.0.1.2");
         testHelperPostSuspiciousIpWithInvalidInDtoReturnsBadRequest("300.168.0.1");
         testHelperPostSuspiciousIpWithInvalidInDtoReturnsBadRequest(".168.0.1");
+        testHelperPostSuspiciousIpWithInvalidInDtoReturnsBadRequest("192.168.0.0/33");
+        testHelperPostSuspiciousIpWithInvalidInDtoReturnsBadRequest("192.168.0.0/");
+        testHelperPostSuspiciousIpWithInvalidInDtoReturnsBadRequest("192.168.0/24");
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testPostSuspiciousIpRangeReturnsSuspiciousIpOutDto() throws Exception {
+        SuspiciousIpInDto suspiciousIpInDto = new SuspiciousIpInDto("10.0.0.0/8");
+        SuspiciousIpOutDto mockResponse = new SuspiciousIpOutDto(1L, suspiciousIpInDto.ip());
+
+        when(antifraudService.postSuspiciousIp(suspiciousIpInDto)).thenReturn(mockResponse);
+
+        mockMvc.perform(post("/api/antifraud/suspicious-ip")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(suspiciousIpInDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ip").value("10.0.0.0/8"));
     }
 
     @Test
@@ -286,6 +658,20 @@ class AntiFraudControllerTest {
         testHelperDeleteSuspiciousIpWithInvalidInputReturnsBadRequest("192.168.0.1.2");
         testHelperDeleteSuspiciousIpWithInvalidInputReturnsBadRequest("300.168.0.1");
         testHelperDeleteSuspiciousIpWithInvalidInputReturnsBadRequest(".168.0.1");
+        testHelperDeleteSuspiciousIpWithInvalidInputReturnsBadRequest("192.168.0.0/33");
+        testHelperDeleteSuspiciousIpWithInvalidInputReturnsBadRequest("192.168.0/24");
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    public void testDeleteSuspiciousIpRangeReturnsStatusSuccess() throws Exception {
+        String range = "192.168.0.0/24";
+        doNothing().when(antifraudService).deleteSuspiciousIp(range);
+
+        mockMvc.perform(delete("/api/antifraud/suspicious-ip/" + range))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("IP " + range + " successfully removed!"));
+        verify(antifraudService, times(1)).deleteSuspiciousIp(range);
     }
 
     @Test
@@ -435,11 +821,14 @@ class AntiFraudControllerTest {
         testHelperEndpointAccessWithoutCorrectRoleReturnsForbidden(get("/api/antifraud/suspicious-ip"));
         testHelperEndpointAccessWithoutCorrectRoleReturnsForbidden(post("/api/antifraud/suspicious-ip"));
         testHelperEndpointAccessWithoutCorrectRoleReturnsForbidden(delete("/api/antifraud/suspicious-ip/1234567890"));
+        testHelperEndpointAccessWithoutCorrectRoleReturnsForbidden(delete("/api/antifraud/suspicious-ip/10.0.0.0/8"));
     }
 
     @Test
     @WithMockUser(roles = "INVALID")
     public void testPostTransactionWithoutMerchantRoleReturnsForbidden() throws Exception {
         testHelperEndpointAccessWithoutCorrectRoleReturnsForbidden(post("/api/antifraud/transaction"));
+        testHelperEndpointAccessWithoutCorrectRoleReturnsForbidden(post("/api/antifraud/transactions"));
+        testHelperEndpointAccessWithoutCorrectRoleReturnsForbidden(post("/api/antifraud/transactions/stream"));
     }
 }
\ No newline at end of file
@@ -1,6 +1,12 @@
 package antifraud.controller;
 
+import antifraud.blacklist.StolenCardIndex;
+import antifraud.blacklist.SuspiciousIpIndex;
+import antifraud.correlation.TransactionCorrelation;
+import antifraud.limits.TransactionLimits;
+import antifraud.persistence.TransactionWriter;
 import antifraud.repository.*;
+import antifraud.security.AccessTokenService;
 import antifraud.security.RestAuthenticationEntryPoint;
 import antifraud.security.SecurityConfig;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,9 +17,12 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -28,6 +37,9 @@ class ClearDataControllerTest {
     @MockBean
     private RestAuthenticationEntryPoint restAuthenticationEntryPoint;
 
+    @MockBean
+    private AccessTokenService accessTokenService;
+
     @MockBean
     private StolenCardRepository stolenCardRepository;
 
@@ -40,14 +52,37 @@ class ClearDataControllerTest {
     @MockBean
     private TransactionRepository transactionRepository;
 
+    @MockBean
+    private TransactionArchiveRepository transactionArchiveRepository;
+
+    @MockBean
+    private TransactionRollupRepository transactionRollupRepository;
+
     @MockBean
     private UserRepository userRepository;
 
+    @MockBean
+    private TransactionCorrelation transactionCorrelation;
+
+    @MockBean
+    private StolenCardIndex stolenCardIndex;
+
+    @MockBean
+    private SuspiciousIpIndex suspiciousIpIndex;
+
+    @MockBean
+    private TransactionWriter transactionWriter;
+
+    @MockBean
+    private TransactionLimits transactionLimits;
+
     @BeforeEach
     void setUp() {
         // Reset the mock behavior before each test if necessary
         Mockito.reset(stolenCardRepository, suspiciousIpRepository, transactionLimitRepository,
-                transactionRepository, userRepository);
+                transactionRepository, transactionArchiveRepository, transactionRollupRepository, userRepository,
+                transactionCorrelation, stolenCardIndex, suspiciousIpIndex, transactionWriter, transactionLimits,
+                accessTokenService, restAuthenticationEntryPoint);
     }
 
     @Test
@@ -64,7 +99,16 @@ class ClearDataControllerTest {
         verify(suspiciousIpRepository, times(1)).deleteAll();
         verify(transactionLimitRepository, times(1)).deleteAll();
         verify(transactionRepository, times(1)).deleteAll();
+        verify(transactionArchiveRepository, times(1)).deleteAll();
+        verify(transactionRollupRepository, times(1)).deleteAll();
         verify(userRepository, times(1)).deleteAll();
+        verify(transactionCorrelation, times(1)).clear();
+        verify(stolenCardIndex, times(1)).clear();
+        verify(suspiciousIpIndex, times(1)).clear();
+        verify(transactionWriter, times(1)).flush();
+        verify(transactionLimits, times(1)).reset();
+        // the token service is one of the user change listeners
+        verify(accessTokenService, times(1)).allUsersChanged();
     }
 
     @Test
@@ -83,6 +127,44 @@ class ClearDataControllerTest {
         verify(suspiciousIpRepository, times(0)).deleteAll();
         verify(transactionLimitRepository, times(0)).deleteAll();
         verify(transactionRepository, times(0)).deleteAll();
+        verify(transactionArchiveRepository, times(0)).deleteAll();
+        verify(transactionRollupRepository, times(0)).deleteAll();
         verify(userRepository, times(0)).deleteAll();
+        verify(transactionCorrelation, times(0)).clear();
+        verify(stolenCardIndex, times(0)).clear();
+        verify(suspiciousIpIndex, times(0)).clear();
+        verify(transactionWriter, times(0)).flush();
+        verify(transactionLimits, times(0)).reset();
+        verify(accessTokenService, times(0)).allUsersChanged();
+    }
+
+    @Test
+    @WithMockUser(roles = "SUPPORT")
+    void metrics_forbiddenForSupport() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/antifraud.correlation.card.size"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void metrics_requireAuthentication() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics"));
+
+        verify(restAuthenticationEntryPoint, times(1)).commence(any(), any(), any(AuthenticationException.class));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMINISTRATOR")
+    void metrics_allowedForAdministrator() throws Exception {
+        // past the security filters; the web slice has no actuator endpoints to answer
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/antifraud.correlation.card.size"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void health_staysOpen() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/health/readiness"))
+                .andExpect(status().isNotFound());
+
+        verify(restAuthenticationEntryPoint, never()).commence(any(), any(), any());
     }
-}
\ No newline at end of file
+}
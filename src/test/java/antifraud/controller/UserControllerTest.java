@@ -2,6 +2,7 @@ package antifraud.controller;
 
 import antifraud.dto.*;
 import antifraud.security.SecurityConfig;
+import antifraud.security.AccessTokenService;
 import antifraud.security.RestAuthenticationEntryPoint;
 import antifraud.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -21,6 +22,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.time.Duration;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -40,6 +42,9 @@ class UserControllerTest {
     @MockBean
     private RestAuthenticationEntryPoint restAuthenticationEntryPoint;
 
+    @MockBean
+    private AccessTokenService accessTokenService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -163,6 +168,27 @@ class UserControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @WithMockUser(username = "shop", roles = "MERCHANT")
+    public void createAccessToken_ShouldReturnTokenForAuthenticatedUser() throws Exception {
+        Mockito.when(accessTokenService.issue(any())).thenReturn("token");
+        Mockito.when(accessTokenService.ttl()).thenReturn(Duration.ofMinutes(15));
+
+        mockMvc.perform(post("/api/auth/token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken").value("token"))
+                .andExpect(jsonPath("$.tokenType").value("Bearer"))
+                .andExpect(jsonPath("$.expiresIn").value(900));
+    }
+
+    @Test
+    public void createAccessToken_ShouldRequireAuthentication() throws Exception {
+        mockMvc.perform(post("/api/auth/token"));
+
+        Mockito.verify(restAuthenticationEntryPoint).commence(any(), any(), any());
+        Mockito.verify(accessTokenService, Mockito.never()).issue(any());
+    }
+
     private void testHelperEndpointAccessWithoutCorrectRoleReturnsForbidden(
             MockHttpServletRequestBuilder requestBuilder) throws Exception {
         mockMvc.perform(requestBuilder)
@@ -0,0 +1,307 @@
+package antifraud.correlation;
+
+import antifraud.domain.Transaction;
+import antifraud.persistence.TransactionWriter;
+import antifraud.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CardCorrelationStoreTest {
+    private static final String NUMBER = "4000008449433403";
+    private static final String OTHER_NUMBER = "4532015112830366";
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 10, 1, 12, 0);
+
+    @Mock
+    TransactionRepository transactionRepository;
+
+    @Mock
+    TransactionWriter transactionWriter;
+
+    MeterRegistry meterRegistry;
+
+    MutableClock clock;
+
+    CardCorrelationStore store;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionRepository.findAllByNumberAndDateGreaterThanEqual(anyString(), any()))
+                .thenReturn(new ArrayList<>());
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(Instant.parse("2024-10-01T12:00:00Z"));
+        store = new CardCorrelationStore(transactionRepository, transactionWriter, meterRegistry,
+                Duration.ofHours(2), 2, 3, Duration.ofMinutes(30), clock);
+    }
+
+    private long regions(String number, LocalDateTime date, String region) {
+        return store.countDistinctExcluding(number, date, region, "0.0.0.0").regions();
+    }
+
+    private long ips(String number, LocalDateTime date, String ip) {
+        return store.countDistinctExcluding(number, date, "SA", ip).ips();
+    }
+
+    private static Transaction transaction(String number, String region, String ip, LocalDateTime date) {
+        return new Transaction()
+                .setNumber(number)
+                .setRegion(region)
+                .setIp(ip)
+                .setDate(date);
+    }
+
+    private double counter(String name, String... tags) {
+        return meterRegistry.counter(name, tags).count();
+    }
+
+    @Test
+    void testCountsOnlyTransactionsOfSameCard() {
+        // Arrange
+        regions(NUMBER, NOW.minusMinutes(30), "EAP");
+        regions(OTHER_NUMBER, NOW.minusMinutes(30), "EAP");
+        store.record(transaction(NUMBER, "EAP", "192.168.0.1", NOW.minusMinutes(30)));
+        store.record(transaction(NUMBER, "ECA", "192.168.0.2", NOW.minusMinutes(20)));
+        store.record(transaction(OTHER_NUMBER, "HIC", "192.168.0.3", NOW.minusMinutes(10)));
+
+        // Act & Assert
+        assertEquals(2, regions(NUMBER, NOW, "SA"));
+        assertEquals(1, ips(NUMBER, NOW, "192.168.0.1"));
+        assertEquals(1, regions(OTHER_NUMBER, NOW, "SA"));
+    }
+
+    @Test
+    void testMissLoadsCardFromRepository() {
+        // Arrange
+        when(transactionRepository.findAllByNumberAndDateGreaterThanEqual(NUMBER, NOW.minusHours(2)))
+                .thenReturn(List.of(
+                        transaction(NUMBER, "EAP", "192.168.0.1", NOW.minusMinutes(90)),
+                        transaction(NUMBER, "ECA", "192.168.0.2", NOW.minusMinutes(50)),
+                        transaction(NUMBER, "HIC", "192.168.0.3", NOW.minusMinutes(10))));
+
+        // Act & Assert
+        assertEquals(2, regions(NUMBER, NOW, "SA"));
+        assertEquals(1, ips(NUMBER, NOW, "192.168.0.2"));
+        assertEquals(1, counter("antifraud.correlation.card.misses"));
+        assertEquals(1, counter("antifraud.correlation.card.hits"));
+        // queued transactions are stored before the card is read
+        InOrder inOrder = inOrder(transactionWriter, transactionRepository);
+        inOrder.verify(transactionWriter).flush();
+        inOrder.verify(transactionRepository, times(1)).findAllByNumberAndDateGreaterThanEqual(anyString(), any());
+    }
+
+    @Test
+    void testLoadDoesNotHoldUpOtherCards() throws Exception {
+        // Arrange
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionRepository.findAllByNumberAndDateGreaterThanEqual(eq(NUMBER), any()))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return List.of();
+                });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> cold = executor.submit(() -> regions(NUMBER, NOW, "SA"));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            // Act: another card is scored while the first one is still being loaded
+            long other = regions(OTHER_NUMBER, NOW, "SA");
+
+            // Assert
+            assertEquals(0, other);
+            assertFalse(cold.isDone());
+            release.countDown();
+            assertEquals(0, cold.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTransactionRecordedDuringLoadIsKept() {
+        // Arrange: the transaction is recorded after the load has read the repository, before it is stored
+        when(transactionRepository.findAllByNumberAndDateGreaterThanEqual(eq(NUMBER), any()))
+                .thenAnswer(invocation -> {
+                    store.record(transaction(NUMBER, "EAP", "192.168.0.1", NOW.minusMinutes(10)));
+                    return List.of();
+                });
+
+        // Act & Assert
+        assertEquals(1, regions(NUMBER, NOW, "SA"));
+        assertEquals(1, regions(NUMBER, NOW, "SA"));
+    }
+
+    @Test
+    void testPendingTransactionsOfSameCardAreCounted() {
+        // Arrange
+        regions(NUMBER, NOW, "SA");
+        store.record(transaction(NUMBER, "EAP", "192.168.0.1", NOW.minusMinutes(30)));
+        List<Transaction> pending = List.of(
+                transaction(NUMBER, "EAP", "192.168.0.2", NOW.minusMinutes(20)),
+                transaction(NUMBER, "ECA", "192.168.0.3", NOW.minusMinutes(10)),
+                transaction(OTHER_NUMBER, "HIC", "192.168.0.4", NOW.minusMinutes(10)));
+
+        // Act
+        CorrelationCounts counts = store.countDistinctExcluding(NUMBER, NOW, "SA", "192.168.0.1", pending);
+
+        // Assert: the other card's pending transaction is not counted
+        assertEquals(new CorrelationCounts(2L, 2L), counts);
+    }
+
+    @Test
+    void testDateBeforeLoadedHistoryFallsBackToRepository() {
+        // Arrange
+        LocalDateTime old = NOW.minusMinutes(90);
+        regions(NUMBER, NOW, "SA");
+        when(transactionRepository.countDistinctForNumberInPeriodExcluding(
+                NUMBER, old.minusHours(1), old, Set.of("SA"), Set.of("192.168.0.1")))
+                .thenReturn(new CorrelationCounts(3L, 1L));
+
+        // Act & Assert
+        assertEquals(new CorrelationCounts(3L, 1L), store.countDistinctExcluding(NUMBER, old, "SA", "192.168.0.1"));
+    }
+
+    @Test
+    void testOldestTransactionsOfCardAreDroppedWhenFull() {
+        // Arrange
+        regions(NUMBER, NOW, "SA");
+        store.record(transaction(NUMBER, "EAP", "192.168.0.1", NOW.minusMinutes(40)));
+        store.record(transaction(NUMBER, "ECA", "192.168.0.2", NOW.minusMinutes(30)));
+        store.record(transaction(NUMBER, "HIC", "192.168.0.3", NOW.minusMinutes(20)));
+
+        // Act
+        store.record(transaction(NUMBER, "LAC", "192.168.0.4", NOW.minusMinutes(10)));
+
+        // Assert
+        assertEquals(1, counter("antifraud.correlation.card.trimmed"));
+        assertEquals(3, regions(NUMBER, NOW.plusMinutes(30), "SA"));
+        verify(transactionRepository, never()).countDistinctForNumberInPeriodExcluding(
+                anyString(), any(), any(), any(), any());
+        // this hour reaches back past the kept transactions, so the repository is asked
+        when(transactionRepository.countDistinctForNumberInPeriodExcluding(
+                NUMBER, NOW.minusHours(1), NOW, Set.of("SA"), Set.of("0.0.0.0")))
+                .thenReturn(new CorrelationCounts(4L, 4L));
+        assertEquals(4, regions(NUMBER, NOW, "SA"));
+    }
+
+    @Test
+    void testPeekAsksRepositoryAndLeavesStoreUntouched() {
+        // Arrange
+        regions(NUMBER, NOW, "SA");
+        when(transactionRepository.countDistinctForNumberInPeriodExcluding(
+                OTHER_NUMBER, NOW.minusHours(1), NOW, Set.of("SA"), Set.of("192.168.0.1")))
+                .thenReturn(new CorrelationCounts(1L, 2L));
+
+        // Act
+        CorrelationCounts counts = store.peekDistinctExcluding(OTHER_NUMBER, NOW, "SA", "192.168.0.1");
+
+        // Assert
+        assertEquals(new CorrelationCounts(1L, 2L), counts);
+        assertEquals(1, store.size());
+        assertEquals(1, counter("antifraud.correlation.card.misses"));
+        assertEquals(0, counter("antifraud.correlation.card.hits"));
+        InOrder inOrder = inOrder(transactionWriter, transactionRepository);
+        inOrder.verify(transactionWriter).flush();
+        inOrder.verify(transactionRepository).countDistinctForNumberInPeriodExcluding(
+                OTHER_NUMBER, NOW.minusHours(1), NOW, Set.of("SA"), Set.of("192.168.0.1"));
+    }
+
+    @Test
+    void testLeastRecentlyUsedCardIsEvictedWhenFull() {
+        // Arrange
+        regions(NUMBER, NOW, "SA");
+        regions(OTHER_NUMBER, NOW, "SA");
+        regions(NUMBER, NOW, "SA");
+
+        // Act
+        regions("4539578763621486", NOW, "SA");
+
+        // Assert
+        assertEquals(2, store.size());
+        assertEquals(1, counter("antifraud.correlation.card.evictions", "cause", "size"));
+        regions(NUMBER, NOW, "SA");
+        assertEquals(3, counter("antifraud.correlation.card.misses"));
+    }
+
+    @Test
+    void testIdleCardsAreEvicted() {
+        // Arrange
+        regions(NUMBER, NOW, "SA");
+        clock.advance(Duration.ofMinutes(31));
+
+        // Act
+        regions(OTHER_NUMBER, NOW, "SA");
+
+        // Assert
+        assertEquals(1, store.size());
+        assertEquals(1, counter("antifraud.correlation.card.evictions", "cause", "idle"));
+    }
+
+    @Test
+    void testRecordForUnknownCardIsIgnored() {
+        // Act
+        store.record(transaction(NUMBER, "EAP", "192.168.0.1", NOW));
+
+        // Assert
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testClearEmptiesStore() {
+        // Arrange
+        regions(NUMBER, NOW, "SA");
+
+        // Act
+        store.clear();
+
+        // Assert
+        assertEquals(0, store.size());
+        assertEquals(0, meterRegistry.get("antifraud.correlation.card.size").gauge().value());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
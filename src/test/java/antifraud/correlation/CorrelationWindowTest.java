@@ -0,0 +1,201 @@
+package antifraud.correlation;
+
+import antifraud.domain.Transaction;
+import antifraud.persistence.TransactionWriter;
+import antifraud.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CorrelationWindowTest {
+    private static final String NUMBER = "4000008449433403";
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 10, 1, 12, 0);
+
+    @Mock
+    TransactionRepository transactionRepository;
+
+    @Mock
+    TransactionWriter transactionWriter;
+
+    CorrelationWindow correlationWindow;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionRepository.findTopByOrderByDateDesc()).thenReturn(Optional.empty());
+        correlationWindow = new CorrelationWindow(transactionRepository, transactionWriter, Duration.ofHours(2));
+    }
+
+    private long regions(LocalDateTime date, String region) {
+        return correlationWindow.countDistinctExcluding(NUMBER, date, region, "0.0.0.0").regions();
+    }
+
+    private long ips(LocalDateTime date, String ip) {
+        return correlationWindow.countDistinctExcluding(NUMBER, date, "SA", ip).ips();
+    }
+
+    private static Transaction transaction(String region, String ip, LocalDateTime date) {
+        return new Transaction()
+                .setRegion(region)
+                .setIp(ip)
+                .setDate(date);
+    }
+
+    @Test
+    void testEmptyWindowCountsNothing() {
+        assertEquals(0, regions(NOW, "EAP"));
+        assertEquals(0, ips(NOW, "192.168.0.1"));
+    }
+
+    @Test
+    void testCountsDistinctValuesExcludingCurrent() {
+        // Arrange
+        correlationWindow.record(transaction("EAP", "192.168.0.1", NOW.minusMinutes(50)));
+        correlationWindow.record(transaction("ECA", "192.168.0.2", NOW.minusMinutes(40)));
+        correlationWindow.record(transaction("ECA", "192.168.0.2", NOW.minusMinutes(30)));
+        correlationWindow.record(transaction("HIC", "192.168.0.3", NOW.minusMinutes(20)));
+
+        // Act & Assert
+        assertEquals(2, regions(NOW, "EAP"));
+        assertEquals(3, regions(NOW, "SA"));
+        assertEquals(2, ips(NOW, "192.168.0.2"));
+        assertEquals(3, ips(NOW, "192.168.0.4"));
+    }
+
+    @Test
+    void testWindowBoundsAreInclusive() {
+        // Arrange
+        correlationWindow.record(transaction("EAP", "192.168.0.1", NOW.minusHours(1)));
+        correlationWindow.record(transaction("ECA", "192.168.0.2", NOW.minusHours(1).minusNanos(1)));
+
+        // Act & Assert
+        assertEquals(1, regions(NOW, "SA"));
+        assertEquals(1, ips(NOW, "192.168.0.3"));
+    }
+
+    @Test
+    void testExpiredTransactionsAreEvicted() {
+        // Arrange
+        correlationWindow.record(transaction("EAP", "192.168.0.1", NOW));
+        correlationWindow.record(transaction("ECA", "192.168.0.2", NOW.plusMinutes(30)));
+
+        // Act & Assert
+        assertEquals(2, regions(NOW.plusMinutes(59), "SA"));
+        assertEquals(1, regions(NOW.plusMinutes(61), "SA"));
+        assertEquals(0, ips(NOW.plusMinutes(91), "192.168.0.3"));
+    }
+
+    @Test
+    void testOutOfOrderDateIsAnsweredFromBuckets() {
+        // Arrange
+        correlationWindow.record(transaction("EAP", "192.168.0.1", NOW.minusMinutes(90)));
+        correlationWindow.record(transaction("ECA", "192.168.0.2", NOW.minusMinutes(45)));
+        correlationWindow.record(transaction("HIC", "192.168.0.3", NOW));
+
+        // Act & Assert
+        assertEquals(2, regions(NOW.minusMinutes(40), "SA"));
+        assertEquals(1, ips(NOW.minusMinutes(40), "192.168.0.1"));
+        verify(transactionRepository, never()).countDistinctInPeriodExcluding(any(), any(), any(), any());
+    }
+
+    @Test
+    void testPendingTransactionsAreCountedOnce() {
+        // Arrange
+        correlationWindow.record(transaction("EAP", "192.168.0.1", NOW.minusMinutes(30)));
+        List<Transaction> pending = List.of(
+                transaction("EAP", "192.168.0.2", NOW.minusMinutes(20)),
+                transaction("ECA", "192.168.0.1", NOW.minusMinutes(10)),
+                transaction("MENA", "192.168.0.9", NOW.minusMinutes(90)));
+
+        // Act
+        CorrelationCounts counts = correlationWindow.countDistinctExcluding(NUMBER, NOW, "SA", "192.168.0.2",
+                pending);
+
+        // Assert: EAP and ECA, 192.168.0.1; the pending transaction outside the hour is not counted
+        assertEquals(new CorrelationCounts(2L, 1L), counts);
+    }
+
+    @Test
+    void testDateBeyondHorizonFallsBackToRepository() {
+        // Arrange
+        LocalDateTime old = NOW.minusMinutes(90);
+        correlationWindow.record(transaction("EAP", "192.168.0.1", NOW));
+        when(transactionRepository.countDistinctInPeriodExcluding(old.minusHours(1), old, Set.of("SA"),
+                Set.of("192.168.0.1"))).thenReturn(new CorrelationCounts(5L, 4L));
+
+        // Act
+        CorrelationCounts counts = correlationWindow.countDistinctExcluding(NUMBER, old, "SA", "192.168.0.1");
+
+        // Assert: queued transactions are stored before the query
+        assertEquals(new CorrelationCounts(5L, 4L), counts);
+        InOrder inOrder = inOrder(transactionWriter, transactionRepository);
+        inOrder.verify(transactionWriter).flush();
+        inOrder.verify(transactionRepository).countDistinctInPeriodExcluding(any(), any(), any(), any());
+    }
+
+    @Test
+    void testPeekDoesNotMoveWindow() {
+        // Arrange
+        correlationWindow.record(transaction("EAP", "192.168.0.1", NOW));
+        correlationWindow.record(transaction("ECA", "192.168.0.2", NOW.plusMinutes(10)));
+
+        // Act: a date past the head, and one far enough ahead to evict NOW if the window moved
+        CorrelationCounts ahead = correlationWindow.peekDistinctExcluding(NUMBER, NOW.plusMinutes(30), "SA",
+                "0.0.0.0");
+        CorrelationCounts later = correlationWindow.peekDistinctExcluding(NUMBER, NOW.plusHours(3), "SA",
+                "0.0.0.0");
+
+        // Assert
+        assertEquals(new CorrelationCounts(2L, 2L), ahead);
+        assertEquals(new CorrelationCounts(0L, 0L), later);
+        assertEquals(1, regions(NOW, "SA"));
+        verify(transactionRepository, never()).countDistinctInPeriodExcluding(any(), any(), any(), any());
+    }
+
+    @Test
+    void testRebuildLoadsRetainedTransactionsFromRepository() {
+        // Arrange
+        Transaction latest = transaction("HIC", "192.168.0.3", NOW);
+        when(transactionRepository.findTopByOrderByDateDesc()).thenReturn(Optional.of(latest));
+        when(transactionRepository.findAllByDateGreaterThanEqual(NOW.minusHours(2))).thenReturn(List.of(
+                transaction("EAP", "192.168.0.1", NOW.minusMinutes(30)),
+                latest));
+
+        // Act
+        correlationWindow = new CorrelationWindow(transactionRepository, transactionWriter, Duration.ofHours(2));
+
+        // Assert
+        assertEquals(2, regions(NOW, "SA"));
+        assertEquals(1, ips(NOW, "192.168.0.3"));
+    }
+
+    @Test
+    void testClearResetsWindow() {
+        // Arrange
+        correlationWindow.record(transaction("EAP", "192.168.0.1", NOW));
+
+        // Act
+        correlationWindow.clear();
+
+        // Assert
+        assertEquals(0, regions(NOW, "SA"));
+    }
+
+    @Test
+    void testRetentionShorterThanWindowThrowsException() {
+        assertThrows(IllegalArgumentException.class, ()
+                -> new CorrelationWindow(transactionRepository, transactionWriter, Duration.ofMinutes(30)));
+    }
+}
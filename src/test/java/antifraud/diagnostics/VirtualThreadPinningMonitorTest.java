@@ -0,0 +1,50 @@
+package antifraud.diagnostics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningMonitorTest {
+    private final Object monitor = new Object();
+
+    SimpleMeterRegistry meterRegistry;
+    VirtualThreadPinningMonitor pinningMonitor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pinningMonitor = new VirtualThreadPinningMonitor(meterRegistry, Duration.ofMillis(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pinningMonitor.close();
+    }
+
+    @Test
+    void testPinnedVirtualThreadIsRecorded() throws InterruptedException {
+        // Act: sleeping inside synchronized pins the carrier
+        Thread.ofVirtual().start(() -> {
+            synchronized (monitor) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).join();
+
+        // Assert: JFR delivers events to the stream about once a second
+        long deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+        while (meterRegistry.timer("antifraud.virtualthreads.pinned").count() == 0
+                && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        assertTrue(meterRegistry.timer("antifraud.virtualthreads.pinned").count() > 0);
+    }
+}
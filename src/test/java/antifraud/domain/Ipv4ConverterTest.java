@@ -0,0 +1,29 @@
+package antifraud.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Ipv4ConverterTest {
+    private final Ipv4Converter converter = new Ipv4Converter();
+
+    @Test
+    void testAddressesRoundTripThroughInt() {
+        for (String ip : new String[]{"0.0.0.0", "10.0.0.1", "127.255.255.255", "128.0.0.0", "192.168.0.1",
+                "255.255.255.255"}) {
+            assertEquals(ip, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(ip)));
+        }
+    }
+
+    @Test
+    void testAddressIsStoredAsSigned32BitValue() {
+        assertEquals(0x0A000001, converter.convertToDatabaseColumn("10.0.0.1"));
+        assertEquals(-1, converter.convertToDatabaseColumn("255.255.255.255"));
+        assertEquals(Integer.MIN_VALUE, converter.convertToDatabaseColumn("128.0.0.0"));
+    }
+
+    @Test
+    void testInvalidAddressThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn("192.168.0"));
+    }
+}
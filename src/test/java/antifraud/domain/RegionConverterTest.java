@@ -0,0 +1,30 @@
+package antifraud.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionConverterTest {
+    private final RegionConverter converter = new RegionConverter();
+
+    @Test
+    void testRegionsRoundTripThroughCodes() {
+        for (Region region : Region.values()) {
+            Byte column = converter.convertToDatabaseColumn(region.name());
+            assertEquals(region.code(), column);
+            assertEquals(region.name(), converter.convertToEntityAttribute(column));
+        }
+    }
+
+    @Test
+    void testNullIsKept() {
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    @Test
+    void testUnknownRegionThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn("EUR"));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute((byte) 0));
+    }
+}
@@ -0,0 +1,30 @@
+package antifraud.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionResultConverterTest {
+    private final TransactionResultConverter converter = new TransactionResultConverter();
+
+    @Test
+    void testResultsRoundTripThroughCodes() {
+        for (TransactionResult result : TransactionResult.values()) {
+            Byte column = converter.convertToDatabaseColumn(result);
+            assertNotEquals(TransactionResult.NONE, column);
+            assertEquals(result, converter.convertToEntityAttribute(column));
+        }
+    }
+
+    @Test
+    void testMissingResultIsStoredAsNone() {
+        assertEquals(TransactionResult.NONE, converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(TransactionResult.NONE));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    @Test
+    void testUnknownCodeThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute((byte) 9));
+    }
+}
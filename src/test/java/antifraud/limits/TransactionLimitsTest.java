@@ -0,0 +1,217 @@
+package antifraud.limits;
+
+import antifraud.domain.TransactionLimit;
+import antifraud.repository.TransactionLimitRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static antifraud.domain.TransactionResult.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class TransactionLimitsTest {
+    private static final LimitSnapshot DEFAULTS = new LimitSnapshot(200, 1500);
+
+    @Mock
+    TransactionLimitRepository transactionLimitRepository;
+
+    SimpleMeterRegistry meterRegistry;
+
+    TransactionLimits transactionLimits;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private void create(TransactionLimit... stored) {
+        when(transactionLimitRepository.findAll()).thenReturn(List.of(stored));
+        transactionLimits = new TransactionLimits(transactionLimitRepository, meterRegistry, 200L, 1500L,
+                Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        transactionLimits.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TransactionLimit> savedLimits() {
+        ArgumentCaptor<List<TransactionLimit>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transactionLimitRepository, times(1)).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void testUnknownKeyUsesDefaults() {
+        // Act
+        create();
+
+        // Assert
+        assertEquals(DEFAULTS, transactionLimits.current("shop", "EAP"));
+        assertEquals(0, transactionLimits.size());
+        verify(transactionLimitRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testConstructorLoadsStoredLimits() {
+        // Act
+        create(new TransactionLimit("shop", "EAP", 300L, 900L),
+                new TransactionLimit("shop", "ECA", 100L, 1000L));
+
+        // Assert
+        assertEquals(new LimitSnapshot(300, 900), transactionLimits.current("shop", "EAP"));
+        assertEquals(new LimitSnapshot(100, 1000), transactionLimits.current("shop", "ECA"));
+        assertEquals(DEFAULTS, transactionLimits.current("other", "EAP"));
+        assertEquals(2.0, meterRegistry.get("antifraud.limits.keys").gauge().value());
+    }
+
+    @Test
+    void testFeedbackOnlyChangesItsKey() {
+        // Arrange
+        create();
+
+        // Act
+        LimitSnapshot updated = transactionLimits.applyFeedback("shop", "EAP", ALLOWED, MANUAL_PROCESSING, 120L);
+
+        // Assert
+        assertEquals(new LimitSnapshot(136, 1500), updated);
+        assertEquals(updated, transactionLimits.current("shop", "EAP"));
+        assertEquals(DEFAULTS, transactionLimits.current("shop", "ECA"));
+        assertEquals(DEFAULTS, transactionLimits.current("other", "EAP"));
+    }
+
+    @Test
+    void testLegacyTransactionWithoutMerchantHasItsOwnKey() {
+        // Arrange
+        create();
+
+        // Act
+        transactionLimits.applyFeedback(null, "EAP", ALLOWED, MANUAL_PROCESSING, 120L);
+
+        // Assert
+        assertEquals(new LimitSnapshot(136, 1500), transactionLimits.current("", "EAP"));
+        assertEquals(DEFAULTS, transactionLimits.current("shop", "EAP"));
+    }
+
+    @Test
+    void testFlushSavesLatestLimitsOfChangedKeysOnce() {
+        // Arrange
+        create(new TransactionLimit("shop", "ECA", 100L, 1000L));
+        transactionLimits.applyFeedback("shop", "EAP", ALLOWED, MANUAL_PROCESSING, 120L);
+        transactionLimits.applyFeedback("shop", "EAP", ALLOWED, MANUAL_PROCESSING, 120L);
+
+        // Act
+        transactionLimits.flush();
+        transactionLimits.flush();
+
+        // Assert
+        List<TransactionLimit> saved = savedLimits();
+        assertEquals(1, saved.size());
+        assertEquals("shop", saved.get(0).getMerchant());
+        assertEquals("EAP", saved.get(0).getRegion());
+        assertEquals(transactionLimits.current("shop", "EAP").maxAllowed(), saved.get(0).getMaxAllowed());
+        assertEquals(1500L, saved.get(0).getMaxManual());
+    }
+
+    @Test
+    void testFailedFlushIsRetried() {
+        // Arrange
+        create();
+        transactionLimits.applyFeedback("shop", "EAP", ALLOWED, MANUAL_PROCESSING, 120L);
+        when(transactionLimitRepository.saveAll(anyList()))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(List.of());
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> transactionLimits.flush());
+        transactionLimits.flush();
+
+        // Assert
+        verify(transactionLimitRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void testResetRestoresDefaults() {
+        // Arrange
+        create(new TransactionLimit("shop", "EAP", 300L, 900L));
+        transactionLimits.applyFeedback("shop", "ECA", ALLOWED, MANUAL_PROCESSING, 120L);
+
+        // Act
+        transactionLimits.reset();
+        transactionLimits.flush();
+
+        // Assert
+        assertEquals(DEFAULTS, transactionLimits.current("shop", "EAP"));
+        assertEquals(DEFAULTS, transactionLimits.current("shop", "ECA"));
+        verify(transactionLimitRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void testCloseSavesPendingChange() throws InterruptedException {
+        // Arrange
+        create();
+        transactionLimits.applyFeedback("shop", "EAP", PROHIBITED, MANUAL_PROCESSING, 500L);
+
+        // Act
+        transactionLimits.close();
+
+        // Assert
+        List<TransactionLimit> saved = savedLimits();
+        assertEquals(200L, saved.get(0).getMaxAllowed());
+        assertEquals(1300L, saved.get(0).getMaxManual());
+    }
+
+    @Test
+    void testConcurrentFeedbackIsNotLost() throws InterruptedException {
+        // Arrange: few enough updates that the limit has not yet converged to the amount,
+        // so a single lost update changes the result; threads alternate between two keys
+        create();
+        int threads = 8;
+        int updatesPerThread = 10;
+        long amount = 1_000_000_000_000_000L;
+        LimitSnapshot expected = DEFAULTS;
+        for (int i = 0; i < threads / 2 * updatesPerThread; i++) {
+            expected = expected.withFeedback(PROHIBITED, MANUAL_PROCESSING, amount);
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String region = t % 2 == 0 ? "EAP" : "ECA";
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < updatesPerThread; i++) {
+                    transactionLimits.applyFeedback("shop", region, PROHIBITED, MANUAL_PROCESSING, amount);
+                }
+            }));
+        }
+
+        // Act
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Assert
+        assertEquals(expected, transactionLimits.current("shop", "EAP"));
+        assertEquals(expected, transactionLimits.current("shop", "ECA"));
+    }
+}
@@ -0,0 +1,71 @@
+package antifraud.persistence;
+
+import antifraud.limits.LimitSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionLimitMigrationTest {
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    // the table as schema update created it while there was a single set of limits: the naming strategy lowers
+    // the quoted "TRANSACTIONLIMIT" of the entity
+    private void createLegacyTable() {
+        jdbcTemplate.execute("CREATE TABLE \"transactionlimit\" (id BIGINT PRIMARY KEY, " +
+                "max_allowed BIGINT NOT NULL, max_manual BIGINT NOT NULL)");
+    }
+
+    @Test
+    void testLegacyLimitsAreFound() {
+        // Arrange
+        createLegacyTable();
+        jdbcTemplate.update("INSERT INTO \"transactionlimit\" (id, max_allowed, max_manual) VALUES (1, 321, 987)");
+
+        // Act
+        TransactionLimitMigration migration = new TransactionLimitMigration(jdbcTemplate);
+
+        // Assert
+        assertEquals(Optional.of(new LimitSnapshot(321, 987)), migration.legacyLimits());
+        // the old row is kept, so the limits are found again on the next start
+        assertEquals(Optional.of(new LimitSnapshot(321, 987)),
+                new TransactionLimitMigration(jdbcTemplate).legacyLimits());
+    }
+
+    @Test
+    void testEmptyLegacyTableHasNoLimits() {
+        // Arrange
+        createLegacyTable();
+
+        // Act & Assert
+        assertTrue(new TransactionLimitMigration(jdbcTemplate).legacyLimits().isEmpty());
+    }
+
+    @Test
+    void testMissingTableHasNoLimits() {
+        // Act & Assert
+        assertTrue(new TransactionLimitMigration(jdbcTemplate).legacyLimits().isEmpty());
+    }
+}
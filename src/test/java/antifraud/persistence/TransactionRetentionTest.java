@@ -0,0 +1,193 @@
+package antifraud.persistence;
+
+import antifraud.domain.Transaction;
+import antifraud.domain.TransactionArchive;
+import antifraud.domain.TransactionResult;
+import antifraud.domain.TransactionRollup;
+import antifraud.dto.HourlyTotalsDto;
+import antifraud.repository.TransactionArchiveRepository;
+import antifraud.repository.TransactionRepository;
+import antifraud.repository.TransactionRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class TransactionRetentionTest {
+    private static final LocalDateTime LATEST = LocalDateTime.of(2024, 10, 10, 12, 0);
+    private static final Duration HORIZON = Duration.ofDays(1);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionArchiveRepository archiveRepository;
+
+    @Autowired
+    private TransactionRollupRepository rollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionRetention retention;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        meterRegistry = new SimpleMeterRegistry();
+        // chunks of two transactions
+        retention = new TransactionRetention(transactionRepository, jdbcTemplate, transactionManager, meterRegistry,
+                HORIZON, 2, Duration.ofHours(1), Duration.ofHours(2));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        retention.close();
+    }
+
+    private Transaction save(LocalDateTime date, String region, long amount, TransactionResult feedback) {
+        return transactionRepository.saveAndFlush(new Transaction()
+                .setAmount(amount)
+                .setNumber("4000008449433403")
+                .setRegion(region)
+                .setIp("192.168.0.1")
+                .setDate(date)
+                .setMerchant("shop")
+                .setResult(TransactionResult.ALLOWED)
+                .setFeedback(feedback));
+    }
+
+    @Test
+    void testOldTransactionsAreMovedToArchiveInChunks() {
+        // Arrange: five old transactions, more than two chunks
+        LocalDateTime old = LATEST.minus(HORIZON).minusHours(3);
+        List<Transaction> oldTransactions = List.of(
+                save(old, "EAP", 100, null),
+                save(old.plusMinutes(10), "EAP", 200, null),
+                save(old.plusMinutes(20), "EAP", 300, TransactionResult.PROHIBITED),
+                save(old.plusHours(1), "ECA", 400, null),
+                save(old.plusHours(1).plusMinutes(5), "EAP", 500, null));
+        Transaction recent = save(LATEST.minus(HORIZON), "EAP", 600, null);
+        save(LATEST, "EAP", 700, null);
+
+        // Act
+        long moved = retention.archive();
+
+        // Assert
+        assertEquals(5, moved);
+        assertEquals(5.0, meterRegistry.get("antifraud.retention.archived").counter().count());
+        assertEquals(2, transactionRepository.count());
+        assertTrue(transactionRepository.existsById(recent.getId()));
+        List<TransactionArchive> archived = archiveRepository.findAll();
+        assertEquals(oldTransactions.stream().map(Transaction::getId).sorted().toList(),
+                archived.stream().map(TransactionArchive::getId).sorted().toList());
+        TransactionArchive first = archiveRepository.findById(oldTransactions.get(2).getId()).orElseThrow();
+        assertEquals("EAP", first.getRegion());
+        assertEquals("192.168.0.1", first.getIp());
+        assertEquals("shop", first.getMerchant());
+        assertEquals(TransactionResult.PROHIBITED, first.getFeedback());
+    }
+
+    @Test
+    void testArchivedTransactionsAreRolledUpPerHourRegionResultAndFeedback() {
+        // Arrange
+        LocalDateTime hour = LATEST.minus(HORIZON).minusHours(3).withMinute(0);
+        save(hour.plusMinutes(5), "EAP", 100, null);
+        save(hour.plusMinutes(10), "EAP", 200, null);
+        save(hour.plusMinutes(20), "EAP", 300, TransactionResult.PROHIBITED);
+        save(hour.plusMinutes(30), "EAP", 400, null);
+        save(hour.plusHours(1), "ECA", 500, null);
+        save(LATEST, "EAP", 700, null);
+
+        // Act: chunks of two split the first hour, so its roll-up is added to
+        retention.archive();
+
+        // Assert
+        List<TransactionRollup> rollups = rollupRepository
+                .findAllByStartOfHourGreaterThanEqualAndStartOfHourLessThanOrderByStartOfHourAsc(hour,
+                        hour.plusHours(2))
+                .stream()
+                .sorted(Comparator.comparing(TransactionRollup::getStartOfHour)
+                        .thenComparing(TransactionRollup::getTransactionCount, Comparator.reverseOrder()))
+                .toList();
+        assertEquals(3, rollups.size());
+        assertRollup(rollups.get(0), hour, "EAP", null, 3, 700);
+        assertRollup(rollups.get(1), hour, "EAP", TransactionResult.PROHIBITED, 1, 300);
+        assertRollup(rollups.get(2), hour.plusHours(1), "ECA", null, 1, 500);
+    }
+
+    private static void assertRollup(TransactionRollup rollup, LocalDateTime hour, String region,
+                                     TransactionResult feedback, long count, long amountSum) {
+        assertEquals(hour, rollup.getStartOfHour());
+        assertEquals(region, rollup.getRegion());
+        assertEquals(TransactionResult.ALLOWED, rollup.getResult());
+        assertEquals(feedback, rollup.getFeedback());
+        assertEquals(count, rollup.getTransactionCount());
+        assertEquals(amountSum, rollup.getAmountSum());
+    }
+
+    @Test
+    void testHourlyTotalsCombineRollupsWithLiveTransactions() {
+        // Arrange: the latest transaction puts the cutoff at half past, so one hour is only partly archived
+        LocalDateTime hour = LATEST.minus(HORIZON);
+        save(hour.minusMinutes(30), "EAP", 100, null);
+        save(hour.plusMinutes(10), "EAP", 200, null);
+        save(hour.plusMinutes(40), "EAP", 300, null);
+        save(hour.plusMinutes(50), "ECA", 400, TransactionResult.PROHIBITED);
+        save(LATEST.plusMinutes(30), "EAP", 500, null);
+        assertEquals(2, retention.archive());
+
+        // Act
+        List<HourlyTotalsDto> totals = transactionRepository.hourlyTotals(hour.minusHours(1), hour.plusHours(1));
+
+        // Assert
+        assertEquals(List.of(
+                new HourlyTotalsDto(hour.minusHours(1), "EAP", "ALLOWED", "", 1, 100),
+                new HourlyTotalsDto(hour, "EAP", "ALLOWED", "", 2, 500),
+                new HourlyTotalsDto(hour, "ECA", "ALLOWED", "PROHIBITED", 1, 400)), totals);
+    }
+
+    @Test
+    void testNothingToArchive() {
+        // Arrange
+        save(LATEST.minusHours(1), "EAP", 100, null);
+        save(LATEST, "EAP", 100, null);
+
+        // Act & Assert
+        assertEquals(0, retention.archive());
+        assertEquals(2, transactionRepository.count());
+        assertEquals(0, rollupRepository.count());
+    }
+
+    @Test
+    void testEmptyTable() {
+        // Act & Assert
+        assertEquals(0, retention.archive());
+    }
+
+    @Test
+    void testHorizonMustCoverCorrelationRetention() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new TransactionRetention(transactionRepository,
+                jdbcTemplate, transactionManager, meterRegistry, Duration.ofHours(1), 100, Duration.ofHours(1),
+                Duration.ofHours(2)));
+    }
+}
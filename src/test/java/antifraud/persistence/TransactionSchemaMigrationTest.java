@@ -0,0 +1,162 @@
+package antifraud.persistence;
+
+import antifraud.domain.Ipv4Converter;
+import antifraud.domain.Region;
+import antifraud.domain.TransactionResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionSchemaMigrationTest {
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    // the table as schema update created it before the compact column types
+    private void createLegacyTable() {
+        jdbcTemplate.execute("CREATE TABLE \"transaction\" (id BIGINT PRIMARY KEY, amount BIGINT NOT NULL, " +
+                "ip VARCHAR(255) NOT NULL, number VARCHAR(255) NOT NULL, region VARCHAR(255) NOT NULL, " +
+                "date TIMESTAMP NOT NULL, merchant VARCHAR(255), result VARCHAR(255) NOT NULL, " +
+                "feedback VARCHAR(255) NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX idx_transaction_region_date ON \"transaction\" (region, date)");
+        jdbcTemplate.execute("CREATE INDEX idx_transaction_number_id ON \"transaction\" (number, id)");
+    }
+
+    private void insert(long id, String ip, String region, String result, String feedback) {
+        jdbcTemplate.update("INSERT INTO \"transaction\" (id, amount, ip, number, region, date, result, feedback) " +
+                "VALUES (?, 100, ?, '4000008449433403', ?, ?, ?, ?)", id, ip, region, LocalDateTime.now(), result,
+                feedback);
+    }
+
+    private List<Long> row(long id) {
+        return jdbcTemplate.queryForObject("SELECT ip, region, result, feedback FROM \"transaction\" WHERE id = ?",
+                (rs, rowNum) -> List.of(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)), id);
+    }
+
+    private String type(String column) {
+        return jdbcTemplate.queryForObject("SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_NAME = 'transaction' AND COLUMN_NAME = ?", String.class, column.toUpperCase());
+    }
+
+    private List<String> indexes() {
+        return jdbcTemplate.queryForList("SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES " +
+                "WHERE TABLE_NAME = 'transaction' AND INDEX_TYPE_NAME <> 'PRIMARY KEY'", String.class);
+    }
+
+    @Test
+    void testLegacyColumnsAreConvertedInPlace() {
+        // Arrange: results both as full names and as the single-letter codes used later
+        createLegacyTable();
+        insert(1, "192.168.0.1", "EAP", "A", "");
+        insert(2, "255.255.255.255", "MENA", "PROHIBITED", "ALLOWED");
+        insert(3, "10.0.0.1", "SSA", "M", "P");
+
+        // Act
+        new TransactionSchemaMigration(jdbcTemplate);
+
+        // Assert
+        assertEquals("INTEGER", type("ip"));
+        assertEquals("TINYINT", type("region"));
+        assertEquals("TINYINT", type("result"));
+        assertEquals("TINYINT", type("feedback"));
+        Ipv4Converter ipConverter = new Ipv4Converter();
+        assertEquals(List.of((long) ipConverter.convertToDatabaseColumn("192.168.0.1"), (long) Region.EAP.code(),
+                (long) TransactionResult.ALLOWED.code(), (long) TransactionResult.NONE), row(1));
+        assertEquals(List.of(-1L, (long) Region.MENA.code(), (long) TransactionResult.PROHIBITED.code(),
+                (long) TransactionResult.ALLOWED.code()), row(2));
+        assertEquals(List.of((long) ipConverter.convertToDatabaseColumn("10.0.0.1"), (long) Region.SSA.code(),
+                (long) TransactionResult.MANUAL_PROCESSING.code(), (long) TransactionResult.PROHIBITED.code()),
+                row(3));
+        // indexes on converted columns are left to the schema update to recreate
+        assertEquals(List.of("idx_transaction_number_id"), indexes());
+        assertThrows(Exception.class, () -> insert(4, "192.168.0.1", "EAP", null, null));
+    }
+
+    @Test
+    void testMigratedTableIsLeftAlone() {
+        // Arrange
+        createLegacyTable();
+        insert(1, "192.168.0.1", "EAP", "A", "");
+        new TransactionSchemaMigration(jdbcTemplate);
+        List<Long> migrated = row(1);
+
+        // Act
+        new TransactionSchemaMigration(jdbcTemplate);
+
+        // Assert
+        assertEquals(migrated, row(1));
+    }
+
+    @Test
+    void testObsoleteIndexesAreDropped() {
+        // Arrange: search indexes of an earlier version, on columns that are already compact
+        jdbcTemplate.execute("CREATE TABLE \"transaction\" (id BIGINT PRIMARY KEY, amount BIGINT NOT NULL, " +
+                "feedback TINYINT NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX idx_transaction_feedback_date ON \"transaction\" (feedback, id)");
+        jdbcTemplate.execute("CREATE INDEX idx_transaction_amount ON \"transaction\" (amount)");
+        jdbcTemplate.execute("CREATE INDEX idx_transaction_kept ON \"transaction\" (amount, id)");
+
+        // Act
+        new TransactionSchemaMigration(jdbcTemplate);
+
+        // Assert
+        assertEquals(List.of("idx_transaction_kept"), indexes());
+    }
+
+    @Test
+    void testMissingTableIsLeftAlone() {
+        // Act & Assert
+        assertDoesNotThrow(() -> new TransactionSchemaMigration(jdbcTemplate));
+    }
+
+    @Test
+    void testInterruptedMigrationIsFinished() {
+        // Arrange: stopped after the old region column was dropped
+        createLegacyTable();
+        insert(1, "192.168.0.1", "EAP", "A", "");
+        jdbcTemplate.execute("ALTER TABLE \"transaction\" ADD COLUMN region_compact TINYINT");
+        jdbcTemplate.update("UPDATE \"transaction\" SET region_compact = ?", Region.EAP.code());
+        jdbcTemplate.execute("DROP INDEX idx_transaction_region_date");
+        jdbcTemplate.execute("ALTER TABLE \"transaction\" DROP COLUMN region");
+
+        // Act
+        new TransactionSchemaMigration(jdbcTemplate);
+
+        // Assert
+        assertEquals("TINYINT", type("region"));
+        assertEquals((long) Region.EAP.code(), row(1).get(1));
+    }
+
+    @Test
+    void testUnconvertibleValueStopsMigrationOfColumn() {
+        // Arrange
+        createLegacyTable();
+        insert(1, "192.168.0.1", "EUR", "A", "");
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> new TransactionSchemaMigration(jdbcTemplate));
+        assertEquals("EUR", jdbcTemplate.queryForObject("SELECT region FROM \"transaction\"", String.class));
+    }
+}
@@ -0,0 +1,46 @@
+package antifraud.persistence;
+
+import antifraud.domain.Transaction;
+import antifraud.domain.TransactionResult;
+import antifraud.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class TransactionSequenceInitializerTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testSequenceIsMovedPastExistingIds() {
+        // Arrange: a row stored while ids were identity values
+        jdbcTemplate.update("INSERT INTO \"transaction\" (id, amount, ip, number, region, date, result, feedback) " +
+                "VALUES (1, 100, 1, '4000008449433403', 1, ?, 1, 0)", LocalDateTime.now());
+
+        // Act
+        new TransactionSequenceInitializer(transactionRepository, jdbcTemplate);
+        Transaction saved = transactionRepository.saveAndFlush(new Transaction()
+                .setAmount(100L)
+                .setIp("192.168.0.2")
+                .setNumber("4000008449433403")
+                .setRegion("EAP")
+                .setDate(LocalDateTime.now())
+                .setResult(TransactionResult.ALLOWED));
+
+        // Assert
+        assertTrue(saved.getId() > 1);
+        assertEquals(2, transactionRepository.count());
+    }
+}
@@ -0,0 +1,219 @@
+package antifraud.persistence;
+
+import antifraud.domain.Transaction;
+import antifraud.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class WriteBehindTransactionWriterTest {
+
+    @Mock
+    TransactionRepository transactionRepository;
+
+    SimpleMeterRegistry meterRegistry;
+    WriteBehindTransactionWriter writer;
+    List<Integer> batchSizes;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        batchSizes = new ArrayList<>();
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaction> batch = invocation.getArgument(0);
+            synchronized (batchSizes) {
+                batchSizes.add(batch.size());
+            }
+            return batch;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    private WriteBehindTransactionWriter writer(int flushSize, Duration flushInterval,
+                                                WriteBehindTransactionWriter.Durability durability) {
+        writer = new WriteBehindTransactionWriter(transactionRepository, meterRegistry, 1000, flushSize,
+                flushInterval, durability, 2);
+        return writer;
+    }
+
+    @Test
+    void testFlushStoresQueuedTransactionsInBatches() {
+        // Arrange
+        writer(10, Duration.ofSeconds(10), WriteBehindTransactionWriter.Durability.ASYNC);
+
+        // Act
+        for (int i = 0; i < 25; i++) {
+            writer.write(new Transaction().setAmount((long) i));
+        }
+        writer.flush();
+
+        // Assert
+        assertEquals(25, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(10, batchSizes.get(0));
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+    }
+
+    @Test
+    void testPartialBatchIsStoredAfterFlushInterval() {
+        // Arrange
+        writer(100, Duration.ofMillis(20), WriteBehindTransactionWriter.Durability.ASYNC);
+
+        // Act
+        writer.write(new Transaction());
+
+        // Assert
+        verify(transactionRepository, timeout(2000).times(1)).saveAll(anyList());
+        assertEquals(List.of(1), batchSizes);
+    }
+
+    @Test
+    void testCommitDurabilityWaitsForBatch() {
+        // Arrange
+        writer(100, Duration.ofMillis(20), WriteBehindTransactionWriter.Durability.COMMIT);
+        Transaction transaction = new Transaction();
+
+        // Act
+        writer.write(transaction);
+
+        // Assert: stored before write returned
+        assertEquals(List.of(1), batchSizes);
+    }
+
+    @Test
+    void testWriteAllWithCommitDurabilityWaitsForAllTransactions() {
+        // Arrange
+        writer(2, Duration.ofMillis(20), WriteBehindTransactionWriter.Durability.COMMIT);
+
+        // Act
+        writer.writeAll(List.of(new Transaction(), new Transaction(), new Transaction()));
+
+        // Assert: stored before writeAll returned
+        assertEquals(3, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void testTransientFailureIsRetried() {
+        // Arrange
+        when(transactionRepository.saveAll(anyList()))
+                .thenThrow(new TransientDataAccessResourceException("Database unreachable"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        writer(100, Duration.ofMillis(10), WriteBehindTransactionWriter.Durability.ASYNC);
+
+        // Act
+        writer.write(new Transaction());
+        writer.flush();
+
+        // Assert
+        verify(transactionRepository, times(2)).saveAll(anyList());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void testBatchIsStoredOneByOneOnceRetriesAreExhausted() {
+        // Arrange
+        when(transactionRepository.saveAll(anyList()))
+                .thenThrow(new TransientDataAccessResourceException("Database unreachable"));
+        writer(100, Duration.ofMillis(1), WriteBehindTransactionWriter.Durability.ASYNC);
+
+        // Act
+        writer.writeAll(List.of(new Transaction(), new Transaction()));
+        writer.flush();
+
+        // Assert: the first attempt and two retries
+        verify(transactionRepository, times(3)).saveAll(anyList());
+        verify(transactionRepository, times(2)).save(any(Transaction.class));
+    }
+
+    @Test
+    void testRejectedRowIsDroppedWithoutStoppingTheWriter() {
+        // Arrange
+        Transaction rejected = new Transaction().setAmount(-1L);
+        when(transactionRepository.saveAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("Constraint violated"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == rejected) {
+                throw new DataIntegrityViolationException("Constraint violated");
+            }
+            return invocation.getArgument(0);
+        });
+        writer(100, Duration.ofMillis(10), WriteBehindTransactionWriter.Durability.COMMIT);
+
+        // Act
+        writer.writeAll(List.of(new Transaction(), rejected, new Transaction()));
+        writer.write(new Transaction());
+
+        // Assert: not retried as a batch, the other rows are stored and later batches still go through
+        verify(transactionRepository, times(3)).save(any(Transaction.class));
+        verify(transactionRepository, times(2)).saveAll(anyList());
+        assertEquals(1, meterRegistry.counter("antifraud.persistence.dropped").count());
+    }
+
+    @Test
+    void testShutdownDrainsQueue() throws InterruptedException {
+        // Arrange
+        writer(100, Duration.ofSeconds(10), WriteBehindTransactionWriter.Durability.ASYNC);
+        for (int i = 0; i < 5; i++) {
+            writer.write(new Transaction());
+        }
+
+        // Act
+        writer.shutdown();
+
+        // Assert
+        assertEquals(5, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        writer = null;
+    }
+
+    @Test
+    void testQueueDepthIsPublished() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+        writer(1, Duration.ofMillis(10), WriteBehindTransactionWriter.Durability.ASYNC);
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            writer.write(new Transaction());
+        }
+
+        // Assert
+        double depth = meterRegistry.get("antifraud.persistence.queue.depth").gauge().value();
+        assertTrue(depth >= 3, "queue depth was " + depth);
+        release.countDown();
+        writer.flush();
+        assertEquals(0, meterRegistry.get("antifraud.persistence.queue.depth").gauge().value());
+    }
+
+    @Test
+    void testQueueSmallerThanBatchThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new WriteBehindTransactionWriter(transactionRepository,
+                meterRegistry, 10, 100, Duration.ofMillis(10), WriteBehindTransactionWriter.Durability.ASYNC, 2));
+    }
+}
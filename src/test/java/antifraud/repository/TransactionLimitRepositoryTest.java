@@ -0,0 +1,40 @@
+package antifraud.repository;
+
+import antifraud.domain.TransactionLimit;
+import antifraud.domain.TransactionLimitId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+public class TransactionLimitRepositoryTest {
+
+    @Autowired
+    private TransactionLimitRepository transactionLimitRepository;
+
+    @Test
+    void testLimitsAreKeyedByMerchantAndRegion() {
+        // Arrange
+        transactionLimitRepository.saveAll(List.of(
+                new TransactionLimit("shop", "EAP", 136L, 1500L),
+                new TransactionLimit("shop", "ECA", 210L, 1500L),
+                new TransactionLimit("other", "EAP", 200L, 1150L)));
+
+        // Act: saving an existing key updates its row
+        transactionLimitRepository.saveAll(List.of(new TransactionLimit("shop", "EAP", 109L, 1500L)));
+
+        // Assert
+        assertEquals(3, transactionLimitRepository.count());
+        TransactionLimit limit = transactionLimitRepository.findById(new TransactionLimitId("shop", "EAP"))
+                .orElseThrow();
+        assertEquals(109L, limit.getMaxAllowed());
+        assertEquals(1150L, transactionLimitRepository.findById(new TransactionLimitId("other", "EAP"))
+                .orElseThrow().getMaxManual());
+    }
+}
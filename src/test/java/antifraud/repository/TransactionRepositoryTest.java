@@ -0,0 +1,266 @@
+package antifraud.repository;
+
+import antifraud.blacklist.IpRange;
+import antifraud.correlation.CorrelationCounts;
+import antifraud.domain.Region;
+import antifraud.domain.Transaction;
+import antifraud.domain.TransactionResult;
+import antifraud.dto.TransactionField;
+import antifraud.dto.TransactionSearchCriteria;
+import jakarta.persistence.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+public class TransactionRepositoryTest {
+    private static final String NUMBER = "4000008449433403";
+    private static final String OTHER_NUMBER = "4532015112830366";
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 10, 1, 12, 0);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        save(NUMBER, "EAP", "192.168.0.1", NOW.minusMinutes(50));
+        save(NUMBER, "ECA", "192.168.0.2", NOW.minusMinutes(40));
+        save(OTHER_NUMBER, "HIC", "192.168.0.3", NOW.minusMinutes(30));
+        save(OTHER_NUMBER, "HIC", "192.168.0.1", NOW.minusHours(1));
+        save(NUMBER, "SA", "192.168.0.4", NOW.minusHours(2));
+    }
+
+    private void save(String number, String region, String ip, LocalDateTime date) {
+        transactionRepository.save(new Transaction()
+                .setAmount(100L)
+                .setNumber(number)
+                .setRegion(region)
+                .setIp(ip)
+                .setDate(date)
+                .setResult(TransactionResult.ALLOWED));
+    }
+
+    @Test
+    void testCountDistinctInPeriodExcludingCountsBothInOneQuery() {
+        CorrelationCounts counts = transactionRepository.countDistinctInPeriodExcluding(
+                NOW.minusHours(1), NOW, Set.of("EAP"), Set.of("192.168.0.2"));
+
+        assertEquals(2L, counts.regions());
+        assertEquals(2L, counts.ips());
+    }
+
+    @Test
+    void testCountDistinctInPeriodExcludingWithUnseenValues() {
+        CorrelationCounts counts = transactionRepository.countDistinctInPeriodExcluding(
+                NOW.minusHours(1), NOW, Set.of("MENA"), Set.of("10.0.0.1"));
+
+        assertEquals(3L, counts.regions());
+        assertEquals(3L, counts.ips());
+    }
+
+    @Test
+    void testCountDistinctForNumberInPeriodExcludingOnlyCountsSameCard() {
+        CorrelationCounts counts = transactionRepository.countDistinctForNumberInPeriodExcluding(
+                NUMBER, NOW.minusHours(1), NOW, Set.of("EAP"), Set.of("10.0.0.1"));
+
+        assertEquals(1L, counts.regions());
+        assertEquals(2L, counts.ips());
+    }
+
+    @Test
+    void testCountDistinctInPeriodExcludingSeveralValues() {
+        CorrelationCounts counts = transactionRepository.countDistinctInPeriodExcluding(
+                NOW.minusHours(1), NOW, Set.of("EAP", "HIC"), Set.of("192.168.0.1", "192.168.0.3", "10.0.0.1"));
+
+        assertEquals(1L, counts.regions());
+        assertEquals(1L, counts.ips());
+    }
+
+    @Test
+    void testCountDistinctInEmptyPeriodReturnsZero() {
+        CorrelationCounts counts = transactionRepository.countDistinctInPeriodExcluding(
+                NOW.plusHours(1), NOW.plusHours(2), Set.of("EAP"), Set.of("192.168.0.1"));
+
+        assertEquals(0L, counts.regions());
+        assertEquals(0L, counts.ips());
+    }
+
+    @Test
+    void testColumnsArePersistedAsCompactCodes() {
+        // Arrange
+        Transaction transaction = transactionRepository.findAll().get(0)
+                .setResult(TransactionResult.MANUAL_PROCESSING)
+                .setFeedback(TransactionResult.PROHIBITED);
+        transactionRepository.saveAndFlush(transaction);
+        Transaction withoutFeedback = transactionRepository.findAll().get(1);
+
+        // Act
+        Object[] columns = (Object[]) entityManager.getEntityManager()
+                .createNativeQuery("SELECT result, feedback, region, ip FROM \"transaction\" WHERE id = ?1")
+                .setParameter(1, transaction.getId())
+                .getSingleResult();
+        entityManager.clear();
+
+        // Assert
+        assertEquals(TransactionResult.MANUAL_PROCESSING.code(), ((Number) columns[0]).byteValue());
+        assertEquals(TransactionResult.PROHIBITED.code(), ((Number) columns[1]).byteValue());
+        assertEquals(Region.valueOf(transaction.getRegion()).code(), ((Number) columns[2]).byteValue());
+        assertEquals(IpRange.parseAddress(transaction.getIp()), ((Number) columns[3]).intValue());
+        Transaction reloaded = transactionRepository.findById(withoutFeedback.getId()).orElseThrow();
+        assertEquals(TransactionResult.ALLOWED, reloaded.getResult());
+        assertEquals(withoutFeedback.getIp(), reloaded.getIp());
+        assertEquals(withoutFeedback.getRegion(), reloaded.getRegion());
+        assertNull(reloaded.getFeedback());
+    }
+
+    @Test
+    void testColumnsHaveCompactTypes() {
+        // Act
+        List<?> types = entityManager.getEntityManager()
+                .createNativeQuery("SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS " +
+                        "WHERE LOWER(TABLE_NAME) = 'transaction' AND LOWER(COLUMN_NAME) IN " +
+                        "('ip', 'region', 'result', 'feedback') ORDER BY LOWER(COLUMN_NAME)")
+                .getResultList();
+
+        // Assert: feedback, ip, region, result
+        assertEquals(List.of("TINYINT", "INTEGER", "TINYINT", "TINYINT"), types);
+    }
+
+    @Test
+    void testKeysetPagesFollowIdOrder() {
+        // Arrange
+        List<Long> ids = transactionRepository.findAll().stream().map(Transaction::getId).sorted().toList();
+
+        // Act
+        List<Transaction> first = transactionRepository.findAllByIdGreaterThanOrderByIdAsc(0L, Limit.of(2));
+        List<Transaction> second = transactionRepository.findAllByIdGreaterThanOrderByIdAsc(
+                first.get(1).getId(), Limit.of(2));
+        List<Transaction> last = transactionRepository.findAllByIdGreaterThanOrderByIdAsc(ids.get(4), Limit.of(2));
+
+        // Assert
+        assertEquals(ids.subList(0, 2), first.stream().map(Transaction::getId).toList());
+        assertEquals(ids.subList(2, 4), second.stream().map(Transaction::getId).toList());
+        assertTrue(last.isEmpty());
+    }
+
+    @Test
+    void testKeysetPagesByNumberOnlyContainSameCard() {
+        // Act
+        List<Transaction> first = transactionRepository.findAllByNumberAndIdGreaterThanOrderByIdAsc(NUMBER, 0L,
+                Limit.of(2));
+        List<Transaction> second = transactionRepository.findAllByNumberAndIdGreaterThanOrderByIdAsc(NUMBER,
+                first.get(1).getId(), Limit.of(2));
+
+        // Assert
+        assertEquals(List.of("EAP", "ECA"), first.stream().map(Transaction::getRegion).toList());
+        assertEquals(List.of("SA"), second.stream().map(Transaction::getRegion).toList());
+    }
+
+    private static TransactionSearchCriteria criteria(LocalDateTime from, LocalDateTime to, String region) {
+        return new TransactionSearchCriteria(from, to, null, null, region, null, null, null);
+    }
+
+    @Test
+    void testSearchCombinesFilters() {
+        // Act: the range includes its start and excludes its end
+        List<Tuple> rows = transactionRepository.search(criteria(NOW.minusHours(1), NOW.minusMinutes(30), "HIC"),
+                EnumSet.of(TransactionField.TRANSACTION_ID, TransactionField.DATE), 0L, 10);
+
+        // Assert
+        assertEquals(1, rows.size());
+        assertEquals(NOW.minusHours(1), rows.get(0).get(TransactionField.DATE.name()));
+    }
+
+    @Test
+    void testSearchOnlySelectsRequestedFields() {
+        // Act
+        List<Tuple> rows = transactionRepository.search(criteria(null, null, "EAP"),
+                EnumSet.of(TransactionField.TRANSACTION_ID, TransactionField.IP, TransactionField.RESULT), 0L, 10);
+
+        // Assert
+        assertEquals(1, rows.size());
+        Tuple row = rows.get(0);
+        assertEquals(3, row.getElements().size());
+        assertEquals("192.168.0.1", row.get(TransactionField.IP.name()));
+        assertEquals(TransactionResult.ALLOWED, row.get(TransactionField.RESULT.name()));
+        assertThrows(IllegalArgumentException.class, () -> row.get(TransactionField.NUMBER.name()));
+    }
+
+    @Test
+    void testSearchByResultFeedbackAndAmount() {
+        // Arrange
+        List<Transaction> transactions = transactionRepository.findAll();
+        transactionRepository.save(transactions.get(0).setAmount(500L).setResult(TransactionResult.PROHIBITED));
+        transactionRepository.save(transactions.get(1).setAmount(900L).setFeedback(TransactionResult.PROHIBITED));
+        transactionRepository.flush();
+        Set<TransactionField> id = EnumSet.of(TransactionField.TRANSACTION_ID);
+
+        // Act
+        List<Tuple> prohibited = transactionRepository.search(new TransactionSearchCriteria(null, null,
+                "PROHIBITED", null, null, null, null, null), id, 0L, 10);
+        List<Tuple> withFeedback = transactionRepository.search(new TransactionSearchCriteria(null, null,
+                null, "PROHIBITED", null, null, null, null), id, 0L, 10);
+        List<Tuple> withoutFeedback = transactionRepository.search(new TransactionSearchCriteria(null, null,
+                null, "NONE", null, null, null, null), id, 0L, 10);
+        List<Tuple> amountRange = transactionRepository.search(new TransactionSearchCriteria(null, null,
+                null, null, null, null, 200L, 900L), id, 0L, 10);
+
+        // Assert
+        assertEquals(List.of(transactions.get(0).getId()), ids(prohibited));
+        assertEquals(List.of(transactions.get(1).getId()), ids(withFeedback));
+        assertEquals(4, withoutFeedback.size());
+        assertFalse(ids(withoutFeedback).contains(transactions.get(1).getId()));
+        assertEquals(List.of(transactions.get(0).getId(), transactions.get(1).getId()), ids(amountRange));
+    }
+
+    @Test
+    void testSearchPagesFollowIdOrder() {
+        // Arrange
+        TransactionSearchCriteria byIp = new TransactionSearchCriteria(null, null, null, null, null,
+                "192.168.0.1", null, null);
+        Set<TransactionField> id = EnumSet.of(TransactionField.TRANSACTION_ID);
+
+        // Act
+        List<Tuple> first = transactionRepository.search(byIp, id, 0L, 1);
+        List<Tuple> second = transactionRepository.search(byIp, id, ids(first).get(0), 1);
+        List<Tuple> last = transactionRepository.search(byIp, id, ids(second).get(0), 1);
+
+        // Assert
+        assertTrue(ids(first).get(0) < ids(second).get(0));
+        assertTrue(last.isEmpty());
+    }
+
+    private static List<Long> ids(List<Tuple> rows) {
+        return rows.stream().map(row -> row.get(TransactionField.TRANSACTION_ID.name(), Long.class)).toList();
+    }
+
+    @Test
+    void testIndexesAreCreated() {
+        // Act
+        List<?> indexes = entityManager.getEntityManager()
+                .createNativeQuery("SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES " +
+                        "WHERE LOWER(TABLE_NAME) = 'transaction'")
+                .getResultList();
+
+        // Assert
+        assertTrue(indexes.containsAll(List.of("idx_transaction_date_region", "idx_transaction_date_ip",
+                "idx_transaction_number_id", "idx_transaction_result_id", "idx_transaction_region_id",
+                "idx_transaction_ip_id")), indexes.toString());
+    }
+}
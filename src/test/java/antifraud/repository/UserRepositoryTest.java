@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import antifraud.domain.User;
 import antifraud.security.RoleLoader;
+import antifraud.security.UserPrincipal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -62,6 +63,23 @@ public class UserRepositoryTest {
         assertThat(foundUser.get().getUsername()).isEqualToIgnoringCase(testCorrectUser.getUsername());
     }
 
+    @Test
+    void testFindPrincipalByUsernameIgnoreCaseReadsUserAndRoleName() {
+        User savedUser = userRepository.save(testCorrectUser);
+
+        Optional<UserPrincipal> principal =
+                userRepository.findPrincipalByUsernameIgnoreCase(testCorrectUser.getUsername().toUpperCase());
+        assertTrue(principal.isPresent());
+        assertEquals(new UserPrincipal(savedUser.getId(), testCorrectUser.getUsername(),
+                testCorrectUser.getPassword(), "ADMINISTRATOR", false), principal.get());
+        assertEquals("ROLE_ADMINISTRATOR", principal.get().getAuthorities().get(0).getAuthority());
+    }
+
+    @Test
+    void testFindPrincipalByUsernameIgnoreCaseOfUnknownUserIsEmpty() {
+        assertTrue(userRepository.findPrincipalByUsernameIgnoreCase("unknown").isEmpty());
+    }
+
     @Test
     void testExistsByUsernameIgnoreCaseConfirmsUserExists() {
         userRepository.save(testCorrectUser);
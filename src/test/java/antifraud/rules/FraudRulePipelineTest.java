@@ -0,0 +1,153 @@
+package antifraud.rules;
+
+import antifraud.correlation.CorrelationCounts;
+import antifraud.correlation.TransactionCorrelation;
+import antifraud.domain.TransactionResult;
+import antifraud.dto.PostTransactionInDto;
+import antifraud.dto.PostTransactionOutDto;
+import antifraud.limits.LimitSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static antifraud.domain.TransactionResult.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class FraudRulePipelineTest {
+
+    @Mock
+    TransactionCorrelation transactionCorrelation;
+
+    SimpleMeterRegistry meterRegistry;
+    List<String> evaluated;
+    ScoringContext context;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        evaluated = new ArrayList<>();
+        context = new ScoringContext(new PostTransactionInDto(100L, "192.168.1.1", "4000008449433403", "EAP",
+                LocalDateTime.now()), new LimitSnapshot(200, 1500), transactionCorrelation);
+    }
+
+    private FraudRule rule(String name, int cost, TransactionResult verdict) {
+        return new FraudRule() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public int cost() {
+                return cost;
+            }
+
+            @Override
+            public TransactionResult evaluate(ScoringContext context) {
+                evaluated.add(name);
+                return verdict;
+            }
+        };
+    }
+
+    @Test
+    void testRulesAreEvaluatedCheapestFirst() {
+        // Arrange
+        FraudRulePipeline pipeline = new FraudRulePipeline(List.of(
+                rule("db", FraudRule.COST_DATABASE, ALLOWED),
+                rule("index", FraudRule.COST_INDEX_LOOKUP, ALLOWED),
+                rule("memory", FraudRule.COST_IN_MEMORY, ALLOWED),
+                rule("other-index", FraudRule.COST_INDEX_LOOKUP, ALLOWED)), meterRegistry);
+
+        // Act
+        PostTransactionOutDto result = pipeline.evaluate(context);
+
+        // Assert
+        assertEquals(List.of("memory", "index", "other-index", "db"), evaluated);
+        assertEquals(new PostTransactionOutDto(ALLOWED, "none"), result);
+    }
+
+    @Test
+    void testInfoListsMostSevereRulesInDeclaredOrder() {
+        // Arrange
+        FraudRulePipeline pipeline = new FraudRulePipeline(List.of(
+                rule("first", FraudRule.COST_DATABASE, PROHIBITED),
+                rule("second", FraudRule.COST_IN_MEMORY, MANUAL_PROCESSING),
+                rule("third", FraudRule.COST_IN_MEMORY, PROHIBITED)), meterRegistry);
+
+        // Act
+        PostTransactionOutDto result = pipeline.evaluate(context);
+
+        // Assert
+        assertEquals(new PostTransactionOutDto(PROHIBITED, "first, third"), result);
+    }
+
+    @Test
+    void testManualReasonsAreListedWhenNothingIsProhibited() {
+        // Arrange
+        FraudRulePipeline pipeline = new FraudRulePipeline(List.of(
+                rule("first", FraudRule.COST_IN_MEMORY, MANUAL_PROCESSING),
+                rule("second", FraudRule.COST_IN_MEMORY, ALLOWED),
+                rule("third", FraudRule.COST_IN_MEMORY, MANUAL_PROCESSING)), meterRegistry);
+
+        // Act
+        PostTransactionOutDto result = pipeline.evaluate(context);
+
+        // Assert
+        assertEquals(new PostTransactionOutDto(MANUAL_PROCESSING, "first, third"), result);
+    }
+
+    @Test
+    void testDecisionsArePrecomputed() {
+        // Arrange
+        FraudRulePipeline pipeline = new FraudRulePipeline(List.of(
+                rule("first", FraudRule.COST_IN_MEMORY, PROHIBITED),
+                rule("second", FraudRule.COST_IN_MEMORY, PROHIBITED)), meterRegistry);
+
+        // Act & Assert
+        assertSame(pipeline.evaluate(context), pipeline.evaluate(context));
+    }
+
+    @Test
+    void testEachRuleIsTimed() {
+        // Arrange
+        FraudRulePipeline pipeline = new FraudRulePipeline(List.of(
+                rule("first", FraudRule.COST_IN_MEMORY, ALLOWED),
+                rule("second", FraudRule.COST_DATABASE, ALLOWED)), meterRegistry);
+
+        // Act
+        pipeline.evaluate(context);
+        pipeline.evaluate(context);
+
+        // Assert
+        assertEquals(2, meterRegistry.get("antifraud.rule.evaluation").tag("rule", "first").timer().count());
+        assertEquals(2, meterRegistry.get("antifraud.rule.evaluation").tag("rule", "second").timer().count());
+    }
+
+    @Test
+    void testCorrelationRulesShareOneLookup() {
+        // Arrange
+        when(transactionCorrelation.countDistinctExcluding(anyString(), any(), anyString(), anyString()))
+                .thenReturn(new CorrelationCounts(2L, 3L));
+        FraudRulePipeline pipeline = new FraudRulePipeline(List.of(new RegionCorrelationRule(),
+                new IpCorrelationRule()), meterRegistry);
+
+        // Act
+        PostTransactionOutDto result = pipeline.evaluate(context);
+
+        // Assert
+        assertEquals(new PostTransactionOutDto(PROHIBITED, "ip-correlation"), result);
+        verify(transactionCorrelation, times(1)).countDistinctExcluding(anyString(), any(), anyString(),
+                anyString());
+    }
+}
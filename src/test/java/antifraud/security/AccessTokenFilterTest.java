@@ -0,0 +1,118 @@
+package antifraud.security;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.AuthenticationEntryPoint;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AccessTokenFilterTest {
+
+    @Mock
+    AccessTokenService accessTokenService;
+
+    @Mock
+    AuthenticationEntryPoint authenticationEntryPoint;
+
+    @Mock
+    FilterChain chain;
+
+    AccessTokenFilter filter;
+
+    MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        filter = new AccessTokenFilter(accessTokenService, authenticationEntryPoint);
+        response = new MockHttpServletResponse();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static MockHttpServletRequest request(String uri, String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setServletPath(uri);
+        if (authorization != null) {
+            request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        return request;
+    }
+
+    @Test
+    void testValidTokenAuthenticatesRequest() throws Exception {
+        // Arrange
+        Authentication authentication = UsernamePasswordAuthenticationToken.authenticated("shop", null,
+                AuthorityUtils.createAuthorityList("ROLE_MERCHANT"));
+        when(accessTokenService.verify("token")).thenReturn(authentication);
+        MockHttpServletRequest request = request("/api/antifraud/transaction", "Bearer token");
+
+        // Act
+        filter.doFilter(request, response, (req, res) ->
+                assertSame(authentication, SecurityContextHolder.getContext().getAuthentication()));
+
+        // Assert
+        verify(accessTokenService).verify("token");
+        verifyNoInteractions(authenticationEntryPoint);
+    }
+
+    @Test
+    void testInvalidTokenIsAnsweredByEntryPoint() throws Exception {
+        // Arrange
+        when(accessTokenService.verify("token")).thenThrow(new BadCredentialsException("Invalid access token"));
+        MockHttpServletRequest request = request("/api/antifraud/transaction", "bearer token");
+
+        // Act
+        filter.doFilter(request, response, chain);
+
+        // Assert
+        verify(authenticationEntryPoint).commence(eq(request), eq(response), any(BadCredentialsException.class));
+        verifyNoInteractions(chain);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testRequestWithoutTokenIsPassedOn() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = request("/api/antifraud/transaction", "Basic c2hvcDpwdw==");
+
+        // Act
+        filter.doFilter(request, response, chain);
+
+        // Assert
+        verify(chain).doFilter(request, response);
+        verify(accessTokenService, never()).verify(anyString());
+    }
+
+    @Test
+    void testTokenIsIgnoredOutsideAntifraudEndpoints() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = request("/api/auth/token", "Bearer token");
+
+        // Act
+        filter.doFilter(request, response, chain);
+
+        // Assert
+        verify(chain).doFilter(request, response);
+        verify(accessTokenService, never()).verify(anyString());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
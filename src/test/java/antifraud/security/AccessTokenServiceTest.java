@@ -0,0 +1,220 @@
+package antifraud.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.time.*;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessTokenServiceTest {
+    private static final byte[] SECRET = new byte[32];
+
+    MutableClock clock;
+
+    AccessTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-10-01T12:00:00Z"));
+        service = new AccessTokenService(SECRET, Duration.ofMinutes(15), clock);
+    }
+
+    private static Authentication authentication(String username, String... authorities) {
+        return UsernamePasswordAuthenticationToken.authenticated(username, "password",
+                AuthorityUtils.createAuthorityList(authorities));
+    }
+
+    @Test
+    void testVerifyReturnsUserAndAuthoritiesOfToken() {
+        // Arrange
+        String token = service.issue(authentication("shop:1\nx", "ROLE_MERCHANT"));
+
+        // Act
+        Authentication result = service.verify(token);
+
+        // Assert
+        assertTrue(result.isAuthenticated());
+        assertEquals("shop:1\nx", result.getName());
+        assertNull(result.getCredentials());
+        assertEquals(AuthorityUtils.createAuthorityList("ROLE_MERCHANT"), result.getAuthorities());
+    }
+
+    @Test
+    void testTokenDoesNotContainPassword() {
+        // Arrange
+        String token = service.issue(authentication("shop", "ROLE_MERCHANT"));
+
+        // Act
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+
+        // Assert
+        assertFalse(payload.contains("password"));
+    }
+
+    @Test
+    void testVerifyRejectsTamperedToken() {
+        // Arrange
+        String token = service.issue(authentication("shop", "ROLE_MERCHANT"));
+        String support = service.issue(authentication("shop", "ROLE_SUPPORT"));
+        String forged = support.substring(0, support.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        // Act & Assert
+        assertThrows(BadCredentialsException.class, () -> service.verify(forged));
+        assertThrows(BadCredentialsException.class, () -> service.verify(token.substring(0, token.length() - 2)));
+        assertThrows(BadCredentialsException.class, () -> service.verify("no-signature"));
+        assertThrows(BadCredentialsException.class, () -> service.verify("not base64.%%"));
+    }
+
+    @Test
+    void testVerifyRejectsTokenSignedWithOtherSecret() {
+        // Arrange
+        byte[] otherSecret = new byte[32];
+        Arrays.fill(otherSecret, (byte) 1);
+        String token = new AccessTokenService(otherSecret, Duration.ofMinutes(15), clock)
+                .issue(authentication("shop", "ROLE_MERCHANT"));
+
+        // Act & Assert
+        assertThrows(BadCredentialsException.class, () -> service.verify(token));
+    }
+
+    @Test
+    void testVerifyRejectsExpiredToken() {
+        // Arrange
+        String token = service.issue(authentication("shop", "ROLE_MERCHANT"));
+        clock.advance(Duration.ofMinutes(15).minusMillis(1));
+        assertDoesNotThrow(() -> service.verify(token));
+
+        // Act
+        clock.advance(Duration.ofMillis(1));
+
+        // Assert
+        assertThrows(CredentialsExpiredException.class, () -> service.verify(token));
+    }
+
+    @Test
+    void testTokenWithShorterValidityExpiresEarlier() {
+        // Arrange
+        String token = service.issue(authentication("warm-up", "ROLE_SUPPORT"), Duration.ofMinutes(1));
+        clock.advance(Duration.ofMinutes(1).minusMillis(1));
+        assertDoesNotThrow(() -> service.verify(token));
+
+        // Act
+        clock.advance(Duration.ofMillis(1));
+
+        // Assert
+        assertThrows(CredentialsExpiredException.class, () -> service.verify(token));
+    }
+
+    @Test
+    void testValidityIsCappedAtTtl() {
+        // Arrange
+        String token = service.issue(authentication("shop", "ROLE_MERCHANT"), Duration.ofHours(1));
+
+        // Act
+        clock.advance(Duration.ofMinutes(15));
+
+        // Assert
+        assertThrows(CredentialsExpiredException.class, () -> service.verify(token));
+    }
+
+    @Test
+    void testUserChangedRevokesEarlierTokensOfThatUser() {
+        // Arrange
+        String token = service.issue(authentication("shop", "ROLE_MERCHANT"));
+        String otherToken = service.issue(authentication("other", "ROLE_MERCHANT"));
+        clock.advance(Duration.ofSeconds(1));
+
+        // Act
+        service.userChanged("SHOP");
+
+        // Assert
+        assertThrows(BadCredentialsException.class, () -> service.verify(token));
+        assertDoesNotThrow(() -> service.verify(otherToken));
+    }
+
+    @Test
+    void testAllUsersChangedRevokesAllEarlierTokens() {
+        // Arrange
+        String token = service.issue(authentication("shop", "ROLE_MERCHANT"));
+        String otherToken = service.issue(authentication("other", "ROLE_MERCHANT"));
+        clock.advance(Duration.ofSeconds(1));
+
+        // Act
+        service.allUsersChanged();
+        clock.advance(Duration.ofMillis(1));
+        String newToken = service.issue(authentication("shop", "ROLE_MERCHANT"));
+
+        // Assert
+        assertThrows(BadCredentialsException.class, () -> service.verify(token));
+        assertThrows(BadCredentialsException.class, () -> service.verify(otherToken));
+        assertDoesNotThrow(() -> service.verify(newToken));
+    }
+
+    @Test
+    void testTokenIssuedAfterUserChangeIsAccepted() {
+        // Arrange
+        service.userChanged("shop");
+        clock.advance(Duration.ofMillis(1));
+
+        // Act
+        String token = service.issue(authentication("shop", "ROLE_SUPPORT"));
+
+        // Assert
+        assertEquals("shop", service.verify(token).getName());
+    }
+
+    @Test
+    void testDenyListDropsChangesOlderThanTtl() {
+        // Arrange
+        service.userChanged("shop");
+        clock.advance(Duration.ofMinutes(16));
+
+        // Act
+        service.userChanged("other");
+
+        // Assert
+        assertEquals(1, service.revokedUsers());
+    }
+
+    @Test
+    void testSecretMustHaveAtLeast256Bits() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> new AccessTokenService(new byte[16], Duration.ofMinutes(15), clock));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
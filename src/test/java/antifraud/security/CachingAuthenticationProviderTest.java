@@ -0,0 +1,109 @@
+package antifraud.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CachingAuthenticationProviderTest {
+
+    @Mock
+    UserDetailsService userDetailsService;
+
+    PasswordEncoder passwordEncoder;
+
+    CredentialCache cache;
+
+    CachingAuthenticationProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        passwordEncoder = spy(new BCryptPasswordEncoder(4));
+        cache = new CredentialCache(new SimpleMeterRegistry(), Duration.ofSeconds(30), 100);
+        provider = new CachingAuthenticationProvider(userDetailsService, passwordEncoder, cache);
+    }
+
+    private void givenUser(String username, String password, boolean locked) {
+        UserDetails user = User.withUsername(username)
+                .password(new BCryptPasswordEncoder(4).encode(password))
+                .roles("MERCHANT")
+                .accountLocked(locked)
+                .build();
+        when(userDetailsService.loadUserByUsername(username)).thenReturn(user);
+    }
+
+    private static Authentication login(String username, String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+    }
+
+    @Test
+    void testRepeatedLoginChecksPasswordOnce() {
+        // Arrange
+        givenUser("john", "secret", false);
+
+        // Act
+        Authentication first = provider.authenticate(login("john", "secret"));
+        Authentication second = provider.authenticate(login("john", "secret"));
+
+        // Assert
+        assertTrue(first.isAuthenticated());
+        assertTrue(second.isAuthenticated());
+        assertEquals("john", ((UserDetails) second.getPrincipal()).getUsername());
+        assertNull(second.getCredentials());
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+        assertNotSame(first, second);
+        verify(passwordEncoder, times(1)).matches(anyString(), anyString());
+        verify(userDetailsService, times(1)).loadUserByUsername("john");
+    }
+
+    @Test
+    void testWrongPasswordIsNotCached() {
+        // Arrange
+        givenUser("john", "secret", false);
+
+        // Act & Assert
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("john", "wrong")));
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("john", "wrong")));
+        assertEquals(0, cache.size());
+        verify(passwordEncoder, times(2)).matches(anyString(), anyString());
+    }
+
+    @Test
+    void testLockedUserIsNotCached() {
+        // Arrange
+        givenUser("john", "secret", true);
+
+        // Act & Assert
+        assertThrows(LockedException.class, () -> provider.authenticate(login("john", "secret")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testLoginAfterUserChangeIsVerifiedAgain() {
+        // Arrange
+        givenUser("john", "secret", false);
+        provider.authenticate(login("john", "secret"));
+        cache.userChanged("john");
+        givenUser("john", "secret", true);
+
+        // Act & Assert
+        assertThrows(LockedException.class, () -> provider.authenticate(login("john", "secret")));
+    }
+}
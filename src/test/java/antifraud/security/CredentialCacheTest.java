@@ -0,0 +1,199 @@
+package antifraud.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialCacheTest {
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_MERCHANT"));
+
+    MeterRegistry meterRegistry;
+
+    MutableClock clock;
+
+    CredentialCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(Instant.parse("2024-10-01T12:00:00Z"));
+        cache = new CredentialCache(meterRegistry, Duration.ofSeconds(30), 2, clock);
+    }
+
+    private static UserDetails principal(String username) {
+        return User.withUsername(username).password("hash").authorities(AUTHORITIES).build();
+    }
+
+    private void put(String username, String password) {
+        cache.put(cache.key(username, password), principal(username), AUTHORITIES, cache.generation());
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("antifraud.security.credential-cache.requests").tag("result", result)
+                .counter().count();
+    }
+
+    @Test
+    void testKeyDependsOnUsernameAndPassword() {
+        // Act & Assert
+        assertEquals(cache.key("john", "secret"), cache.key("john", "secret"));
+        assertNotEquals(cache.key("john", "secret"), cache.key("john", "Secret"));
+        assertNotEquals(cache.key("ab", "c"), cache.key("a", "bc"));
+        assertFalse(cache.key("john", "secret").contains("secret"));
+    }
+
+    @Test
+    void testKeyDiffersBetweenCaches() {
+        // Arrange
+        CredentialCache other = new CredentialCache(new SimpleMeterRegistry(), Duration.ofSeconds(30), 2, clock);
+
+        // Act & Assert: the key is generated at startup
+        assertNotEquals(cache.key("john", "secret"), other.key("john", "secret"));
+    }
+
+    @Test
+    void testGetReturnsCachedVerificationAndCountsHit() {
+        // Arrange
+        put("john", "secret");
+
+        // Act
+        CredentialCache.Verified verified = cache.get(cache.key("john", "secret"));
+
+        // Assert
+        assertNotNull(verified);
+        assertEquals("john", verified.principal().getUsername());
+        assertEquals(AUTHORITIES, verified.authorities());
+        assertEquals(1, requests("hit"));
+        assertEquals(0, requests("miss"));
+    }
+
+    @Test
+    void testGetWithOtherPasswordMisses() {
+        // Arrange
+        put("john", "secret");
+
+        // Act
+        CredentialCache.Verified verified = cache.get(cache.key("john", "wrong"));
+
+        // Assert
+        assertNull(verified);
+        assertEquals(1, requests("miss"));
+    }
+
+    @Test
+    void testEntryExpiresAfterTtl() {
+        // Arrange
+        put("john", "secret");
+        clock.advance(Duration.ofSeconds(29));
+        assertNotNull(cache.get(cache.key("john", "secret")));
+
+        // Act
+        clock.advance(Duration.ofSeconds(1));
+
+        // Assert
+        assertNull(cache.get(cache.key("john", "secret")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsDroppedAtMaxSize() {
+        // Arrange
+        put("john", "secret");
+        put("jane", "secret");
+        cache.get(cache.key("john", "secret"));
+
+        // Act
+        put("jack", "secret");
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(cache.key("john", "secret")));
+        assertNull(cache.get(cache.key("jane", "secret")));
+        assertNotNull(cache.get(cache.key("jack", "secret")));
+        assertEquals(2, meterRegistry.get("antifraud.security.credential-cache.size").gauge().value());
+    }
+
+    @Test
+    void testUserChangedDropsEntriesOfThatUserOnly() {
+        // Arrange
+        put("john", "secret");
+        put("jane", "secret");
+
+        // Act
+        cache.userChanged("JOHN");
+
+        // Assert
+        assertNull(cache.get(cache.key("john", "secret")));
+        assertNotNull(cache.get(cache.key("jane", "secret")));
+    }
+
+    @Test
+    void testAllUsersChangedDropsAllEntries() {
+        // Arrange
+        put("john", "secret");
+        put("jane", "secret");
+
+        // Act
+        cache.allUsersChanged();
+
+        // Assert
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testVerificationStartedBeforeUserChangeIsNotCached() {
+        // Arrange
+        long startedAt = cache.generation();
+        cache.userChanged("jane");
+
+        // Act
+        cache.put(cache.key("john", "secret"), principal("john"), AUTHORITIES, startedAt);
+
+        // Assert
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testMaxSizeMustBePositive() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> new CredentialCache(new SimpleMeterRegistry(), Duration.ofSeconds(30), 0, clock));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package antifraud.security;
 
 import antifraud.repository.UserRepository;
-import antifraud.domain.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -23,6 +22,8 @@ public class UserDetailsServiceImplTest {
     @InjectMocks
     private UserDetailsServiceImpl userDetailsService;
 
+    private final UserPrincipal principal = new UserPrincipal(1L, "testuser", "password", "MERCHANT", false);
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -31,24 +32,93 @@ public class UserDetailsServiceImplTest {
     @Test
     void testLoadUserByUsernameWhenUserExistsReturnsUserDetails() {
         String username = "testuser";
-        User user = new User();
-        user.setUsername(username);
-        user.setPassword("password");
-        when(userRepository.findByUsernameIgnoreCase(username)).thenReturn(Optional.of(user));
+        when(userRepository.findPrincipalByUsernameIgnoreCase(username)).thenReturn(Optional.of(principal));
 
         UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
         assertNotNull(userDetails);
         assertEquals(username, userDetails.getUsername());
-        verify(userRepository, times(1)).findByUsernameIgnoreCase(username);
+        assertEquals("ROLE_MERCHANT", userDetails.getAuthorities().iterator().next().getAuthority());
+        assertTrue(userDetails.isAccountNonLocked());
+        verify(userRepository, times(1)).findPrincipalByUsernameIgnoreCase(username);
     }
 
     @Test
     void testLoadUserByUsernameWhenUserDoesNotExistThrowsUsernameNotFoundException() {
         String username = "nonexistentuser";
-        when(userRepository.findByUsernameIgnoreCase(username)).thenReturn(Optional.empty());
+        when(userRepository.findPrincipalByUsernameIgnoreCase(username)).thenReturn(Optional.empty());
 
         assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername(username));
-        verify(userRepository, times(1)).findByUsernameIgnoreCase(username);
+        verify(userRepository, times(1)).findPrincipalByUsernameIgnoreCase(username);
+    }
+
+    @Test
+    void testLoadUserByUsernameQueriesDatabaseOnlyOnce() {
+        when(userRepository.findPrincipalByUsernameIgnoreCase("testuser")).thenReturn(Optional.of(principal));
+
+        UserDetails first = userDetailsService.loadUserByUsername("testuser");
+        UserDetails second = userDetailsService.loadUserByUsername("TestUser");
+
+        assertSame(first, second);
+        assertSame(first.getAuthorities(), second.getAuthorities());
+        verify(userRepository, times(1)).findPrincipalByUsernameIgnoreCase(anyString());
+    }
+
+    @Test
+    void testUnknownUserIsNotCached() {
+        when(userRepository.findPrincipalByUsernameIgnoreCase("testuser"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(principal));
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("testuser"));
+
+        assertEquals(principal, userDetailsService.loadUserByUsername("testuser"));
+    }
+
+    @Test
+    void testUserChangedReloadsUser() {
+        UserPrincipal locked = new UserPrincipal(1L, "testuser", "password", "MERCHANT", true);
+        when(userRepository.findPrincipalByUsernameIgnoreCase("testuser"))
+                .thenReturn(Optional.of(principal))
+                .thenReturn(Optional.of(locked));
+        userDetailsService.loadUserByUsername("testuser");
+
+        userDetailsService.userChanged("TESTUSER");
+
+        assertFalse(userDetailsService.loadUserByUsername("testuser").isAccountNonLocked());
+        verify(userRepository, times(2)).findPrincipalByUsernameIgnoreCase("testuser");
+    }
+
+    @Test
+    void testAllUsersChangedReloadsEveryUser() {
+        when(userRepository.findPrincipalByUsernameIgnoreCase("testuser")).thenReturn(Optional.of(principal));
+        userDetailsService.loadUserByUsername("testuser");
+
+        userDetailsService.allUsersChanged();
+        userDetailsService.loadUserByUsername("testuser");
+
+        verify(userRepository, times(2)).findPrincipalByUsernameIgnoreCase("testuser");
+    }
+
+    @Test
+    void testUserLoadedBeforeChangeIsNotCached() {
+        // the change happens while the user is read from the database
+        when(userRepository.findPrincipalByUsernameIgnoreCase("testuser")).thenAnswer(invocation -> {
+            userDetailsService.userChanged("testuser");
+            return Optional.of(principal);
+        });
+
+        userDetailsService.loadUserByUsername("testuser");
+        userDetailsService.loadUserByUsername("testuser");
+
+        verify(userRepository, times(2)).findPrincipalByUsernameIgnoreCase("testuser");
+    }
+
+    @Test
+    void testPrincipalsOfSameRoleShareAuthorities() {
+        UserPrincipal other = new UserPrincipal(2L, "other", "password", "MERCHANT", false);
+
+        assertSame(principal.getAuthorities(), other.getAuthorities());
+        assertFalse(principal.toString().contains("password"));
     }
 }
@@ -1,35 +1,60 @@
 package antifraud.service.impl;
 
+import antifraud.blacklist.IpRange;
+import antifraud.blacklist.StolenCardIndex;
+import antifraud.blacklist.SuspiciousIpIndex;
+import antifraud.correlation.CorrelationCounts;
+import antifraud.correlation.TransactionCorrelation;
 import antifraud.domain.StolenCard;
 import antifraud.domain.SuspiciousIp;
 import antifraud.domain.Transaction;
 import antifraud.domain.TransactionLimit;
+import antifraud.domain.TransactionResult;
 import antifraud.dto.*;
 import antifraud.exception.*;
+import antifraud.limits.LimitSnapshot;
+import antifraud.limits.TransactionLimits;
 import antifraud.mapper.AntiFraudMapper;
+import antifraud.persistence.TransactionWriter;
 import antifraud.repository.StolenCardRepository;
 import antifraud.repository.SuspiciousIpRepository;
 import antifraud.repository.TransactionLimitRepository;
 import antifraud.repository.TransactionRepository;
+import antifraud.rules.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Tuple;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
 import org.springframework.context.annotation.Import;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @Import(AntiFraudMapper.class)
 class AntiFraudServiceImplTest {
+    private static final String MERCHANT = "shop";
 
     @Mock
     TransactionRepository transactionRepository;
@@ -43,17 +68,48 @@ class AntiFraudServiceImplTest {
     @Mock
     TransactionLimitRepository transactionLimitRepository;
 
-    TransactionLimit transactionLimit;
+    @Mock
+    TransactionCorrelation transactionCorrelation;
+
+    @Mock
+    StolenCardIndex stolenCardIndex;
+
+    @Mock
+    SuspiciousIpIndex suspiciousIpIndex;
+
+    @Mock
+    TransactionWriter transactionWriter;
+
+    @Captor
+    ArgumentCaptor<List<Transaction>> transactionsCaptor;
+
+    @Captor
+    ArgumentCaptor<List<TransactionLimit>> transactionLimitsCaptor;
+
+    TransactionLimits transactionLimits;
 
     AntiFraudServiceImpl antifraudService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        transactionLimit = new TransactionLimit(200L, 1500L); // Example limits
-        when(transactionLimitRepository.findById(1L)).thenReturn(Optional.of(transactionLimit));
+        transactionLimits = new TransactionLimits(transactionLimitRepository, new SimpleMeterRegistry(),
+                200L, 1500L, Duration.ofHours(1)); // Example limits
         antifraudService = new AntiFraudServiceImpl(transactionRepository, suspiciousIpRepository,
-                stolenCardRepository, new AntiFraudMapper(), transactionLimitRepository, 200L, 1500L);
+                stolenCardRepository, new AntiFraudMapper(), transactionLimits, transactionCorrelation,
+                stolenCardIndex, suspiciousIpIndex, rulePipeline(), transactionWriter);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        transactionLimits.close();
+    }
+
+    // the real rules, backed by the mocked indexes and correlation
+    private FraudRulePipeline rulePipeline() {
+        return new FraudRulePipeline(List.of(new AmountRule(), new StolenCardRule(stolenCardIndex),
+                new SuspiciousIpRule(suspiciousIpIndex), new RegionCorrelationRule(), new IpCorrelationRule()),
+                new SimpleMeterRegistry());
     }
 
     private void testPostTransaction(Long amount, Boolean isStolenCard, Boolean isSuspiciousIp,
@@ -62,44 +118,51 @@ class AntiFraudServiceImplTest {
         // Arrange
         PostTransactionInDto dtoIn = new PostTransactionInDto(amount, "192.168.1.1",
                 "4000008449433403", "EAP", LocalDateTime.now());
-        when(stolenCardRepository.existsByNumber(anyString())).thenReturn(isStolenCard);
-        when(suspiciousIpRepository.existsByIp(anyString())).thenReturn(isSuspiciousIp);
-        when(transactionRepository.countDistinctRegionsInPeriodExcludingCurrentRegion(any(), any(), anyString()))
-                .thenReturn(distinctRegionsInPeriod);
-        when(transactionRepository.countDistinctIpsInPeriodExcludingCurrentIp(any(), any(), anyString()))
-                .thenReturn(distinctIpsInPeriod);
+        when(stolenCardIndex.contains(anyString())).thenReturn(isStolenCard);
+        when(suspiciousIpIndex.contains(anyString())).thenReturn(isSuspiciousIp);
+        when(transactionCorrelation.countDistinctExcluding(anyString(), any(), anyString(), anyString()))
+                .thenReturn(new CorrelationCounts(distinctRegionsInPeriod, distinctIpsInPeriod));
 
         // Act
-        PostTransactionOutDto result = antifraudService.postTransaction(dtoIn);
+        PostTransactionOutDto result = antifraudService.postTransaction(dtoIn, MERCHANT);
 
         // Assert
-        assertEquals(expectedOutDtoResult, result.result());
+        assertEquals(expectedOutDtoResult, result.result().name());
         assertEquals(expectedOutDtoInfo, result.info());
         ArgumentCaptor<Transaction> transactionCaptor = ArgumentCaptor.forClass(Transaction.class);
-        verify(transactionRepository, times(1)).save(transactionCaptor.capture());
+        verify(transactionWriter, times(1)).write(transactionCaptor.capture());
         Transaction savedTransaction = transactionCaptor.getValue();
         assertEquals(dtoIn.amount(), savedTransaction.getAmount());
         assertEquals(dtoIn.ip(), savedTransaction.getIp());
         assertEquals(dtoIn.number(), savedTransaction.getNumber());
         assertEquals(dtoIn.region(), savedTransaction.getRegion());
         assertEquals(dtoIn.date(), savedTransaction.getDate());
+        assertEquals(MERCHANT, savedTransaction.getMerchant());
         assertEquals(result.result(), savedTransaction.getResult());
-        assertEquals("", savedTransaction.getFeedback());
+        assertNull(savedTransaction.getFeedback());
+        verify(transactionCorrelation, times(1)).record(savedTransaction);
     }
 
     @Test
-    void testConstructorAndTransactionLimitRepository1LNotFound() {
-//        override BeforeSetup
-        when(transactionLimitRepository.findById(1L)).thenReturn(Optional.empty());
+    void testScoreTransactionDoesNotStoreOrRecordTransaction() {
+        // Arrange
+        PostTransactionInDto dtoIn = new PostTransactionInDto(1200L, "192.168.1.1",
+                "4000008449433403", "EAP", LocalDateTime.now());
+        when(transactionCorrelation.peekDistinctExcluding(anyString(), any(), anyString(), anyString()))
+                .thenReturn(new CorrelationCounts(0L, 0L));
 
-        antifraudService = new AntiFraudServiceImpl(transactionRepository, suspiciousIpRepository,
-                stolenCardRepository, new AntiFraudMapper(), transactionLimitRepository, 200L, 1500L);
+        // Act
+        PostTransactionOutDto result = antifraudService.scoreTransaction(dtoIn, MERCHANT);
 
-        ArgumentCaptor<TransactionLimit> transactionLimitCaptor = ArgumentCaptor.forClass(TransactionLimit.class);
-        verify(transactionLimitRepository, times(1)).save(transactionLimitCaptor.capture());
-        TransactionLimit savedTransactionLimit = transactionLimitCaptor.getValue();
-        assertEquals(200L, savedTransactionLimit.getMaxAllowed());
-        assertEquals(1500L, savedTransactionLimit.getMaxManual());
+        // Assert
+        assertEquals("MANUAL_PROCESSING", result.result().name());
+        assertEquals("amount", result.info());
+        verifyNoInteractions(transactionWriter);
+        // only peeked at, so the correlation state is not moved forward
+        verify(transactionCorrelation, times(1)).peekDistinctExcluding(dtoIn.number(), dtoIn.date(),
+                dtoIn.region(), dtoIn.ip());
+        verify(transactionCorrelation, never()).countDistinctExcluding(anyString(), any(), anyString(), anyString());
+        verify(transactionCorrelation, never()).record(any());
     }
 
     @Test
@@ -215,6 +278,127 @@ class AntiFraudServiceImplTest {
                         " ip-correlation");
     }
 
+    @Test
+    void testPostTransactionsScoresInOrderAndWritesOneBatch() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        List<PostTransactionInDto> dtosIn = List.of(
+                new PostTransactionInDto(120L, "192.168.1.1", "4000008449433403", "EAP", now),
+                new PostTransactionInDto(1200L, "192.168.1.2", "4000008449433403", "ECA", now),
+                new PostTransactionInDto(120L, "192.168.1.3", "4532015112830366", "HIC", now));
+        when(stolenCardIndex.contains("4532015112830366")).thenReturn(true);
+        List<Integer> pendingSizes = new ArrayList<>();
+        when(transactionCorrelation.countDistinctExcluding(anyString(), any(), anyString(), anyString()))
+                .thenReturn(new CorrelationCounts(0L, 0L));
+        when(transactionCorrelation.countDistinctExcluding(anyString(), any(), anyString(), anyString(), anyList()))
+                .thenAnswer(invocation -> {
+                    pendingSizes.add(invocation.<List<Transaction>>getArgument(4).size());
+                    return new CorrelationCounts(0L, 0L);
+                });
+
+        // Act
+        PostTransactionOutDto[] result = antifraudService.postTransactions(dtosIn, MERCHANT);
+
+        // Assert
+        assertArrayEquals(new PostTransactionOutDto[]{
+                new PostTransactionOutDto(TransactionResult.ALLOWED, "none"),
+                new PostTransactionOutDto(TransactionResult.MANUAL_PROCESSING, "amount"),
+                new PostTransactionOutDto(TransactionResult.PROHIBITED, "card-number")}, result);
+        verify(transactionWriter, times(1)).writeAll(transactionsCaptor.capture());
+        verify(transactionWriter, never()).write(any());
+        List<Transaction> savedTransactions = transactionsCaptor.getValue();
+        assertEquals(3, savedTransactions.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(dtosIn.get(i).ip(), savedTransactions.get(i).getIp());
+            assertEquals(MERCHANT, savedTransactions.get(i).getMerchant());
+            assertEquals(result[i].result(), savedTransactions.get(i).getResult());
+        }
+        // each item is correlated with the earlier ones, which are only recorded once the batch is written
+        assertEquals(List.of(1, 2), pendingSizes);
+        InOrder inOrder = inOrder(transactionWriter, transactionCorrelation);
+        inOrder.verify(transactionWriter).writeAll(any());
+        for (Transaction savedTransaction : savedTransactions) {
+            inOrder.verify(transactionCorrelation).record(savedTransaction);
+        }
+    }
+
+    @Test
+    void testPostTransactionsRecordsNothingWhenWriteFails() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        when(transactionCorrelation.countDistinctExcluding(anyString(), any(), anyString(), anyString()))
+                .thenReturn(new CorrelationCounts(0L, 0L));
+        when(transactionCorrelation.countDistinctExcluding(anyString(), any(), anyString(), anyString(), anyList()))
+                .thenReturn(new CorrelationCounts(0L, 0L));
+        doThrow(new IllegalStateException("Transaction writer has stopped")).when(transactionWriter).writeAll(any());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> antifraudService.postTransactions(List.of(
+                new PostTransactionInDto(120L, "192.168.1.1", "4000008449433403", "EAP", now),
+                new PostTransactionInDto(120L, "192.168.1.2", "4000008449433403", "ECA", now)), MERCHANT));
+        verify(transactionCorrelation, never()).record(any());
+    }
+
+    @Test
+    void testPostTransactionUsesLimitsOfMerchantAndRegion() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        transactionLimits.applyFeedback(MERCHANT, "EAP", TransactionResult.ALLOWED,
+                TransactionResult.MANUAL_PROCESSING, 500L); // maxAllowed 200 -> 60
+        when(transactionCorrelation.countDistinctExcluding(anyString(), any(), anyString(), anyString()))
+                .thenReturn(new CorrelationCounts(0L, 0L));
+
+        // Act & Assert
+        assertEquals(TransactionResult.MANUAL_PROCESSING, antifraudService.postTransaction(
+                new PostTransactionInDto(120L, "192.168.1.1", "4000008449433403", "EAP", now), MERCHANT).result());
+        assertEquals(TransactionResult.ALLOWED, antifraudService.postTransaction(
+                new PostTransactionInDto(120L, "192.168.1.1", "4000008449433403", "ECA", now), MERCHANT).result());
+        assertEquals(TransactionResult.ALLOWED, antifraudService.postTransaction(
+                new PostTransactionInDto(120L, "192.168.1.1", "4000008449433403", "EAP", now), "other").result());
+    }
+
+    @Test
+    void testUpdateTransactionFeedbacksAppliesItemsInOrderAndWritesOneBatch() {
+        // Arrange
+        Transaction first = new Transaction().setId(1L).setAmount(120L).setRegion("EAP").setMerchant(MERCHANT)
+                .setResult(TransactionResult.ALLOWED);
+        Transaction second = new Transaction().setId(2L).setAmount(120L).setRegion("EAP").setMerchant(MERCHANT)
+                .setResult(TransactionResult.ALLOWED);
+        Transaction rated = new Transaction().setId(3L).setAmount(120L).setRegion("EAP").setMerchant(MERCHANT)
+                .setResult(TransactionResult.ALLOWED).setFeedback(TransactionResult.PROHIBITED);
+        List<UpdateTransactionFeedback> feedbacks = List.of(
+                new UpdateTransactionFeedback(1L, "MANUAL_PROCESSING"),
+                new UpdateTransactionFeedback(4L, "ALLOWED"),
+                new UpdateTransactionFeedback(3L, "MANUAL_PROCESSING"),
+                new UpdateTransactionFeedback(2L, "ALLOWED"),
+                new UpdateTransactionFeedback(1L, "PROHIBITED"),
+                new UpdateTransactionFeedback(2L, "MANUAL_PROCESSING"));
+        when(transactionRepository.findAllById(List.of(1L, 4L, 3L, 2L, 1L, 2L)))
+                .thenReturn(List.of(first, second, rated));
+
+        // Act
+        TransactionFeedbackStatusDto[] result = antifraudService.updateTransactionFeedbacks(feedbacks);
+
+        // Assert
+        assertArrayEquals(new int[]{200, 404, 409, 422, 409, 200},
+                Arrays.stream(result).mapToInt(TransactionFeedbackStatusDto::status).toArray());
+        assertEquals("MANUAL_PROCESSING", result[0].transaction().feedback());
+        assertNull(result[1].transaction());
+        assertEquals("Transaction not found", result[1].error());
+        assertEquals("Feedback and result cannot be the same", result[3].error());
+        assertEquals(TransactionResult.MANUAL_PROCESSING, first.getFeedback());
+        assertEquals(TransactionResult.MANUAL_PROCESSING, second.getFeedback());
+        verify(transactionRepository, times(1)).findAllById(any());
+        verify(transactionRepository, never()).findById(any());
+        verify(transactionRepository, times(1)).saveAll(List.of(first, second));
+        verify(transactionRepository, never()).save(any());
+        // both accepted items decrease maxAllowed in turn: 200 -> 136 -> 85
+        assertEquals(new LimitSnapshot(85L, 1500L), transactionLimits.current(MERCHANT, "EAP"));
+        InOrder inOrder = inOrder(transactionWriter, transactionRepository);
+        inOrder.verify(transactionWriter).flush();
+        inOrder.verify(transactionRepository).findAllById(any());
+    }
+
     @Test
     void testUpdateTransactionFeedbackTransactionNotFound() {
         // Arrange
@@ -230,7 +414,7 @@ class AntiFraudServiceImplTest {
         // Arrange
         UpdateTransactionFeedback feedback = new UpdateTransactionFeedback(1L, "ALLOWED");
         Transaction transaction = new Transaction()
-                .setFeedback("PROHIBITED");
+                .setFeedback(TransactionResult.PROHIBITED);
         when(transactionRepository.findById(feedback.transactionId())).thenReturn(Optional.of(transaction));
 
         // Act & Assert
@@ -243,8 +427,7 @@ class AntiFraudServiceImplTest {
         // Arrange
         UpdateTransactionFeedback feedback = new UpdateTransactionFeedback(1L, "ALLOWED");
         Transaction transaction = new Transaction()
-                .setResult("ALLOWED")
-                .setFeedback("");
+                .setResult(TransactionResult.ALLOWED);
         when(transactionRepository.findById(feedback.transactionId())).thenReturn(Optional.of(transaction));
 
         // Act & Assert
@@ -260,8 +443,9 @@ class AntiFraudServiceImplTest {
         Transaction transaction = new Transaction()
                 .setId(1L)
                 .setAmount(transactionAmount)
-                .setResult(transactionValidity)
-                .setFeedback("");
+                .setRegion("EAP")
+                .setMerchant(MERCHANT)
+                .setResult(TransactionResult.valueOf(transactionValidity));
         when(transactionRepository.findById(feedback.transactionId())).thenReturn(Optional.of(transaction));
 
         // Act
@@ -271,8 +455,8 @@ class AntiFraudServiceImplTest {
         // check outDto
         assertEquals(transaction.getId(), result.transactionId());
         assertEquals(transaction.getAmount(), result.amount());
-        assertEquals(transaction.getResult(), result.result());
-        assertEquals(transaction.getFeedback(), result.feedback());
+        assertEquals(transaction.getResult().name(), result.result());
+        assertEquals(transaction.getFeedback().name(), result.feedback());
 
         // check save updated transaction into repository
         ArgumentCaptor<Transaction> transactionCaptor = ArgumentCaptor.forClass(Transaction.class);
@@ -282,14 +466,20 @@ class AntiFraudServiceImplTest {
         assertEquals(transaction.getResult(), savedTransaction.getResult());
         assertEquals(transaction.getFeedback(), savedTransaction.getFeedback());
 
-        // check save updated transactionLimit into limitRepository
-        ArgumentCaptor<TransactionLimit> transactionLimitCaptor = ArgumentCaptor.forClass(TransactionLimit.class);
-        verify(transactionLimitRepository, times(1)).save(transactionLimitCaptor.capture());
-        TransactionLimit savedTransactionLimit = transactionLimitCaptor.getValue();
-        assertEquals(1L, savedTransactionLimit.getId());
+        // check only the limits of the transaction's merchant and region are updated
+        assertEquals(new LimitSnapshot(expectedNewMaxAllowed, expectedNewMaxManual),
+                transactionLimits.current(MERCHANT, "EAP"));
+        assertEquals(new LimitSnapshot(200L, 1500L), transactionLimits.current(MERCHANT, "ECA"));
+        assertEquals(new LimitSnapshot(200L, 1500L), transactionLimits.current("other", "EAP"));
+
+        // check they are saved into limitRepository on the next flush
+        transactionLimits.flush();
+        verify(transactionLimitRepository, times(1)).saveAll(transactionLimitsCaptor.capture());
+        TransactionLimit savedTransactionLimit = transactionLimitsCaptor.getValue().get(0);
+        assertEquals(MERCHANT, savedTransactionLimit.getMerchant());
+        assertEquals("EAP", savedTransactionLimit.getRegion());
         assertEquals(expectedNewMaxAllowed, savedTransactionLimit.getMaxAllowed());
         assertEquals(expectedNewMaxManual, savedTransactionLimit.getMaxManual());
-
     }
 
     @Test
@@ -345,8 +535,7 @@ class AntiFraudServiceImplTest {
                 .setNumber("4532015112830366")
                 .setRegion("EAP")
                 .setDate(LocalDateTime.now())
-                .setResult("ALLOWED")
-                .setFeedback("");
+                .setResult(TransactionResult.ALLOWED);
         transactions.add(transaction1);
 
         Transaction transaction2 = new Transaction()
@@ -356,14 +545,14 @@ class AntiFraudServiceImplTest {
                 .setNumber("4539578763621486")
                 .setRegion("EUR")
                 .setDate(LocalDateTime.now())
-                .setResult("PROHIBITED")
-                .setFeedback("ALLOWED");
+                .setResult(TransactionResult.PROHIBITED)
+                .setFeedback(TransactionResult.ALLOWED);
         transactions.add(transaction2);
 
-        when(transactionRepository.findAllByOrderByIdAsc()).thenReturn(transactions);
+        when(transactionRepository.findAllByIdGreaterThanOrderByIdAsc(0L, Limit.of(2))).thenReturn(transactions);
 
         // Act
-        TransactionOutDto[] result = antifraudService.getTransactionHistory();
+        TransactionOutDto[] result = antifraudService.getTransactionHistory(0L, 2);
 
         // Assert
         assertEquals(2, result.length);
@@ -374,22 +563,85 @@ class AntiFraudServiceImplTest {
             assertEquals(transactions.get(i).getNumber(), result[i].number());
             assertEquals(transactions.get(i).getRegion(), result[i].region());
             assertEquals(transactions.get(i).getDate(), result[i].date());
-            assertEquals(transactions.get(i).getResult(), result[i].result());
+            assertEquals(transactions.get(i).getResult().name(), result[i].result());
         }
+        // queued transactions are stored before the history is read
+        InOrder inOrder = inOrder(transactionWriter, transactionRepository);
+        inOrder.verify(transactionWriter).flush();
+        inOrder.verify(transactionRepository).findAllByIdGreaterThanOrderByIdAsc(0L, Limit.of(2));
     }
 
     @Test
     void testGetTransactionHistoryResultsInEmptyArray() {
         // Arrange
-        when(transactionRepository.findAllByOrderByIdAsc()).thenReturn(new ArrayList<>());
+        when(transactionRepository.findAllByIdGreaterThanOrderByIdAsc(5L, Limit.of(10))).thenReturn(new ArrayList<>());
 
         // Act
-        TransactionOutDto[] result = antifraudService.getTransactionHistory();
+        TransactionOutDto[] result = antifraudService.getTransactionHistory(5L, 10);
 
         // Assert
         assertEquals(0, result.length);
     }
 
+    @Test
+    void testSearchTransactionsReturnsRequestedFieldsAndId() {
+        // Arrange
+        TransactionSearchCriteria criteria = new TransactionSearchCriteria(null, null, "PROHIBITED", null, null,
+                null, null, null);
+        Tuple row = mock(Tuple.class);
+        when(row.get("TRANSACTION_ID")).thenReturn(7L);
+        when(row.get("RESULT")).thenReturn(TransactionResult.PROHIBITED);
+        when(row.get("FEEDBACK")).thenReturn(null);
+        Set<TransactionField> selected = EnumSet.of(TransactionField.TRANSACTION_ID, TransactionField.RESULT,
+                TransactionField.FEEDBACK);
+        when(transactionRepository.search(criteria, selected, 5L, 10)).thenReturn(List.of(row));
+
+        // Act
+        List<Map<String, Object>> result = antifraudService.searchTransactions(criteria,
+                List.of("feedback", "result"), 5L, 10);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(List.of("transactionId", "result", "feedback"), List.copyOf(result.get(0).keySet()));
+        assertEquals(7L, result.get(0).get("transactionId"));
+        assertEquals("PROHIBITED", result.get(0).get("result"));
+        assertEquals("", result.get(0).get("feedback"));
+        verify(transactionWriter, times(1)).flush();
+    }
+
+    @Test
+    void testSearchTransactionsWithoutFieldsSelectsAll() {
+        // Arrange
+        TransactionSearchCriteria criteria = new TransactionSearchCriteria(null, null, null, null, "EAP", null,
+                null, null);
+        when(transactionRepository.search(any(), any(), anyLong(), anyInt())).thenReturn(List.of());
+
+        // Act
+        List<Map<String, Object>> result = antifraudService.searchTransactions(criteria, null, 0L, 100);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(transactionRepository, times(1)).search(criteria, EnumSet.allOf(TransactionField.class), 0L, 100);
+    }
+
+    @Test
+    void testGetHourlyTotalsFlushesAndRoundsToWholeHours() {
+        // Arrange
+        LocalDateTime hour = LocalDateTime.of(2024, 10, 1, 13, 0);
+        List<HourlyTotalsDto> totals = List.of(new HourlyTotalsDto(hour, "EAP", "ALLOWED", "", 2L, 300L));
+        when(transactionRepository.hourlyTotals(hour, hour.plusHours(2))).thenReturn(totals);
+
+        // Act
+        List<HourlyTotalsDto> result = antifraudService.getHourlyTotals(hour.plusMinutes(20),
+                hour.plusHours(2).plusMinutes(59));
+
+        // Assert
+        assertEquals(totals, result);
+        InOrder inOrder = inOrder(transactionWriter, transactionRepository);
+        inOrder.verify(transactionWriter).flush();
+        inOrder.verify(transactionRepository).hourlyTotals(hour, hour.plusHours(2));
+    }
+
     @Test
     void testGetTransactionHistoryByNumberNonEmptyArrayValidNumber() {
         // Arrange
@@ -401,8 +653,7 @@ class AntiFraudServiceImplTest {
                 .setNumber("4532015112830366")
                 .setRegion("EAP")
                 .setDate(LocalDateTime.now())
-                .setResult("ALLOWED")
-                .setFeedback("");
+                .setResult(TransactionResult.ALLOWED);
         transactions.add(transaction1);
 
         Transaction transaction2 = new Transaction()
@@ -412,14 +663,15 @@ class AntiFraudServiceImplTest {
                 .setNumber("4532015112830366")
                 .setRegion("EUR")
                 .setDate(LocalDateTime.now())
-                .setResult("PROHIBITED")
-                .setFeedback("ALLOWED");
+                .setResult(TransactionResult.PROHIBITED)
+                .setFeedback(TransactionResult.ALLOWED);
         transactions.add(transaction2);
 
-        when(transactionRepository.findAllByNumberOrderByIdAsc("4532015112830366")).thenReturn(transactions);
+        when(transactionRepository.findAllByNumberAndIdGreaterThanOrderByIdAsc("4532015112830366", 0L,
+                Limit.of(10))).thenReturn(transactions);
 
         // Act
-        TransactionOutDto[] result = antifraudService.getTransactionHistoryByNumber("4532015112830366");
+        TransactionOutDto[] result = antifraudService.getTransactionHistoryByNumber("4532015112830366", 0L, 10);
 
         // Assert
         assertEquals(2, result.length);
@@ -430,21 +682,35 @@ class AntiFraudServiceImplTest {
             assertEquals(transactions.get(i).getNumber(), result[i].number());
             assertEquals(transactions.get(i).getRegion(), result[i].region());
             assertEquals(transactions.get(i).getDate(), result[i].date());
-            assertEquals(transactions.get(i).getResult(), result[i].result());
+            assertEquals(transactions.get(i).getResult().name(), result[i].result());
         }
     }
 
     @Test
     void testGetTransactionHistoryByNumberEmptyListValidNumber() {
         // Arrange
-        when(transactionRepository.findAllByNumberOrderByIdAsc("4532015112830366")).thenReturn(new ArrayList<>());
+        when(transactionRepository.findAllByNumberAndIdGreaterThanOrderByIdAsc("4532015112830366", 0L,
+                Limit.of(10))).thenReturn(new ArrayList<>());
 
         // Act and Assert
         assertThrows(TransactionNotFoundException.class, ()
-                -> antifraudService.getTransactionHistoryByNumber("4532015112830366"));
+                -> antifraudService.getTransactionHistoryByNumber("4532015112830366", 0L, 10));
 
     }
 
+    @Test
+    void testGetTransactionHistoryByNumberEmptyLaterPage() {
+        // Arrange
+        when(transactionRepository.findAllByNumberAndIdGreaterThanOrderByIdAsc("4532015112830366", 7L,
+                Limit.of(10))).thenReturn(new ArrayList<>());
+
+        // Act
+        TransactionOutDto[] result = antifraudService.getTransactionHistoryByNumber("4532015112830366", 7L, 10);
+
+        // Assert
+        assertEquals(0, result.length);
+    }
+
     @Test
     void testPostSuspiciousIpThrowsException() {
         // Arrange
@@ -475,6 +741,22 @@ class AntiFraudServiceImplTest {
         verify(suspiciousIpRepository, times(1)).save(suspiciousIpCaptor.capture());
         SuspiciousIp savedSuspiciousIp = suspiciousIpCaptor.getValue();
         assertEquals(suspiciousIp.getIp(), savedSuspiciousIp.getIp());
+        verify(suspiciousIpIndex, times(1)).add(IpRange.parse("192.168.0.1"));
+    }
+
+    @Test
+    void testPostSuspiciousIpRangeStoresNetworkAddress() {
+        // Arrange
+        SuspiciousIpInDto suspiciousIpInDto = new SuspiciousIpInDto("10.1.2.3/8");
+        when(suspiciousIpRepository.existsByIp("10.0.0.0/8")).thenReturn(false);
+        when(suspiciousIpRepository.save(any(SuspiciousIp.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        SuspiciousIpOutDto outDto = antifraudService.postSuspiciousIp(suspiciousIpInDto);
+
+        // Assert
+        assertEquals("10.0.0.0/8", outDto.ip());
+        verify(suspiciousIpIndex, times(1)).add(new IpRange(0x0a000000, 8));
     }
 
     @Test
@@ -499,6 +781,7 @@ class AntiFraudServiceImplTest {
 
         // Assert
         verify(suspiciousIpRepository, times(1)).delete(suspiciousIp);
+        verify(suspiciousIpIndex, times(1)).remove(IpRange.parse(ip));
     }
 
     @Test
@@ -563,6 +846,7 @@ class AntiFraudServiceImplTest {
         verify(stolenCardRepository, times(1)).save(stolenCardCaptor.capture());
         StolenCard savedStolenCard = stolenCardCaptor.getValue();
         assertEquals(stolenCard.getNumber(), savedStolenCard.getNumber());
+        verify(stolenCardIndex, times(1)).add(stolenCard.getNumber());
     }
 
     @Test
@@ -587,6 +871,7 @@ class AntiFraudServiceImplTest {
 
         // Assert
         verify(stolenCardRepository, times(1)).delete(stolenCard);
+        verify(stolenCardIndex, times(1)).remove(number);
     }
 
     @Test
@@ -13,6 +13,7 @@ import antifraud.exception.UserNotFoundException;
 import antifraud.mapper.UserMapper;
 import antifraud.repository.RoleRepository;
 import antifraud.repository.UserRepository;
+import antifraud.security.UserChangeListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -40,6 +41,9 @@ class UserServiceImplTest {
     @Mock
     private PasswordEncoder encoder;
 
+    @Mock
+    private UserChangeListener userChangeListener;
+
     private UserServiceImpl userService;
 
     private NewUserDto newUserDto;
@@ -48,7 +52,8 @@ class UserServiceImplTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        userService = new UserServiceImpl(userRepository, roleRepository, encoder, new UserMapper());
+        userService = new UserServiceImpl(userRepository, roleRepository, encoder, new UserMapper(),
+                List.of(userChangeListener));
 
         newUserDto = new NewUserDto("John", "john_doe", "password123");
         user = new User()
@@ -156,6 +161,7 @@ class UserServiceImplTest {
         userService.deleteUser("john_doe");
 
         verify(userRepository).delete(user);
+        verify(userChangeListener).userChanged("john_doe");
     }
 
     @Test
@@ -166,6 +172,7 @@ class UserServiceImplTest {
                 .isInstanceOf(UserNotFoundException.class);
 
         verify(userRepository, never()).delete(any(User.class));
+        verify(userChangeListener, never()).userChanged(any());
     }
 
     // Test for changeRole()
@@ -190,6 +197,7 @@ class UserServiceImplTest {
         verify(userRepository, times(1)).save(userArgumentCaptor.capture());
         User savedUser = userArgumentCaptor.getValue();
         assertEquals(changeRoleDto.role(), savedUser.getRole().getName());
+        verify(userChangeListener).userChanged("john_doe");
     }
 
     @Test
@@ -203,6 +211,7 @@ class UserServiceImplTest {
                 .isInstanceOf(RoleAlreadyProvidedException.class);
 
         verify(userRepository, never()).save(any(User.class));
+        verify(userChangeListener, never()).userChanged(any());
     }
 
     @Test
@@ -215,6 +224,7 @@ class UserServiceImplTest {
                 .isInstanceOf(UserNotFoundException.class);
 
         verify(userRepository, never()).save(any(User.class));
+        verify(userChangeListener, never()).userChanged(any());
     }
 
     // Test for changeAccess()
@@ -229,6 +239,7 @@ class UserServiceImplTest {
 
         assertThat(user.isAccountNonLocked()).isFalse();
         verify(userRepository).save(user);
+        verify(userChangeListener).userChanged("john_doe");
     }
 
     @Test
@@ -242,6 +253,7 @@ class UserServiceImplTest {
                 .isInstanceOf(UnableToLockAdminException.class);
 
         verify(userRepository, never()).save(any(User.class));
+        verify(userChangeListener, never()).userChanged(any());
     }
 
     @Test
@@ -254,5 +266,6 @@ class UserServiceImplTest {
                 .isInstanceOf(UserNotFoundException.class);
 
         verify(userRepository, never()).save(any(User.class));
+        verify(userChangeListener, never()).userChanged(any());
     }
 }
@@ -0,0 +1,155 @@
+package antifraud.streaming;
+
+import antifraud.domain.Transaction;
+import antifraud.domain.TransactionResult;
+import antifraud.exception.TransactionNotFoundException;
+import antifraud.mapper.AntiFraudMapper;
+import antifraud.persistence.TransactionWriter;
+import antifraud.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+class TransactionHistoryStreamerTest {
+    private static final String NUMBER = "4000008449433403";
+    private static final String OTHER_NUMBER = "4532015112830366";
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private TransactionWriter transactionWriter;
+    private ObjectMapper objectMapper;
+    private TransactionHistoryStreamer streamer;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        save(NUMBER, 100L);
+        save(OTHER_NUMBER, 200L);
+        save(NUMBER, 300L);
+        transactionWriter = Mockito.mock(TransactionWriter.class);
+        // the application's mapper indents; the streamed output must not
+        objectMapper = new ObjectMapper().findAndRegisterModules().enable(SerializationFeature.INDENT_OUTPUT);
+        streamer = new TransactionHistoryStreamer(transactionRepository, transactionWriter, new AntiFraudMapper(),
+                entityManager.getEntityManager(), objectMapper);
+    }
+
+    private void save(String number, Long amount) {
+        transactionRepository.save(new Transaction()
+                .setAmount(amount)
+                .setNumber(number)
+                .setRegion("EAP")
+                .setIp("192.168.0.1")
+                .setDate(LocalDateTime.of(2024, 10, 1, 12, 0))
+                .setResult(TransactionResult.ALLOWED));
+    }
+
+    private List<JsonNode> parse(ByteArrayOutputStream out) throws IOException {
+        List<JsonNode> result = new ArrayList<>();
+        objectMapper.readTree(out.toByteArray()).forEach(result::add);
+        return result;
+    }
+
+    @Test
+    void testWriteHistoryWritesAllTransactionsInIdOrder() throws IOException {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long count = streamer.writeHistory(out);
+
+        // Assert
+        assertEquals(3, count);
+        List<JsonNode> result = parse(out);
+        assertEquals(List.of(100L, 200L, 300L), result.stream().map(node -> node.get("amount").asLong()).toList());
+        assertTrue(result.get(0).get("transactionId").asLong() < result.get(1).get("transactionId").asLong());
+        assertEquals("ALLOWED", result.get(0).get("result").asText());
+        assertEquals("", result.get(0).get("feedback").asText());
+        assertFalse(out.toString(StandardCharsets.UTF_8).contains("\n"));
+        verify(transactionWriter, times(1)).flush();
+    }
+
+    @Test
+    void testWriteHistoryDetachesWrittenTransactions() throws IOException {
+        // Arrange
+        entityManager.flush();
+        entityManager.clear();
+        List<Transaction> written = new ArrayList<>();
+        AntiFraudMapper mapper = spy(new AntiFraudMapper());
+        doAnswer(invocation -> {
+            written.add(invocation.getArgument(0));
+            return invocation.callRealMethod();
+        }).when(mapper).toDto(any(Transaction.class));
+        streamer = new TransactionHistoryStreamer(transactionRepository, transactionWriter, mapper,
+                entityManager.getEntityManager(), objectMapper);
+
+        // Act
+        streamer.writeHistory(new ByteArrayOutputStream());
+
+        // Assert: nothing read is left in the persistence context
+        assertEquals(3, written.size());
+        for (Transaction transaction : written) {
+            assertFalse(entityManager.getEntityManager().contains(transaction));
+        }
+    }
+
+    @Test
+    void testWriteHistoryOfEmptyTableWritesEmptyArray() throws IOException {
+        // Arrange
+        transactionRepository.deleteAll();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long count = streamer.writeHistory(out);
+
+        // Assert
+        assertEquals(0, count);
+        assertEquals("[]", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWriteHistoryByNumberOnlyWritesSameCard() throws IOException {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long count = streamer.writeHistoryByNumber(NUMBER, out);
+
+        // Assert
+        assertEquals(2, count);
+        assertEquals(List.of(100L, 300L), parse(out).stream().map(node -> node.get("amount").asLong()).toList());
+    }
+
+    @Test
+    void testWriteHistoryByUnknownNumberThrowsBeforeWriting() {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act & Assert
+        assertThrows(TransactionNotFoundException.class, () -> streamer.writeHistoryByNumber("4111111111111111", out));
+        assertEquals(0, out.size());
+    }
+}
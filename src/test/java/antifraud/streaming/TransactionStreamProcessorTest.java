@@ -0,0 +1,155 @@
+package antifraud.streaming;
+
+import antifraud.domain.TransactionResult;
+import antifraud.dto.PostTransactionInDto;
+import antifraud.dto.PostTransactionOutDto;
+import antifraud.service.AntiFraudService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TransactionStreamProcessorTest {
+    private static final String MERCHANT = "shop";
+    private static final String VALID_LINE = "{\"amount\":120,\"ip\":\"192.168.0.1\",\"number\":\"4532015112830366\"," +
+            "\"region\":\"EAP\",\"date\":\"2024-10-01T12:00:00\"}";
+
+    @Mock
+    AntiFraudService antiFraudService;
+
+    ObjectMapper objectMapper;
+    TransactionStreamProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        processor = new TransactionStreamProcessor(antiFraudService,
+                Validation.buildDefaultValidatorFactory().getValidator(), objectMapper);
+        when(antiFraudService.postTransaction(any(PostTransactionInDto.class), eq(MERCHANT)))
+                .thenReturn(new PostTransactionOutDto(TransactionResult.ALLOWED, "none"));
+    }
+
+    private List<JsonNode> process(String input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        processor.process(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out, MERCHANT);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    void testEachLineIsAnsweredInOrder() throws IOException {
+        // Act
+        List<JsonNode> result = process(VALID_LINE + "\n\n" + VALID_LINE.replace("120", "12000") + "\r\n");
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals("ALLOWED", result.get(0).get("result").asText());
+        verify(antiFraudService, times(2)).postTransaction(any(PostTransactionInDto.class), eq(MERCHANT));
+        verify(antiFraudService, times(1)).postTransaction(argThat(dto -> dto.amount() == 12000L), eq(MERCHANT));
+    }
+
+    @Test
+    void testInvalidLinesAreAnsweredWithErrorsAndStreamContinues() throws IOException {
+        // Act
+        List<JsonNode> result = process("{not json\n" + VALID_LINE.replace("EAP", "AUT") + "\n" + VALID_LINE);
+
+        // Assert
+        assertEquals(3, result.size());
+        assertEquals(1, result.get(0).get("line").asLong());
+        assertEquals("Malformed JSON", result.get(0).get("error").asText());
+        assertEquals(2, result.get(1).get("line").asLong());
+        assertEquals("region", result.get(1).get("fieldErrors").get(0).get("fieldName").asText());
+        assertEquals("ALLOWED", result.get(2).get("result").asText());
+        verify(antiFraudService, times(1)).postTransaction(any(PostTransactionInDto.class), eq(MERCHANT));
+    }
+
+    @Test
+    void testNullLineIsAnsweredWithErrorAndStreamContinues() throws IOException {
+        // Act
+        List<JsonNode> result = process("null\n" + VALID_LINE + "\n");
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(1, result.get(0).get("line").asLong());
+        assertEquals("Expected a transaction object", result.get(0).get("error").asText());
+        assertEquals("ALLOWED", result.get(1).get("result").asText());
+    }
+
+    @Test
+    void testOverlongLineIsRejected() throws IOException {
+        // Arrange
+        String overlong = "x".repeat(TransactionStreamProcessor.MAX_LINE_LENGTH + 10);
+
+        // Act
+        List<JsonNode> result = process(overlong + "\n" + VALID_LINE + "\n");
+
+        // Assert
+        assertEquals(2, result.size());
+        assertTrue(result.get(0).get("error").asText().startsWith("Line exceeds"));
+        assertEquals("ALLOWED", result.get(1).get("result").asText());
+    }
+
+    @Test
+    void testDecisionIsFlushedBeforeWaitingForMoreInput() throws IOException {
+        // Arrange: the second line only becomes available once the first decision has been written out
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] first = (VALID_LINE + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] second = (VALID_LINE + "\n").getBytes(StandardCharsets.UTF_8);
+        InputStream in = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                byte[] source;
+                int start;
+                if (position < first.length) {
+                    source = first;
+                    start = position;
+                } else if (position < first.length + second.length) {
+                    assertTrue(out.size() > 0, "first decision not flushed before reading on");
+                    source = second;
+                    start = position - first.length;
+                } else {
+                    return -1;
+                }
+                int count = Math.min(length, source.length - start);
+                System.arraycopy(source, start, buffer, offset, count);
+                position += count;
+                return count;
+            }
+        };
+
+        // Act
+        long lines = processor.process(in, out, MERCHANT);
+
+        // Assert
+        assertEquals(2, lines);
+        assertEquals(2, out.toString(StandardCharsets.UTF_8).lines().count());
+    }
+}
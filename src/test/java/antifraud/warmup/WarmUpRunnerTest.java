@@ -0,0 +1,200 @@
+package antifraud.warmup;
+
+import antifraud.dto.PostTransactionInDto;
+import antifraud.security.AccessTokenService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WarmUpRunnerTest {
+    @Mock
+    AccessTokenService tokenService;
+
+    MeterRegistry meterRegistry;
+
+    MockEnvironment environment;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        environment = new MockEnvironment();
+    }
+
+    private WarmUpRunner runner(boolean enabled, int requests, Duration timeout, Duration targetLatency) {
+        return new WarmUpRunner(tokenService, new ObjectMapper(), environment, meterRegistry, enabled, requests,
+                timeout, targetLatency);
+    }
+
+    @Test
+    void testWarmUpSendsAllRequestsWithoutTarget() throws Exception {
+        // Arrange
+        WarmUpRunner runner = runner(true, 250, Duration.ofMinutes(1), Duration.ZERO);
+        AtomicInteger sent = new AtomicInteger();
+
+        // Act
+        WarmUpRunner.Result result = runner.warmUp(i -> assertEquals(sent.getAndIncrement(), i));
+
+        // Assert
+        assertEquals(250, sent.get());
+        assertEquals(250, result.requests());
+        assertEquals(250, meterRegistry.get("antifraud.warmup.requests").gauge().value());
+        assertTrue(meterRegistry.get("antifraud.warmup.duration").timeGauge().value(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    void testWarmUpStopsOnceTargetLatencyIsReached() throws Exception {
+        // Arrange
+        WarmUpRunner runner = runner(true, 1000, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        AtomicInteger sent = new AtomicInteger();
+
+        // Act
+        WarmUpRunner.Result result = runner.warmUp(i -> sent.incrementAndGet());
+
+        // Assert: the first round is already fast enough
+        assertEquals(WarmUpRunner.ROUND_SIZE, sent.get());
+        assertEquals(WarmUpRunner.ROUND_SIZE, result.requests());
+        assertTrue(result.latency().compareTo(Duration.ofSeconds(1)) <= 0);
+    }
+
+    @Test
+    void testWarmUpStopsAfterTimeout() throws Exception {
+        // Arrange
+        WarmUpRunner runner = runner(true, 10_000, Duration.ofMillis(50), Duration.ZERO);
+        AtomicInteger sent = new AtomicInteger();
+
+        // Act
+        WarmUpRunner.Result result = runner.warmUp(i -> {
+            sent.incrementAndGet();
+            Thread.sleep(1);
+        });
+
+        // Assert: a started round is completed
+        assertEquals(WarmUpRunner.ROUND_SIZE, sent.get());
+        assertEquals(WarmUpRunner.ROUND_SIZE, result.requests());
+        assertTrue(result.latency().compareTo(Duration.ofMillis(1)) >= 0);
+        assertTrue(meterRegistry.get("antifraud.warmup.latency").timeGauge().value(TimeUnit.MILLISECONDS) >= 1);
+    }
+
+    @Test
+    void testWarmUpFailsWithFailingRequest() {
+        // Arrange
+        WarmUpRunner runner = runner(true, 1000, Duration.ofMinutes(1), Duration.ZERO);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> runner.warmUp(i -> {
+            if (i == 5) {
+                throw new IllegalStateException("status 500");
+            }
+        }));
+        assertEquals(5, meterRegistry.get("antifraud.warmup.requests").gauge().value());
+    }
+
+    @Test
+    void testSyntheticTransactionsAreValidAndVaried() {
+        // Arrange
+        LocalDateTime date = LocalDateTime.now();
+        Set<String> numbers = new HashSet<>();
+        Set<String> regions = new HashSet<>();
+        Set<Long> amounts = new HashSet<>();
+
+        // Act & Assert
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            Validator validator = factory.getValidator();
+            for (int i = 0; i < 1000; i++) {
+                PostTransactionInDto transaction = WarmUpRunner.transaction(i, date);
+                assertTrue(validator.validate(transaction).isEmpty(), transaction.toString());
+                numbers.add(transaction.number());
+                regions.add(transaction.region());
+                amounts.add(transaction.amount());
+            }
+        }
+        assertTrue(numbers.size() > 1);
+        assertEquals(7, regions.size());
+        // amounts up to 200 are allowed, up to 1500 manual processing, above prohibited
+        assertTrue(amounts.stream().anyMatch(amount -> amount <= 200));
+        assertTrue(amounts.stream().anyMatch(amount -> amount > 200 && amount <= 1500));
+        assertTrue(amounts.stream().anyMatch(amount -> amount > 1500));
+    }
+
+    @Test
+    void testIsDryRunOnlyWithDryRunAuthority() {
+        // Act & Assert
+        assertTrue(WarmUpRunner.isDryRun(UsernamePasswordAuthenticationToken.authenticated("warm-up", null,
+                AuthorityUtils.createAuthorityList("ROLE_MERCHANT", WarmUpRunner.DRY_RUN_AUTHORITY))));
+        assertFalse(WarmUpRunner.isDryRun(UsernamePasswordAuthenticationToken.authenticated("shop", null,
+                AuthorityUtils.createAuthorityList("ROLE_MERCHANT"))));
+        assertFalse(WarmUpRunner.isDryRun(() -> "shop"));
+    }
+
+    @Test
+    void testRunDoesNothingWhenDisabled() {
+        // Arrange
+        environment.setProperty("local.server.port", "28858");
+
+        // Act
+        runner(false, 1000, Duration.ofMinutes(1), Duration.ZERO).run(new DefaultApplicationArguments());
+
+        // Assert
+        verifyNoInteractions(tokenService);
+        assertEquals(0, meterRegistry.get("antifraud.warmup.requests").gauge().value());
+    }
+
+    @Test
+    void testRunIssuesTokenForTimeoutAndRevokesItAfterwards() throws IOException {
+        // Arrange: nothing listens on the port, so the first request fails
+        try (ServerSocket socket = new ServerSocket(0)) {
+            environment.setProperty("local.server.port", String.valueOf(socket.getLocalPort()));
+        }
+        when(tokenService.issue(any(), any())).thenReturn("token");
+
+        // Act
+        runner(true, 1000, Duration.ofSeconds(30), Duration.ZERO).run(new DefaultApplicationArguments());
+
+        // Assert
+        InOrder inOrder = inOrder(tokenService);
+        inOrder.verify(tokenService).issue(any(), eq(Duration.ofSeconds(30)));
+        inOrder.verify(tokenService).userChanged(WarmUpRunner.USERNAME);
+    }
+
+    @Test
+    void testRunIsSkippedWithoutWebServer() {
+        // Act
+        runner(true, 1000, Duration.ofMinutes(1), Duration.ZERO).run(new DefaultApplicationArguments());
+
+        // Assert
+        verifyNoInteractions(tokenService);
+    }
+
+    @Test
+    void testRequestsMustBePositive() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> runner(true, 0, Duration.ofMinutes(1), Duration.ZERO));
+    }
+}